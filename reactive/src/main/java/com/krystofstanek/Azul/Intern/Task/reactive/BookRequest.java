@@ -0,0 +1,45 @@
+package com.krystofstanek.Azul.Intern.Task.reactive;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import java.math.BigDecimal;
+
+/**
+ * A book as sent in request bodies; the same JSON as the books of the servlet application.
+ *
+ * @param isbn     the International Standard Book Number
+ * @param title    the title of the book
+ * @param author   the author of the book
+ * @param genre    the genre of the book
+ * @param price    the price of the book
+ * @param quantity the quantity in stock
+ */
+public record BookRequest(String isbn, String title, String author, Genre genre, BigDecimal price, int quantity) {
+
+  /**
+   * Validates this book with the rules of {@link AbstractBook#validate}.
+   *
+   * @throws IllegalArgumentException if any attribute is invalid
+   */
+  public void validate() {
+    AbstractBook.validate(isbn, title, author, genre, price, quantity);
+  }
+
+  /**
+   * Applies the details present in this request to a book, for partial updates: the title, author,
+   * genre and price that are null keep the values of the book, as in the servlet application.
+   * The result is a complete book that can be checked with {@link #validate}.
+   *
+   * @param current the book to update
+   * @return the updated book, with the ISBN and quantity of the current book
+   */
+  public BookRequest mergeInto(BookView current) {
+    return new BookRequest(current.isbn(),
+            title != null ? title : current.title(),
+            author != null ? author : current.author(),
+            genre != null ? genre : current.genre(),
+            price != null ? price : current.price(),
+            current.quantity());
+  }
+}
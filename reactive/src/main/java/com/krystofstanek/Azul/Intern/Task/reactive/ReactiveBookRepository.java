@@ -0,0 +1,234 @@
+package com.krystofstanek.Azul.Intern.Task.reactive;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookSearchCriteria;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import io.r2dbc.spi.Readable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the {@code abstract_book} table created by the Flyway migrations of the
+ * servlet application. Reads return {@link BookView}s, and stock changes use the same single
+ * conditional statements as the servlet repository, each incrementing the version of the book.
+ */
+@Repository
+public class ReactiveBookRepository {
+
+  private static final String SELECT_VIEW =
+          "SELECT isbn, title, author, genre, price, quantity, version FROM abstract_book ";
+
+  // Rows requested from the database at a time while streaming, so a slow client holds back the query
+  private static final int STREAM_FETCH_SIZE = 500;
+
+  private final DatabaseClient client;
+
+  /**
+   * Creates a new {@code ReactiveBookRepository}.
+   *
+   * @param client the R2DBC client
+   */
+  public ReactiveBookRepository(DatabaseClient client) {
+    this.client = client;
+  }
+
+  /**
+   * Finds a view of the book with the given ISBN.
+   *
+   * @param isbn the ISBN to look up
+   * @return the book, or empty if it does not exist
+   */
+  public Mono<BookView> findViewByIsbn(String isbn) {
+    return client.sql(SELECT_VIEW + "WHERE isbn = :isbn")
+            .bind("isbn", isbn)
+            .map(ReactiveBookRepository::toView)
+            .one();
+  }
+
+  /**
+   * Finds views of the books with the given ISBNs.
+   *
+   * @param isbns the ISBNs to look up; must not be empty
+   * @return the books that exist, in no particular order
+   */
+  public Flux<BookView> findViewsByIsbnIn(Collection<String> isbns) {
+    return client.sql(SELECT_VIEW + "WHERE isbn IN (:isbns)")
+            .bind("isbns", isbns)
+            .map(ReactiveBookRepository::toView)
+            .all();
+  }
+
+  /**
+   * Finds the books matching all given criteria, in the given order.
+   *
+   * @param criteria the criteria to match; absent criteria match all books
+   * @param orderBy  the SQL order of the result, made only of column names and directions
+   * @param offset   the number of matching books to skip
+   * @param limit    the maximum number of books to return, or a negative number to stream all of them
+   * @return the matching books
+   */
+  public Flux<BookView> findViews(BookSearchCriteria criteria, String orderBy, long offset, int limit) {
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    StringBuilder sql = new StringBuilder(SELECT_VIEW).append(where(criteria, parameters))
+            .append("ORDER BY ").append(orderBy);
+    if (limit >= 0) {
+      sql.append(" LIMIT :limit OFFSET :offset");
+      parameters.put("limit", limit);
+      parameters.put("offset", offset);
+    }
+    DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString());
+    for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+      spec = spec.bind(parameter.getKey(), parameter.getValue());
+    }
+    if (limit < 0) {
+      spec = spec.filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE));
+    }
+    return spec.map(ReactiveBookRepository::toView).all();
+  }
+
+  /**
+   * Counts the books matching all given criteria.
+   *
+   * @param criteria the criteria to match; absent criteria match all books
+   * @return the number of matching books
+   */
+  public Mono<Long> count(BookSearchCriteria criteria) {
+    Map<String, Object> parameters = new LinkedHashMap<>();
+    DatabaseClient.GenericExecuteSpec spec = client.sql("SELECT count(*) AS total FROM abstract_book "
+            + where(criteria, parameters));
+    for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+      spec = spec.bind(parameter.getKey(), parameter.getValue());
+    }
+    return spec.map(row -> row.get("total", Long.class)).one();
+  }
+
+  /**
+   * Atomically increments the quantity of an existing book.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the amount to add
+   * @return the number of updated rows, 0 if the book does not exist
+   */
+  public Mono<Long> incrementQuantity(String isbn, int amount) {
+    return client.sql("UPDATE abstract_book SET quantity = quantity + :amount, version = version + 1 "
+                    + "WHERE isbn = :isbn")
+            .bind("amount", amount)
+            .bind("isbn", isbn)
+            .fetch()
+            .rowsUpdated();
+  }
+
+  /**
+   * Atomically decrements the quantity of a book if more than the amount is in stock.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the amount to remove
+   * @return the number of updated rows, 0 if the book does not exist or has no more than the amount in stock
+   */
+  public Mono<Long> decrementQuantityIfAvailable(String isbn, int amount) {
+    return client.sql("UPDATE abstract_book SET quantity = quantity - :amount, version = version + 1 "
+                    + "WHERE isbn = :isbn AND quantity > :amount")
+            .bind("amount", amount)
+            .bind("isbn", isbn)
+            .fetch()
+            .rowsUpdated();
+  }
+
+  /**
+   * Atomically deletes a book if exactly the amount is in stock.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the expected quantity
+   * @return the number of deleted rows
+   */
+  public Mono<Long> deleteByIsbnIfQuantityEquals(String isbn, int amount) {
+    return client.sql("DELETE FROM abstract_book WHERE isbn = :isbn AND quantity = :amount")
+            .bind("isbn", isbn)
+            .bind("amount", amount)
+            .fetch()
+            .rowsUpdated();
+  }
+
+  /**
+   * Inserts a new book.
+   *
+   * @param book the book to insert
+   * @return the number of inserted rows
+   */
+  public Mono<Long> insert(BookRequest book) {
+    return client.sql("INSERT INTO abstract_book (isbn, book_type, title, author, genre, price, quantity, version) "
+                    + "VALUES (:isbn, 'SIMPLE', :title, :author, :genre, :price, :quantity, 0)")
+            .bind("isbn", book.isbn())
+            .bind("title", book.title())
+            .bind("author", book.author())
+            .bind("genre", book.genre().name())
+            .bind("price", book.price())
+            .bind("quantity", book.quantity())
+            .fetch()
+            .rowsUpdated();
+  }
+
+  /**
+   * Updates the title, author, genre and price of a book if it still has the given version,
+   * the same optimistic check the servlet application makes through JPA.
+   *
+   * @param book    the updated book
+   * @param version the version the book was read with
+   * @return the number of updated rows, 0 if the book does not exist or was changed in the meantime
+   */
+  public Mono<Long> updateDetails(BookRequest book, long version) {
+    return client.sql("UPDATE abstract_book SET title = :title, author = :author, genre = :genre, "
+                    + "price = :price, version = version + 1 WHERE isbn = :isbn AND version = :version")
+            .bind("title", book.title())
+            .bind("author", book.author())
+            .bind("genre", book.genre().name())
+            .bind("price", book.price())
+            .bind("isbn", book.isbn())
+            .bind("version", version)
+            .fetch()
+            .rowsUpdated();
+  }
+
+  /**
+   * Builds the WHERE clause of the given criteria and collects its parameters.
+   */
+  private static String where(BookSearchCriteria criteria, Map<String, Object> parameters) {
+    List<String> conditions = new ArrayList<>();
+    if (criteria.genre() != null) {
+      conditions.add("genre = :genre");
+      parameters.put("genre", criteria.genre().name());
+    }
+    if (criteria.author() != null) {
+      conditions.add("author = :author");
+      parameters.put("author", criteria.author());
+    }
+    if (criteria.title() != null) {
+      conditions.add("title = :title");
+      parameters.put("title", criteria.title());
+    }
+    if (criteria.minPrice() != null) {
+      conditions.add("price >= :minPrice");
+      parameters.put("minPrice", criteria.minPrice());
+    }
+    if (criteria.maxPrice() != null) {
+      conditions.add("price <= :maxPrice");
+      parameters.put("maxPrice", criteria.maxPrice());
+    }
+    return conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions) + " ";
+  }
+
+  private static BookView toView(Readable row) {
+    return new BookView(row.get("isbn", String.class), row.get("title", String.class),
+            row.get("author", String.class), Genre.valueOf(row.get("genre", String.class)),
+            row.get("price", BigDecimal.class), row.get("quantity", Integer.class),
+            row.get("version", Long.class));
+  }
+}
@@ -0,0 +1,425 @@
+package com.krystofstanek.Azul.Intern.Task.reactive;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BatchItemResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookLookupResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookSearchCriteria;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookConflictException;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of the servlet {@code BookService}.
+ * It accepts and rejects the same inputs, with the same messages, and adjusts stock with the same
+ * conditional statements; nothing blocks, so a few event-loop threads serve all clients.
+ * Caching, indexes, events and write-behind of the servlet application are not part of this variant.
+ */
+@Service
+public class ReactiveBookService {
+
+  private static final Map<String, String> SORTABLE_COLUMNS = Map.of(
+          "isbn", "isbn", "title", "title", "author", "author", "genre", "genre", "price", "price");
+
+  private final ReactiveBookRepository bookRepository;
+  private final int batchChunkSize;
+  private final int lookupMaxIsbns;
+
+  /**
+   * Creates a new {@code ReactiveBookService}.
+   *
+   * @param bookRepository the repository for book data
+   * @param batchChunkSize the number of ISBNs read per query during multi-gets
+   * @param lookupMaxIsbns the maximum number of ISBNs of a multi-get
+   */
+  public ReactiveBookService(ReactiveBookRepository bookRepository,
+                             @Value("${bookstore.batch.chunk-size:500}") int batchChunkSize,
+                             @Value("${bookstore.lookup.max-isbns:1000}") int lookupMaxIsbns) {
+    if (batchChunkSize <= 0) {
+      throw new IllegalArgumentException("Batch chunk size must be greater than zero.");
+    }
+    if (lookupMaxIsbns <= 0) {
+      throw new IllegalArgumentException("Lookup size limit must be greater than zero.");
+    }
+    this.bookRepository = bookRepository;
+    this.batchChunkSize = batchChunkSize;
+    this.lookupMaxIsbns = lookupMaxIsbns;
+  }
+
+  /**
+   * Adds a book, or increments the quantity of the existing book with the same ISBN.
+   *
+   * @param book the book to add
+   * @return the saved book
+   * @throws IllegalArgumentException (as an error signal) if the book is invalid
+   */
+  @Transactional
+  public Mono<BookView> addBook(BookRequest book) {
+    return Mono.fromRunnable(book::validate)
+            .then(incrementOrInsert(book))
+            .then(Mono.defer(() -> bookRepository.findViewByIsbn(book.isbn())));
+  }
+
+  /**
+   * Adds many books in one transaction. Invalid items are rejected without failing the batch,
+   * and items sharing an ISBN are merged by summing their quantities; an item whose quantity
+   * would overflow the merged sum is rejected.
+   *
+   * @param books the books to add; must not be null
+   * @return one result per submitted item, in submission order
+   * @throws IllegalArgumentException (as an error signal) if the list of books is null
+   */
+  @Transactional
+  public Mono<List<BatchItemResult>> addBooks(List<BookRequest> books) {
+    if (books == null) {
+      return Mono.error(new IllegalArgumentException("Books must not be null"));
+    }
+    BatchItemResult[] results = new BatchItemResult[books.size()];
+    Map<String, BookRequest> merged = new LinkedHashMap<>();
+    Map<String, List<Integer>> positions = new LinkedHashMap<>();
+    for (int i = 0; i < books.size(); i++) {
+      BookRequest book = books.get(i);
+      if (book == null) {
+        results[i] = BatchItemResult.rejected(i, null, "Book must not be null");
+        continue;
+      }
+      try {
+        book.validate();
+      } catch (IllegalArgumentException e) {
+        results[i] = BatchItemResult.rejected(i, book.isbn(), e.getMessage());
+        continue;
+      }
+      BookRequest first = merged.get(book.isbn());
+      if (first != null) {
+        int quantity;
+        try {
+          quantity = Math.addExact(first.quantity(), book.quantity());
+        } catch (ArithmeticException e) {
+          results[i] = BatchItemResult.rejected(i, book.isbn(), "Merged quantity exceeds the maximum quantity.");
+          continue;
+        }
+        merged.put(book.isbn(), new BookRequest(first.isbn(), first.title(), first.author(),
+                first.genre(), first.price(), quantity));
+      } else {
+        merged.put(book.isbn(), book);
+      }
+      positions.computeIfAbsent(book.isbn(), key -> new ArrayList<>()).add(i);
+    }
+
+    return Flux.fromIterable(merged.values())
+            .concatMap(book -> bookRepository.incrementQuantity(book.isbn(), book.quantity())
+                    .flatMap(updated -> updated == 1
+                            ? bookRepository.findViewByIsbn(book.isbn()).doOnNext(saved -> fill(results,
+                                    positions.get(book.isbn()), book.isbn(), BatchItemResult.Status.INCREMENTED,
+                                    saved.quantity())).then()
+                            : bookRepository.insert(book).doOnNext(inserted -> fill(results,
+                                    positions.get(book.isbn()), book.isbn(), BatchItemResult.Status.CREATED,
+                                    book.quantity())).then()))
+            .then(Mono.fromSupplier(() -> Arrays.asList(results)));
+  }
+
+  /**
+   * Removes an amount of a book's stock, deleting the book when its stock reaches zero.
+   *
+   * @param isbn           the ISBN of the book; must not be null or blank
+   * @param amountToRemove the amount to remove; must be greater than zero
+   * @return the remaining quantity if the book still exists, or empty if it was removed
+   * @throws IllegalArgumentException (as an error signal) if an argument is invalid or not enough stock is available
+   * @throws BookNotFoundException    (as an error signal) if no book with the ISBN is found
+   */
+  @Transactional
+  public Mono<OptionalInt> removeBook(String isbn, int amountToRemove) {
+    if (isbn == null || isbn.isBlank()) {
+      return Mono.error(new IllegalArgumentException("ISBN must not be null or blank"));
+    }
+    if (amountToRemove <= 0) {
+      return Mono.error(new IllegalArgumentException("Amount to remove must be greater than zero."));
+    }
+    return bookRepository.decrementQuantityIfAvailable(isbn, amountToRemove).flatMap(updated -> updated == 1
+            ? bookRepository.findViewByIsbn(isbn).map(after -> OptionalInt.of(after.quantity()))
+            : bookRepository.findViewByIsbn(isbn)
+                    .switchIfEmpty(Mono.error(() -> new BookNotFoundException(
+                            "Book with ISBN " + isbn + " not found.")))
+                    .flatMap(current -> bookRepository.deleteByIsbnIfQuantityEquals(isbn, amountToRemove))
+                    .flatMap(deleted -> deleted == 1
+                            ? Mono.just(OptionalInt.empty())
+                            : Mono.<OptionalInt>error(new IllegalArgumentException("Not enough stock available."))));
+  }
+
+  /**
+   * Updates the title, author, genre and price of an existing book.
+   * Details that are absent from the request keep their current values, and the merged book is
+   * validated as a whole, as in the servlet application.
+   *
+   * @param updatedBook the new details; must not be null
+   * @param isbn        the ISBN of the book; must not be null or blank
+   * @return the updated book
+   * @throws IllegalArgumentException (as an error signal) if an argument is null or blank,
+   *                                  or if the merged book is invalid
+   * @throws BookNotFoundException    (as an error signal) if no book with the ISBN is found
+   * @throws BookConflictException    (as an error signal) if the book was changed in the meantime
+   */
+  @Transactional
+  public Mono<BookView> updateBook(BookRequest updatedBook, String isbn) {
+    if (isbn == null || isbn.isBlank()) {
+      return Mono.error(new IllegalArgumentException("ISBN must not be null or blank"));
+    }
+    if (updatedBook == null) {
+      return Mono.error(new IllegalArgumentException("Updated book must not be null"));
+    }
+    return bookRepository.findViewByIsbn(isbn)
+            .switchIfEmpty(Mono.error(() -> new BookNotFoundException("Book not found: " + isbn)))
+            .flatMap(current -> {
+              BookRequest merged = updatedBook.mergeInto(current);
+              merged.validate();
+              return bookRepository.updateDetails(merged, current.version());
+            })
+            .flatMap(updated -> updated == 1
+                    ? bookRepository.findViewByIsbn(isbn)
+                    : Mono.<BookView>error(new BookConflictException("Book was modified concurrently: " + isbn)));
+  }
+
+  /**
+   * Retrieves a book by its ISBN.
+   *
+   * @param isbn the ISBN to look up; must not be null or blank
+   * @return the book
+   * @throws IllegalArgumentException (as an error signal) if the ISBN is null or blank
+   * @throws BookNotFoundException    (as an error signal) if no book is found
+   */
+  @Transactional(readOnly = true)
+  public Mono<BookView> getBookByIsbn(String isbn) {
+    if (isbn == null || isbn.isBlank()) {
+      return Mono.error(new IllegalArgumentException("ISBN must not be null or blank"));
+    }
+    return bookRepository.findViewByIsbn(isbn)
+            .switchIfEmpty(Mono.error(() -> new BookNotFoundException("Book with ISBN " + isbn + " not found.")));
+  }
+
+  /**
+   * Retrieves many books by ISBN at once, with one {@code IN} query per chunk of ISBNs.
+   * Repeated ISBNs are looked up and returned once.
+   *
+   * @param isbns the ISBNs to look up; must not be null, and must contain at most the configured
+   *              number of ISBNs, none of them null or blank
+   * @return the books found and the ISBNs without a book, both in request order
+   * @throws IllegalArgumentException (as an error signal) if the list is null or too long,
+   *                                  or if an ISBN is null or blank
+   */
+  @Transactional(readOnly = true)
+  public Mono<BookLookupResult> getBooksByIsbns(List<String> isbns) {
+    if (isbns == null) {
+      return Mono.error(new IllegalArgumentException("ISBNs must not be null"));
+    }
+    if (isbns.size() > lookupMaxIsbns) {
+      return Mono.error(new IllegalArgumentException(
+              "At most " + lookupMaxIsbns + " ISBNs can be looked up at once"));
+    }
+    Set<String> requested = new LinkedHashSet<>();
+    for (String isbn : isbns) {
+      if (isbn == null || isbn.isBlank()) {
+        return Mono.error(new IllegalArgumentException("ISBN must not be null or blank"));
+      }
+      requested.add(isbn);
+    }
+    List<String> ordered = new ArrayList<>(requested);
+    List<List<String>> chunks = new ArrayList<>();
+    for (int from = 0; from < ordered.size(); from += batchChunkSize) {
+      chunks.add(ordered.subList(from, Math.min(from + batchChunkSize, ordered.size())));
+    }
+    return Flux.fromIterable(chunks)
+            .concatMap(bookRepository::findViewsByIsbnIn)
+            .collectMap(BookView::isbn)
+            .map(found -> {
+              List<BookView> books = new ArrayList<>(found.size());
+              List<String> missing = new ArrayList<>();
+              for (String isbn : ordered) {
+                BookView book = found.get(isbn);
+                if (book == null) {
+                  missing.add(isbn);
+                } else {
+                  books.add(book);
+                }
+              }
+              return new BookLookupResult(books, missing);
+            });
+  }
+
+  /**
+   * Retrieves a page of books filtered by genre, title or author.
+   * Books filtered by genre or author are ordered by title and ISBN, books filtered by title by ISBN.
+   *
+   * @param filterType  the attribute to filter by: "genre", "title" or "author"; must not be null or blank
+   * @param filterValue the value to match; must not be null or blank
+   * @param page        the page number to retrieve; must be >= 0
+   * @param size        the number of items per page; must be > 0
+   * @return a page of matching books
+   * @throws IllegalArgumentException (as an error signal) if an argument is invalid
+   */
+  @Transactional(readOnly = true)
+  public Mono<Page<BookView>> getBooksByAttribute(String filterType, String filterValue, int page, int size) {
+    if (filterType == null || filterType.isBlank()) {
+      return Mono.error(new IllegalArgumentException("Filter type must not be null or blank"));
+    }
+    if (filterValue == null || filterValue.isBlank()) {
+      return Mono.error(new IllegalArgumentException("Filter value must not be null or blank"));
+    }
+    if (page < 0 || size <= 0) {
+      return Mono.error(new IllegalArgumentException("Page must be >= 0 and size must be > 0"));
+    }
+    switch (filterType.toLowerCase()) {
+      case "genre":
+        Genre genre;
+        try {
+          genre = Genre.valueOf(filterValue.toUpperCase());
+        } catch (IllegalArgumentException e) {
+          return Mono.error(new IllegalArgumentException("Invalid genre: " + filterValue));
+        }
+        return findPage(new BookSearchCriteria(genre, null, null, null, null), "title, isbn", page, size);
+      case "title":
+        return findPage(new BookSearchCriteria(null, null, filterValue, null, null), "isbn", page, size);
+      case "author":
+        return findPage(new BookSearchCriteria(null, filterValue, null, null, null), "title, isbn", page, size);
+      default:
+        return Mono.error(new IllegalArgumentException("Invalid filter type: " + filterType));
+    }
+  }
+
+  /**
+   * Retrieves a page of books within a price range, ordered by price and ISBN.
+   *
+   * @param minPrice the minimum price (inclusive); must not be negative
+   * @param maxPrice the maximum price (inclusive); must not be negative or less than minPrice
+   * @param page     the page number to retrieve; must be >= 0
+   * @param size     the number of items per page; must be > 0
+   * @return a page of books in the price range
+   * @throws IllegalArgumentException (as an error signal) if an argument is invalid
+   */
+  @Transactional(readOnly = true)
+  public Mono<Page<BookView>> getBooksByPrice(double minPrice, double maxPrice, int page, int size) {
+    if (minPrice < 0 || maxPrice < 0) {
+      return Mono.error(new IllegalArgumentException("Prices must not be negative"));
+    }
+    if (minPrice > maxPrice) {
+      return Mono.error(new IllegalArgumentException("minPrice cannot be greater than maxPrice"));
+    }
+    if (page < 0 || size <= 0) {
+      return Mono.error(new IllegalArgumentException("Page must be >= 0 and size must be > 0"));
+    }
+    BookSearchCriteria criteria = new BookSearchCriteria(null, null, null,
+            BigDecimal.valueOf(minPrice), BigDecimal.valueOf(maxPrice));
+    return findPage(criteria, "price, isbn", page, size);
+  }
+
+  /**
+   * Retrieves a page of books matching any combination of genre, author, title and price range.
+   *
+   * @param criteria the criteria to match; must not be null, absent criteria match all books
+   * @param sort     the sort order as "property" or "property,asc|desc"; null or blank sorts by ISBN
+   * @param page     the page number to retrieve; must be >= 0
+   * @param size     the number of items per page; must be > 0
+   * @return a page of books matching all given criteria
+   * @throws IllegalArgumentException (as an error signal) if the criteria, sort order or page are invalid
+   */
+  @Transactional(readOnly = true)
+  public Mono<Page<BookView>> searchBooksByCriteria(BookSearchCriteria criteria, String sort, int page, int size) {
+    return Mono.defer(() -> {
+      String orderBy = validateSearch(criteria, sort);
+      if (page < 0 || size <= 0) {
+        throw new IllegalArgumentException("Page must be >= 0 and size must be > 0");
+      }
+      return findPage(criteria, orderBy, page, size);
+    });
+  }
+
+  /**
+   * Streams all books matching any combination of genre, author, title and price range.
+   * Rows are fetched from the database as the subscriber requests them, so a slow client
+   * never makes the server buffer the whole result.
+   *
+   * @param criteria the criteria to match; must not be null, absent criteria match all books
+   * @param sort     the sort order as "property" or "property,asc|desc"; null or blank sorts by ISBN
+   * @return the matching books
+   * @throws IllegalArgumentException (as an error signal) if the criteria or sort order are invalid
+   */
+  @Transactional(readOnly = true)
+  public Flux<BookView> streamBooksByCriteria(BookSearchCriteria criteria, String sort) {
+    return Flux.defer(() -> bookRepository.findViews(criteria, validateSearch(criteria, sort), 0, -1));
+  }
+
+  private Mono<Page<BookView>> findPage(BookSearchCriteria criteria, String orderBy, int page, int size) {
+    PageRequest pageable = PageRequest.of(page, size);
+    return bookRepository.findViews(criteria, orderBy, pageable.getOffset(), size)
+            .collectList()
+            .zipWith(bookRepository.count(criteria))
+            .<Page<BookView>>map(result -> new PageImpl<>(result.getT1(), pageable, result.getT2()));
+  }
+
+  /**
+   * Checks search criteria with the rules of the servlet application and returns the SQL order
+   * of the sort, with the ISBN as a tiebreaker.
+   */
+  private static String validateSearch(BookSearchCriteria criteria, String sort) {
+    if (criteria == null) {
+      throw new IllegalArgumentException("Criteria must not be null");
+    }
+    if (criteria.author() != null && criteria.author().isBlank()) {
+      throw new IllegalArgumentException("Author must not be blank");
+    }
+    if (criteria.title() != null && criteria.title().isBlank()) {
+      throw new IllegalArgumentException("Title must not be blank");
+    }
+    BigDecimal minPrice = criteria.minPrice();
+    BigDecimal maxPrice = criteria.maxPrice();
+    if ((minPrice != null && minPrice.signum() < 0) || (maxPrice != null && maxPrice.signum() < 0)) {
+      throw new IllegalArgumentException("Prices must not be negative");
+    }
+    if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+      throw new IllegalArgumentException("minPrice cannot be greater than maxPrice");
+    }
+    if (sort == null || sort.isBlank()) {
+      return "isbn";
+    }
+    String[] parts = sort.split(",");
+    String column = SORTABLE_COLUMNS.get(parts[0].trim());
+    if (column == null || parts.length > 2) {
+      throw new IllegalArgumentException("Invalid sort: " + sort);
+    }
+    String direction = "ASC";
+    if (parts.length == 2) {
+      direction = parts[1].trim().toUpperCase();
+      if (!direction.equals("ASC") && !direction.equals("DESC")) {
+        throw new IllegalArgumentException("Invalid sort: " + sort);
+      }
+    }
+    return column.equals("isbn") ? "isbn " + direction : column + " " + direction + ", isbn " + direction;
+  }
+
+  private static void fill(BatchItemResult[] results, List<Integer> positions, String isbn,
+                           BatchItemResult.Status status, int quantity) {
+    for (int index : positions) {
+      results[index] = BatchItemResult.accepted(index, isbn, status, quantity);
+    }
+  }
+
+  private Mono<Long> incrementOrInsert(BookRequest book) {
+    return Mono.defer(() -> bookRepository.incrementQuantity(book.isbn(), book.quantity()))
+            .flatMap(updated -> updated == 1 ? Mono.just(updated) : bookRepository.insert(book));
+  }
+}
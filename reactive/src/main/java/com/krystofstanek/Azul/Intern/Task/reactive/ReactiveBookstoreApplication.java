@@ -0,0 +1,22 @@
+package com.krystofstanek.Azul.Intern.Task.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Entry point of the reactive variant of the bookstore.
+ * It serves the core {@code /books} endpoints of the servlet application on WebFlux and R2DBC,
+ * against the same database schema, so that both can be load tested side by side.
+ */
+@SpringBootApplication
+public class ReactiveBookstoreApplication {
+
+	/**
+	 * Main method that launches the reactive application.
+	 *
+	 * @param args command-line arguments
+	 */
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveBookstoreApplication.class, args);
+	}
+}
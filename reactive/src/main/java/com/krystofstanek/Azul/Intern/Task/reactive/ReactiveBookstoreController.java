@@ -0,0 +1,257 @@
+package com.krystofstanek.Azul.Intern.Task.reactive;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BatchItemResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookLookupResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookSearchCriteria;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of the servlet {@code BookstoreController}, serving the same paths,
+ * parameters and JSON. Pages are serialized like the servlet application's, as content plus
+ * page metadata. Searches can also be streamed as newline-delimited JSON, with back-pressure
+ * from the client all the way to the database.
+ */
+@RestController
+@RequestMapping("/books")
+public class ReactiveBookstoreController {
+
+  private final ReactiveBookService bookService;
+
+  /**
+   * Creates a new {@code ReactiveBookstoreController}.
+   *
+   * @param bookService the service handling book operations
+   */
+  public ReactiveBookstoreController(ReactiveBookService bookService) {
+    this.bookService = bookService;
+  }
+
+  /**
+   * Creates a new book, or adds to the stock of an existing one (accessible only to users with the ADMIN role).
+   *
+   * @param newBook the details of the book to be created
+   * @return the created book
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @PostMapping
+  public Mono<ResponseEntity<BookView>> addBook(@RequestBody BookRequest newBook) {
+    return bookService.addBook(newBook).map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved));
+  }
+
+  /**
+   * Adds many books at once (accessible only to users with the ADMIN role).
+   *
+   * @param newBooks the books to be added
+   * @return one result per submitted book
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @PostMapping("/batch")
+  public Mono<List<BatchItemResult>> addBooks(@RequestBody List<BookRequest> newBooks) {
+    return bookService.addBooks(newBooks);
+  }
+
+  /**
+   * Removes a quantity of a book by ISBN (accessible only to users with the ADMIN role).
+   *
+   * @param isbn     the ISBN of the book to remove
+   * @param quantity the quantity to remove
+   * @return the remaining quantity, or no content if the book was removed
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @DeleteMapping("/{isbn}")
+  public Mono<ResponseEntity<Map<String, Integer>>> removeBook(@PathVariable String isbn,
+                                                              @RequestParam int quantity) {
+    return bookService.removeBook(isbn, quantity).map(remaining -> remaining.isEmpty()
+            ? ResponseEntity.noContent().<Map<String, Integer>>build()
+            : ResponseEntity.ok(Map.of("remainingQuantity", remaining.getAsInt())));
+  }
+
+  /**
+   * Updates an existing book's details (accessible only to users with the ADMIN role).
+   *
+   * @param isbn        the ISBN of the book to update
+   * @param updatedBook the updated book details
+   * @return the updated book
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @PatchMapping("/{isbn}")
+  public Mono<BookView> updateBook(@PathVariable String isbn, @RequestBody BookRequest updatedBook) {
+    return bookService.updateBook(updatedBook, isbn);
+  }
+
+  /**
+   * Retrieves a book by its ISBN.
+   *
+   * @param isbn the ISBN of the book to retrieve
+   * @return the book
+   */
+  @GetMapping("/{isbn}")
+  public Mono<BookView> getBookByIsbn(@PathVariable String isbn) {
+    return bookService.getBookByIsbn(isbn);
+  }
+
+  /**
+   * Retrieves many books by ISBN in one request, e.g. {@code GET /books?isbn=1&isbn=2}.
+   *
+   * @param isbn the ISBNs to look up
+   * @return the books found and the missing ISBNs, in request order
+   */
+  @GetMapping(params = "isbn")
+  public Mono<BookLookupResult> getBooksByIsbns(@RequestParam List<String> isbn) {
+    return bookService.getBooksByIsbns(isbn);
+  }
+
+  /**
+   * Retrieves many books by ISBN in one request, for lists too long for a query string.
+   *
+   * @param isbns the ISBNs to look up, as a JSON array
+   * @return the books found and the missing ISBNs, in request order
+   */
+  @PostMapping("/lookup")
+  public Mono<BookLookupResult> lookupBooks(@RequestBody List<String> isbns) {
+    return bookService.getBooksByIsbns(isbns);
+  }
+
+  /**
+   * Searches books matching any combination of genre, author, title and price range.
+   *
+   * @param genre    the genre to match, if any
+   * @param author   the author to match exactly, if any
+   * @param title    the title to match exactly, if any
+   * @param minPrice the minimum price (inclusive), if any
+   * @param maxPrice the maximum price (inclusive), if any
+   * @param sort     the sort order as "property" or "property,asc|desc"; defaults to ISBN order
+   * @param page     the page number to retrieve
+   * @param size     the number of items per page
+   * @return a page of matching books
+   */
+  @GetMapping("/search")
+  public Mono<PagedModel<BookView>> searchBooksByCriteria(
+          @RequestParam(required = false) Genre genre,
+          @RequestParam(required = false) String author,
+          @RequestParam(required = false) String title,
+          @RequestParam(required = false) Double minPrice,
+          @RequestParam(required = false) Double maxPrice,
+          @RequestParam(required = false) String sort,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam int size) {
+    return bookService.searchBooksByCriteria(criteria(genre, author, title, minPrice, maxPrice), sort, page, size)
+            .map(PagedModel::new);
+  }
+
+  /**
+   * Streams all books matching any combination of genre, author, title and price range
+   * as newline-delimited JSON, for clients sending {@code Accept: application/x-ndjson}.
+   * Books are read from the database only as fast as the client consumes them.
+   *
+   * @param genre    the genre to match, if any
+   * @param author   the author to match exactly, if any
+   * @param title    the title to match exactly, if any
+   * @param minPrice the minimum price (inclusive), if any
+   * @param maxPrice the maximum price (inclusive), if any
+   * @param sort     the sort order as "property" or "property,asc|desc"; defaults to ISBN order
+   * @return the matching books
+   */
+  @GetMapping(path = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<BookView> streamBooksByCriteria(
+          @RequestParam(required = false) Genre genre,
+          @RequestParam(required = false) String author,
+          @RequestParam(required = false) String title,
+          @RequestParam(required = false) Double minPrice,
+          @RequestParam(required = false) Double maxPrice,
+          @RequestParam(required = false) String sort) {
+    return bookService.streamBooksByCriteria(criteria(genre, author, title, minPrice, maxPrice), sort);
+  }
+
+  /**
+   * Streams the catalog, or the books of one genre, ordered by ISBN as newline-delimited JSON.
+   *
+   * @param genre the genre to export; all books if omitted
+   * @return the books
+   */
+  @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<BookView> exportBooks(@RequestParam(required = false) Genre genre) {
+    return bookService.streamBooksByCriteria(new BookSearchCriteria(genre, null, null, null, null), null);
+  }
+
+  /**
+   * Retrieves a page of books filtered by genre, ordered by title and ISBN.
+   *
+   * @param genre the genre to filter by
+   * @param page  the page number to retrieve
+   * @param size  the number of items per page
+   * @return a page of books of the genre
+   */
+  @GetMapping("/genre")
+  public Mono<PagedModel<BookView>> getBooksByGenre(@RequestParam Genre genre,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam int size) {
+    return bookService.getBooksByAttribute("genre", genre.name(), page, size).map(PagedModel::new);
+  }
+
+  /**
+   * Retrieves a page of books filtered by author, ordered by title and ISBN.
+   *
+   * @param author the author name to filter by
+   * @param page   the page number to retrieve
+   * @param size   the number of items per page
+   * @return a page of books by the author
+   */
+  @GetMapping("/author")
+  public Mono<PagedModel<BookView>> getBooksByAuthor(@RequestParam String author,
+                                                     @RequestParam(defaultValue = "0") int page,
+                                                     @RequestParam int size) {
+    return bookService.getBooksByAttribute("author", author, page, size).map(PagedModel::new);
+  }
+
+  /**
+   * Retrieves a page of books filtered by title, ordered by ISBN.
+   *
+   * @param title the title to filter by
+   * @param page  the page number to retrieve
+   * @param size  the number of items per page
+   * @return a page of books with the title
+   */
+  @GetMapping("/title")
+  public Mono<PagedModel<BookView>> getBooksByTitle(@RequestParam String title,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam int size) {
+    return bookService.getBooksByAttribute("title", title, page, size).map(PagedModel::new);
+  }
+
+  /**
+   * Retrieves a page of books within the specified price range, ordered by price and ISBN.
+   *
+   * @param minPrice the minimum price (inclusive)
+   * @param maxPrice the maximum price (inclusive)
+   * @param page     the page number to retrieve
+   * @param size     the number of items per page
+   * @return a page of books in the range
+   */
+  @GetMapping("/price")
+  public Mono<PagedModel<BookView>> getBooksByPrice(@RequestParam double minPrice,
+                                                    @RequestParam double maxPrice,
+                                                    @RequestParam(defaultValue = "0") int page,
+                                                    @RequestParam int size) {
+    return bookService.getBooksByPrice(minPrice, maxPrice, page, size).map(PagedModel::new);
+  }
+
+  private static BookSearchCriteria criteria(Genre genre, String author, String title,
+                                             Double minPrice, Double maxPrice) {
+    return new BookSearchCriteria(genre, author, title,
+            minPrice == null ? null : BigDecimal.valueOf(minPrice),
+            maxPrice == null ? null : BigDecimal.valueOf(maxPrice));
+  }
+}
@@ -0,0 +1,59 @@
+package com.krystofstanek.Azul.Intern.Task.reactive;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+/**
+ * Security configuration of the reactive application, with the same rules and user as the servlet one.
+ * Passwords are verified on a bounded elastic scheduler, off the event loop.
+ */
+@Configuration
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public class ReactiveSecurityConfig {
+
+  /**
+   * Configures an in-memory user details service with a default admin user.
+   *
+   * @return the user details service
+   */
+  @Bean
+  public MapReactiveUserDetailsService userDetailsService() {
+    UserDetails admin = User.withDefaultPasswordEncoder()
+            .username("admin")
+            .password("password")
+            .roles("ADMIN")
+            .build();
+    return new MapReactiveUserDetailsService(admin);
+  }
+
+  /**
+   * Configures the security filter chain: CSRF protection is disabled, GET requests and
+   * multi-gets through "POST /books/lookup" need no authentication, and all other requests
+   * require HTTP Basic authentication.
+   *
+   * @param http the {@link ServerHttpSecurity} to configure
+   * @return the configured {@link SecurityWebFilterChain}
+   */
+  @Bean
+  public SecurityWebFilterChain filterChain(ServerHttpSecurity http) {
+    return http
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .authorizeExchange(exchanges -> exchanges
+                    .pathMatchers(HttpMethod.GET).permitAll()
+                    .pathMatchers(HttpMethod.POST, "/books/lookup").permitAll()
+                    .anyExchange().authenticated()
+            )
+            .httpBasic(Customizer.withDefaults())
+            .build();
+  }
+}
@@ -0,0 +1,195 @@
+package com.krystofstanek.Azul.Intern.Task.reactive;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ReactiveBookstoreTest {
+
+  @Autowired
+  private WebTestClient webTestClient;
+
+  @Autowired
+  private DatabaseClient databaseClient;
+
+  @Autowired
+  private ReactiveBookService bookService;
+
+  private static BookRequest book(String isbn, Genre genre, String price, int quantity) {
+    return new BookRequest(isbn, "Title " + isbn, "Author", genre, new BigDecimal(price), quantity);
+  }
+
+  private WebTestClient admin() {
+    return webTestClient.mutate()
+            .defaultHeaders(headers -> headers.setBasicAuth("admin", "password"))
+            .build();
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    databaseClient.sql("DELETE FROM abstract_book").fetch().rowsUpdated().block();
+  }
+
+  @Test
+  public void testAddIncrementsAndRemoveDeletesAtZero() {
+    admin().post().uri("/books").bodyValue(book("R1", Genre.FICTION, "10.00", 2))
+            .exchange().expectStatus().isCreated().expectBody().jsonPath("$.quantity").isEqualTo(2);
+    admin().post().uri("/books").bodyValue(book("R1", Genre.FICTION, "10.00", 3))
+            .exchange().expectStatus().isCreated().expectBody().jsonPath("$.quantity").isEqualTo(5);
+
+    webTestClient.get().uri("/books/R1").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("Title R1")
+            .jsonPath("$.version").isEqualTo(1);
+
+    admin().delete().uri("/books/R1?quantity=4").exchange()
+            .expectStatus().isOk().expectBody().jsonPath("$.remainingQuantity").isEqualTo(1);
+    admin().delete().uri("/books/R1?quantity=1").exchange().expectStatus().isNoContent();
+    webTestClient.get().uri("/books/R1").exchange().expectStatus().isNotFound();
+  }
+
+  @Test
+  public void testPartialUpdateKeepsAbsentDetails() {
+    admin().post().uri("/books").bodyValue(book("R9", Genre.FICTION, "10.00", 2))
+            .exchange().expectStatus().isCreated();
+
+    admin().patch().uri("/books/R9")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"price\": 12.50}")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("Title R9")
+            .jsonPath("$.author").isEqualTo("Author")
+            .jsonPath("$.genre").isEqualTo("FICTION")
+            .jsonPath("$.price").isEqualTo(12.5)
+            .jsonPath("$.quantity").isEqualTo(2)
+            .jsonPath("$.version").isEqualTo(1);
+
+    admin().patch().uri("/books/R9")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"title\": \"New Title\", \"genre\": \"HISTORY\"}")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.title").isEqualTo("New Title")
+            .jsonPath("$.genre").isEqualTo("HISTORY")
+            .jsonPath("$.price").isEqualTo(12.5);
+
+    admin().patch().uri("/books/MISSING")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"title\": \"New Title\"}")
+            .exchange()
+            .expectStatus().isNotFound();
+  }
+
+  @Test
+  public void testPartialUpdateValidatesTheMergedBook() {
+    admin().post().uri("/books").bodyValue(book("R10", Genre.FICTION, "10.00", 2))
+            .exchange().expectStatus().isCreated();
+
+    Exception exception = assertThrows(IllegalArgumentException.class, () -> bookService.updateBook(
+            new BookRequest(null, null, null, null, new BigDecimal("1.999"), 0), "R10").block());
+    assertEquals("Price cannot have more than two decimal places.", exception.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> bookService.updateBook(
+            new BookRequest(null, " ", null, null, null, 0), "R10").block());
+
+    BookView unchanged = bookService.getBookByIsbn("R10").block();
+    assertEquals("Title R10", unchanged.title());
+    assertEquals(0, new BigDecimal("10.00").compareTo(unchanged.price()));
+    assertEquals(0, unchanged.version());
+  }
+
+  @Test
+  public void testWritesRequireAuthentication() {
+    webTestClient.post().uri("/books").bodyValue(book("R2", Genre.FICTION, "10.00", 1))
+            .exchange().expectStatus().isUnauthorized();
+  }
+
+  @Test
+  public void testPagesAndMultiGet() {
+    admin().post().uri("/books/batch").bodyValue(List.of(
+                    book("R3", Genre.MYSTERY, "5.00", 1),
+                    book("R4", Genre.MYSTERY, "15.00", 1),
+                    book("R5", Genre.HORROR, "25.00", 1),
+                    book("R3", Genre.MYSTERY, "5.00", 2)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo("CREATED")
+            .jsonPath("$[3].quantity").isEqualTo(3);
+
+    webTestClient.get().uri("/books/genre?genre=MYSTERY&size=1").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content[0].isbn").isEqualTo("R3")
+            .jsonPath("$.page.totalElements").isEqualTo(2);
+    webTestClient.get().uri("/books/search?minPrice=10&sort=price,desc&size=10").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.content[0].isbn").isEqualTo("R5")
+            .jsonPath("$.content[1].isbn").isEqualTo("R4");
+
+    webTestClient.get().uri("/books?isbn=R5&isbn=MISSING&isbn=R3").exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.books[0].isbn").isEqualTo("R5")
+            .jsonPath("$.books[1].isbn").isEqualTo("R3")
+            .jsonPath("$.missing[0]").isEqualTo("MISSING");
+  }
+
+  @Test
+  public void testBatchRejectsOverflowingMerge() {
+    admin().post().uri("/books/batch").bodyValue(List.of(
+                    book("R6", Genre.FICTION, "5.00", Integer.MAX_VALUE - 1),
+                    book("R6", Genre.FICTION, "5.00", 2),
+                    book("R6", Genre.FICTION, "5.00", 1)))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].status").isEqualTo("CREATED")
+            .jsonPath("$[0].quantity").isEqualTo(Integer.MAX_VALUE)
+            .jsonPath("$[1].status").isEqualTo("REJECTED")
+            .jsonPath("$[1].message").isEqualTo("Merged quantity exceeds the maximum quantity.")
+            .jsonPath("$[2].status").isEqualTo("CREATED");
+
+    webTestClient.get().uri("/books/R6").exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$.quantity").isEqualTo(Integer.MAX_VALUE);
+  }
+
+  @Test
+  public void testSearchStreamsNdjson() {
+    admin().post().uri("/books/batch").bodyValue(List.of(
+                    book("R6", Genre.FANTASY, "5.00", 1),
+                    book("R7", Genre.FANTASY, "6.00", 1),
+                    book("R8", Genre.ROMANCE, "7.00", 1)))
+            .exchange()
+            .expectStatus().isOk();
+
+    List<BookView> books = webTestClient.get().uri("/books/search?genre=FANTASY")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .returnResult(BookView.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+    assertNotNull(books);
+    assertEquals(List.of("R6", "R7"), books.stream().map(BookView::isbn).toList());
+  }
+}
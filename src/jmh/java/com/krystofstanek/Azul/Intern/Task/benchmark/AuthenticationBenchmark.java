@@ -0,0 +1,83 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Measures the throughput of authenticated admin writes over HTTP Basic, with and without the
+ * credential verification cache, i.e. with the password hash running once per minute or on
+ * every request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+  private static final String BOOK = "{\"isbn\":\"9780000000001\",\"title\":\"Title\",\"author\":\"Author\","
+          + "\"genre\":\"FICTION\",\"price\":9.99,\"quantity\":1}";
+
+  @Param({"true", "false"})
+  public boolean credentialCache;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient client;
+  private HttpRequest addBook;
+
+  /**
+   * Starts the application with or without the credential cache.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start("bookstore.security.credential-cache.enabled=" + credentialCache);
+    String port = context.getEnvironment().getProperty("local.server.port");
+    String credentials = Base64.getEncoder().encodeToString("admin:password".getBytes(StandardCharsets.UTF_8));
+    client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    addBook = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/books"))
+            .header("Authorization", "Basic " + credentials)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(BOOK))
+            .build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  /**
+   * Adds one unit of stock to an existing book as the admin user.
+   */
+  @Benchmark
+  public int addBook() throws IOException, InterruptedException {
+    int status = client.send(addBook, HttpResponse.BodyHandlers.discarding()).statusCode();
+    if (status != 201) {
+      throw new IllegalStateException("Unexpected status " + status);
+    }
+    return status;
+  }
+}
@@ -0,0 +1,83 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.krystofstanek.Azul.Intern.Task.AzulInternTaskApplication;
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the application against a private in-memory H2 database for benchmarks,
+ * and seeds it with a synthetic catalog.
+ */
+public final class BenchmarkApplication {
+
+  private BenchmarkApplication() {
+  }
+
+  /**
+   * Starts the application on a random port with an in-memory H2 database.
+   *
+   * @param properties additional properties in {@code key=value} form, overriding the defaults
+   * @return the running application context
+   */
+  public static ConfigurableApplicationContext start(String... properties) {
+    List<String> all = new ArrayList<>(List.of(
+            "spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+            "spring.datasource.driver-class-name=org.h2.Driver",
+            "spring.datasource.username=sa",
+            "spring.datasource.password=",
+            "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+            "spring.jpa.show-sql=false",
+            "server.port=0",
+            "logging.level.root=WARN"));
+    all.addAll(List.of(properties));
+    return new SpringApplicationBuilder(AzulInternTaskApplication.class)
+            .properties(all.toArray(String[]::new))
+            .run();
+  }
+
+  /**
+   * Creates a synthetic book with a deterministic ISBN and a random genre, author and price.
+   *
+   * @param index  the sequence number of the book
+   * @param random the source of randomness
+   * @return the book
+   */
+  public static AbstractBook book(int index, Random random) {
+    Genre[] genres = Genre.values();
+    return new SimpleBook(
+            String.format("978%010d", index),
+            "Title " + index,
+            "Author " + random.nextInt(1000),
+            genres[random.nextInt(genres.length)],
+            BigDecimal.valueOf(random.nextInt(10_000), 2),
+            1 + random.nextInt(50));
+  }
+
+  /**
+   * Adds a synthetic catalog through the bulk ingest path.
+   *
+   * @param bookService the service to add books with
+   * @param size        the number of books to add
+   * @param seed        the random seed, so that runs are comparable
+   */
+  public static void seed(BookService bookService, int size, long seed) {
+    Random random = new Random(seed);
+    List<AbstractBook> chunk = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      chunk.add(book(i, random));
+      if (chunk.size() == 5_000 || i == size - 1) {
+        bookService.addBooks(chunk);
+        chunk = new ArrayList<>();
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.CursorPage;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+
+/**
+ * Measures {@link BookService} lookups and searches against an embedded H2 database
+ * seeded with a synthetic catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+  @Param({"true", "false"})
+  public boolean cache;
+
+  @Param({"50000"})
+  public int catalogSize;
+
+  private ConfigurableApplicationContext context;
+  private BookService bookService;
+
+  /**
+   * Starts the application with or without the ISBN cache and seeds the catalog.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start("bookstore.cache.enabled=" + cache);
+    bookService = context.getBean(BookService.class);
+    BenchmarkApplication.seed(bookService, catalogSize, 42);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private String randomIsbn() {
+    return String.format("978%010d", ThreadLocalRandom.current().nextInt(catalogSize));
+  }
+
+  private String randomGenre() {
+    Genre[] genres = Genre.values();
+    return genres[ThreadLocalRandom.current().nextInt(genres.length)].name();
+  }
+
+  @Benchmark
+  public BookView getBookByIsbn() {
+    return bookService.getBookByIsbn(randomIsbn());
+  }
+
+  @Benchmark
+  public Page<BookView> getBooksByGenre() {
+    return bookService.getBooksByAttribute("genre", randomGenre(), 0, 20);
+  }
+
+  @Benchmark
+  public Page<BookView> getBooksByGenreDeepPage() {
+    return bookService.getBooksByAttribute("genre", randomGenre(), 100, 20);
+  }
+
+  @Benchmark
+  public CursorPage<BookView> getBooksByGenreKeyset() {
+    return bookService.getBooksByAttributeAfter("genre", randomGenre(), null, 20);
+  }
+
+  @Benchmark
+  public Page<BookView> getBooksByAuthor() {
+    return bookService.getBooksByAttribute("author",
+            "Author " + ThreadLocalRandom.current().nextInt(1000), 0, 20);
+  }
+
+  @Benchmark
+  public Page<BookView> getBooksByPrice() {
+    double min = ThreadLocalRandom.current().nextInt(9_900) / 100.0;
+    return bookService.getBooksByPrice(min, min + 1, 0, 20);
+  }
+
+  @Benchmark
+  public Page<BookView> searchBooks() {
+    return bookService.searchBooks("Title " + ThreadLocalRandom.current().nextInt(catalogSize), "title", 0, 20);
+  }
+}
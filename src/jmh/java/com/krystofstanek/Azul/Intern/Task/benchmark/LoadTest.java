@@ -0,0 +1,375 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Self-contained HTTP load test for the {@code /books} endpoints.
+ * It either starts the application itself, against in-memory H2 or a local PostgreSQL
+ * database, or drives an already running instance. It seeds a catalog through
+ * {@code POST /books/batch}, runs a configurable request mix from many client threads, and reports
+ * throughput and p50/p99/p999 latency per endpoint.
+ *
+ * <p>By default every thread sends its next request as soon as the previous one completed (closed model),
+ * which measures the maximum throughput, but hides stalls: a client waiting for a slow response sends nothing,
+ * so the requests that would have queued up behind it are never measured. With {@code rate} set, requests are
+ * instead scheduled at a constant total arrival rate (open model), and latency is measured from the time a
+ * request was due to be sent rather than the time it actually was, so that the delay of requests held back by
+ * busy threads is included. The report states which model it was taken with.
+ *
+ * <p>Options, all in {@code --name=value} form:
+ * <ul>
+ *   <li>{@code base-url}: URL of a running instance, e.g. {@code http://localhost:8080}; if absent the application is started</li>
+ *   <li>{@code db}: {@code h2} (default) or {@code postgres}, for a started application</li>
+ *   <li>{@code db-url}, {@code db-user}, {@code db-password}: PostgreSQL connection for {@code db=postgres}</li>
+ *   <li>{@code catalog-size}: number of books to seed (default 10000), 0 to skip seeding</li>
+ *   <li>{@code concurrency}: number of client threads (default 64)</li>
+ *   <li>{@code rate}: requests per second across all threads for the open model; if absent the closed model is used</li>
+ *   <li>{@code warmup}, {@code duration}: seconds of warm-up and of measurement (default 10 and 30)</li>
+ *   <li>{@code mix}: weights of {@code get}, {@code search} and {@code admin} requests (default {@code get:80,search:10,admin:10})</li>
+ *   <li>{@code user}, {@code password}: admin credentials (default {@code admin}/{@code password})</li>
+ *   <li>{@code out}: optional path of a JSON report, for comparing runs</li>
+ * </ul>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec@load-test -Dload.args="--concurrency=128"}.
+ */
+public final class LoadTest {
+
+  /**
+   * The measured endpoints.
+   */
+  enum Endpoint {
+    GET_BY_ISBN,
+    SEARCH_GENRE,
+    SEARCH_PRICE,
+    ADMIN_ADD,
+    ADMIN_REMOVE
+  }
+
+  private static final Genre[] GENRES = Genre.values();
+
+  private final Map<String, String> options;
+  private final HttpClient client = HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(10))
+          .build();
+  private final String authorization;
+  private final int catalogSize;
+  private final double rate;
+  private String baseUrl;
+
+  private LoadTest(Map<String, String> options) {
+    this.options = options;
+    String credentials = option("user", "admin") + ":" + option("password", "password");
+    this.authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    this.catalogSize = Integer.parseInt(option("catalog-size", "10000"));
+    this.rate = Double.parseDouble(option("rate", "0"));
+    if (rate < 0) {
+      throw new IllegalArgumentException("Rate must not be negative");
+    }
+  }
+
+  /**
+   * Runs the load test.
+   *
+   * @param args options in {@code --name=value} form
+   * @throws Exception if the load test cannot be run
+   */
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+    new LoadTest(options).run();
+  }
+
+  private String option(String name, String defaultValue) {
+    return options.getOrDefault(name, defaultValue);
+  }
+
+  private void run() throws Exception {
+    ConfigurableApplicationContext context = null;
+    if (options.containsKey("base-url")) {
+      baseUrl = option("base-url", null);
+    } else {
+      context = startApplication();
+      baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+    try {
+      if (catalogSize > 0) {
+        seed();
+      }
+      int concurrency = Integer.parseInt(option("concurrency", "64"));
+      Map<Endpoint, Integer> weights = parseMix(option("mix", "get:80,search:10,admin:10"));
+      runPhase(concurrency, weights, Duration.ofSeconds(Long.parseLong(option("warmup", "10"))));
+      Duration duration = Duration.ofSeconds(Long.parseLong(option("duration", "30")));
+      Map<Endpoint, Recorder> results = runPhase(concurrency, weights, duration);
+      report(results, duration);
+    } finally {
+      if (context != null) {
+        context.close();
+      }
+    }
+  }
+
+  private ConfigurableApplicationContext startApplication() {
+    if (option("db", "h2").equals("postgres")) {
+      return BenchmarkApplication.start(
+              "spring.datasource.url=" + option("db-url", "jdbc:postgresql://localhost:5432/bookstore"),
+              "spring.datasource.driver-class-name=org.postgresql.Driver",
+              "spring.datasource.username=" + option("db-user", "postgres"),
+              "spring.datasource.password=" + option("db-password", ""),
+              "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect");
+    }
+    return BenchmarkApplication.start();
+  }
+
+  private void seed() throws IOException, InterruptedException {
+    Random random = new Random(42);
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < catalogSize; i++) {
+      AbstractBook book = BenchmarkApplication.book(i, random);
+      body.append(body.length() == 0 ? "[" : ",")
+              .append(String.format(Locale.ROOT,
+                      "{\"isbn\":\"%s\",\"title\":\"%s\",\"author\":\"%s\",\"genre\":\"%s\",\"price\":%s,\"quantity\":%d}",
+                      book.getIsbn(), book.getTitle(), book.getAuthor(), book.getGenre(),
+                      book.getPrice().toPlainString(), 1_000_000));
+      if ((i + 1) % 1000 == 0 || i == catalogSize - 1) {
+        body.append(']');
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/books/batch"))
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+          throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+        }
+        body.setLength(0);
+      }
+    }
+  }
+
+  private static Map<Endpoint, Integer> parseMix(String mix) {
+    Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+    for (String part : mix.split(",")) {
+      String[] entry = part.split(":");
+      int weight = Integer.parseInt(entry[1].trim());
+      switch (entry[0].trim()) {
+        case "get" -> weights.put(Endpoint.GET_BY_ISBN, weight * 2);
+        case "search" -> {
+          weights.put(Endpoint.SEARCH_GENRE, weight);
+          weights.put(Endpoint.SEARCH_PRICE, weight);
+        }
+        case "admin" -> {
+          weights.put(Endpoint.ADMIN_ADD, weight);
+          weights.put(Endpoint.ADMIN_REMOVE, weight);
+        }
+        default -> throw new IllegalArgumentException("Unknown request type in mix: " + entry[0]);
+      }
+    }
+    return weights;
+  }
+
+  private Map<Endpoint, Recorder> runPhase(int concurrency, Map<Endpoint, Integer> weights, Duration duration)
+          throws Exception {
+    Endpoint[] endpoints = weights.keySet().toArray(Endpoint[]::new);
+    int[] cumulative = new int[endpoints.length];
+    int total = 0;
+    for (int i = 0; i < endpoints.length; i++) {
+      total += weights.get(endpoints[i]);
+      cumulative[i] = total;
+    }
+    int totalWeight = total;
+    long phaseStart = System.nanoTime();
+    long deadline = phaseStart + duration.toNanos();
+    // In the open model, thread t sends requests t, t + concurrency, t + 2 * concurrency, ... of the schedule.
+    double intervalNanos = rate > 0 ? 1e9 / rate : 0;
+
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    List<Future<Map<Endpoint, Recorder>>> futures = new ArrayList<>();
+    for (int t = 0; t < concurrency; t++) {
+      int thread = t;
+      futures.add(executor.submit(() -> {
+        Map<Endpoint, Recorder> recorders = new EnumMap<>(Endpoint.class);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long sent = 0; ; sent++) {
+          long start;
+          if (rate > 0) {
+            start = phaseStart + (long) ((sent * concurrency + thread) * intervalNanos);
+            if (start >= deadline) {
+              break;
+            }
+            for (long wait = start - System.nanoTime(); wait > 0; wait = start - System.nanoTime()) {
+              LockSupport.parkNanos(wait);
+            }
+          } else {
+            start = System.nanoTime();
+            if (start >= deadline) {
+              break;
+            }
+          }
+          int pick = random.nextInt(totalWeight);
+          int index = 0;
+          while (cumulative[index] <= pick) {
+            index++;
+          }
+          Endpoint endpoint = endpoints[index];
+          boolean ok = execute(endpoint, random);
+          recorders.computeIfAbsent(endpoint, key -> new Recorder()).record(System.nanoTime() - start, ok);
+        }
+        return recorders;
+      }));
+    }
+    Map<Endpoint, Recorder> merged = new EnumMap<>(Endpoint.class);
+    for (Future<Map<Endpoint, Recorder>> future : futures) {
+      future.get().forEach((endpoint, recorder) -> merged.merge(endpoint, recorder, Recorder::merge));
+    }
+    executor.shutdown();
+    return merged;
+  }
+
+  private boolean execute(Endpoint endpoint, ThreadLocalRandom random) {
+    String isbn = String.format("978%010d", random.nextInt(Math.max(catalogSize, 1)));
+    HttpRequest.Builder request = switch (endpoint) {
+      case GET_BY_ISBN -> HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + isbn)).GET();
+      case SEARCH_GENRE -> HttpRequest.newBuilder(URI.create(baseUrl + "/books/genre?size=20&page="
+              + random.nextInt(5) + "&genre=" + GENRES[random.nextInt(GENRES.length)])).GET();
+      case SEARCH_PRICE -> {
+        double min = random.nextInt(9_900) / 100.0;
+        yield HttpRequest.newBuilder(URI.create(baseUrl + "/books/price?page=0&size=20&minPrice="
+                + min + "&maxPrice=" + (min + 1))).GET();
+      }
+      case ADMIN_ADD -> HttpRequest.newBuilder(URI.create(baseUrl + "/books"))
+              .header("Authorization", authorization)
+              .header("Content-Type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofString(String.format(Locale.ROOT,
+                      "{\"isbn\":\"%s\",\"title\":\"Title\",\"author\":\"Author\",\"genre\":\"FICTION\","
+                              + "\"price\":9.99,\"quantity\":1}", isbn)));
+      case ADMIN_REMOVE -> HttpRequest.newBuilder(URI.create(baseUrl + "/books/" + isbn + "?quantity=1"))
+              .header("Authorization", authorization)
+              .DELETE();
+    };
+    try {
+      int status = client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+      return status < 400;
+    } catch (IOException e) {
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void report(Map<Endpoint, Recorder> results, Duration duration) {
+    double seconds = duration.toMillis() / 1000.0;
+    String model = rate > 0 ? "open" : "closed";
+    StringBuilder json = new StringBuilder("{\"durationSeconds\":" + seconds + ",\"model\":\"" + model + "\"");
+    if (rate > 0) {
+      System.out.printf(Locale.ROOT, "open model at %.1f req/s, latency measured from the scheduled send time%n", rate);
+      json.append(",\"targetRate\":").append(rate);
+    } else {
+      System.out.println("closed model, latency measured from the actual send time");
+    }
+    json.append(",\"endpoints\":{");
+    System.out.printf(Locale.ROOT, "%-14s %10s %8s %10s %10s %10s %10s %10s%n",
+            "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    boolean first = true;
+    for (Map.Entry<Endpoint, Recorder> entry : results.entrySet()) {
+      Recorder recorder = entry.getValue();
+      long[] sorted = recorder.sorted();
+      double throughput = sorted.length / seconds;
+      double p50 = percentile(sorted, 0.50);
+      double p99 = percentile(sorted, 0.99);
+      double p999 = percentile(sorted, 0.999);
+      double max = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6;
+      System.out.printf(Locale.ROOT, "%-14s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+              entry.getKey(), sorted.length, recorder.errors, throughput, p50, p99, p999, max);
+      json.append(first ? "" : ",").append(String.format(Locale.ROOT,
+              "\"%s\":{\"requests\":%d,\"errors\":%d,\"throughput\":%.1f,\"p50\":%.3f,\"p99\":%.3f,\"p999\":%.3f,\"max\":%.3f}",
+              entry.getKey(), sorted.length, recorder.errors, throughput, p50, p99, p999, max));
+      first = false;
+    }
+    json.append("}}");
+    String out = options.get("out");
+    if (out != null) {
+      try {
+        Files.writeString(Path.of(out), json);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Returns the latency at the given quantile in milliseconds.
+   */
+  private static double percentile(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+    return sorted[Math.max(index, 0)] / 1e6;
+  }
+
+  /**
+   * Latencies of one endpoint recorded by one thread, in nanoseconds.
+   */
+  private static final class Recorder {
+    private long[] latencies = new long[1024];
+    private int size;
+    private long errors;
+
+    private void record(long latency, boolean ok) {
+      if (size == latencies.length) {
+        latencies = Arrays.copyOf(latencies, size * 2);
+      }
+      latencies[size++] = latency;
+      if (!ok) {
+        errors++;
+      }
+    }
+
+    private Recorder merge(Recorder other) {
+      Recorder merged = new Recorder();
+      merged.latencies = Arrays.copyOf(latencies, size + other.size);
+      System.arraycopy(other.latencies, 0, merged.latencies, size, other.size);
+      merged.size = size + other.size;
+      merged.errors = errors + other.errors;
+      return merged;
+    }
+
+    private long[] sorted() {
+      long[] sorted = Arrays.copyOf(latencies, size);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+  }
+}
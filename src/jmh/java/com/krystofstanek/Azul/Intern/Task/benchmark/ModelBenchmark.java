@@ -0,0 +1,100 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Measures the model hot paths without a Spring context: book construction and validation,
+ * quantity updates, and JSON serialization of a page of books the way the application does it
+ * with {@code PageSerializationMode.VIA_DTO}, i.e. wrapped in a {@link PagedModel}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+  @Param({"20", "100"})
+  public int pageSize;
+
+  private final BigDecimal price = new BigDecimal("19.99");
+  private ObjectMapper objectMapper;
+  private Page<AbstractBook> page;
+  private AbstractBook book;
+
+  /**
+   * Builds the mapper the way Spring Boot does and a page of synthetic books.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    Random random = new Random(42);
+    List<AbstractBook> books = new ArrayList<>();
+    for (int i = 0; i < pageSize; i++) {
+      books.add(BenchmarkApplication.book(i, random));
+    }
+    page = new PageImpl<>(books, PageRequest.of(3, pageSize), 10_000);
+  }
+
+  /**
+   * Resets the book whose quantity is updated, so that it never runs out of stock.
+   */
+  @Setup(Level.Iteration)
+  public void resetBook() {
+    book = new SimpleBook("9780000000001", "Title", "Author", Genre.FICTION, price, 1_000_000);
+  }
+
+  @Benchmark
+  public AbstractBook constructBook() {
+    return new SimpleBook("9780000000001", "Title", "Author", Genre.FICTION, price, 10);
+  }
+
+  @Benchmark
+  public void rejectInvalidBook(Blackhole blackhole) {
+    try {
+      new SimpleBook("9780000000001", "Title", " ", Genre.FICTION, price, 10);
+    } catch (IllegalArgumentException e) {
+      blackhole.consume(e);
+    }
+  }
+
+  @Benchmark
+  public int updateQuantity() {
+    book.updateQuantity(1);
+    book.updateQuantity(-1);
+    return book.getQuantity();
+  }
+
+  @Benchmark
+  public byte[] serializePageViaDto() throws JsonProcessingException {
+    return objectMapper.writeValueAsBytes(new PagedModel<>(page));
+  }
+}
@@ -0,0 +1,90 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.CursorPage;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import com.krystofstanek.Azul.Intern.Task.service.PriceIndex;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Compares {@link BookService#getBooksByPriceAfter} served by the in-memory price index
+ * against the repository keyset query.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceIndexBenchmark {
+
+  @Param({"true", "false"})
+  public boolean priceIndex;
+
+  @Param({"100000"})
+  public int catalogSize;
+
+  @Param({"1.00"})
+  public double rangeWidth;
+
+  private static final int DEEP_SLICES = 64;
+  private static final int DEEP_SLICE_DEPTH = 5;
+
+  private ConfigurableApplicationContext context;
+  private BookService bookService;
+  private final double[] deepMins = new double[DEEP_SLICES];
+  private final String[] deepCursors = new String[DEEP_SLICES];
+
+  /**
+   * Starts the application with or without the price index and seeds the catalog.
+   * The index is rebuilt after seeding, as it would be at startup, and the cursors of
+   * a few slices some way into wide ranges are collected for {@link #deepSlice()}.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start("bookstore.price-index.enabled=" + priceIndex);
+    bookService = context.getBean(BookService.class);
+    BenchmarkApplication.seed(bookService, catalogSize, 42);
+    context.getBean(PriceIndex.class).rebuild();
+    for (int i = 0; i < DEEP_SLICES; i++) {
+      deepMins[i] = ThreadLocalRandom.current().nextInt(5_000) / 100.0;
+      String cursor = null;
+      for (int depth = 0; depth < DEEP_SLICE_DEPTH; depth++) {
+        cursor = bookService.getBooksByPriceAfter(deepMins[i], deepMins[i] + 50, cursor, 20).nextCursor();
+      }
+      deepCursors[i] = cursor;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public CursorPage<BookView> firstSlice() {
+    double min = ThreadLocalRandom.current().nextInt(9_900) / 100.0;
+    return bookService.getBooksByPriceAfter(min, min + rangeWidth, null, 20);
+  }
+
+  @Benchmark
+  public CursorPage<BookView> deepSlice() {
+    int i = ThreadLocalRandom.current().nextInt(DEEP_SLICES);
+    return bookService.getBooksByPriceAfter(deepMins[i], deepMins[i] + 50, deepCursors[i], 20);
+  }
+}
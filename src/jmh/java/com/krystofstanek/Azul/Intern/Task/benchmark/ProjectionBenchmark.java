@@ -0,0 +1,110 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares reading a page of books as managed entities in a read-write transaction, as lookups
+ * did before, with reading {@link BookView}s in a read-only transaction.
+ * Run with the GC profiler to compare allocation per operation:
+ * {@code -Dbenchmark.include="ProjectionBenchmark -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+  @Param({"20", "200"})
+  public int pageSize;
+
+  private ConfigurableApplicationContext context;
+  private BookRepository bookRepository;
+  private EntityManager entityManager;
+  private TransactionTemplate readWrite;
+  private TransactionTemplate readOnly;
+
+  /**
+   * Starts the application without caches and seeds the catalog.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start("bookstore.cache.enabled=false");
+    bookRepository = context.getBean(BookRepository.class);
+    entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+    PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+    readWrite = new TransactionTemplate(transactionManager);
+    readOnly = new TransactionTemplate(transactionManager);
+    readOnly.setReadOnly(true);
+    BenchmarkApplication.seed(context.getBean(BookService.class), 20_000, 42);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  private Genre randomGenre() {
+    Genre[] genres = Genre.values();
+    return genres[ThreadLocalRandom.current().nextInt(genres.length)];
+  }
+
+  @Benchmark
+  public List<AbstractBook> managedEntities() {
+    Genre genre = randomGenre();
+    return readWrite.execute(status -> entityManager
+            .createQuery("SELECT book FROM AbstractBook book WHERE book.genre = :genre", AbstractBook.class)
+            .setParameter("genre", genre)
+            .setMaxResults(pageSize)
+            .getResultList());
+  }
+
+  @Benchmark
+  public List<BookView> readOnlyViews() {
+    Genre genre = randomGenre();
+    return readOnly.execute(status -> entityManager
+            .createQuery(BookRepository.SELECT_VIEW + "WHERE book.genre = :genre", BookView.class)
+            .setParameter("genre", genre)
+            .setMaxResults(pageSize)
+            .getResultList());
+  }
+
+  @Benchmark
+  public BookView findById() {
+    String isbn = String.format("978%010d", ThreadLocalRandom.current().nextInt(20_000));
+    return readWrite.execute(status -> BookView.of(bookRepository.findById(isbn).orElseThrow()));
+  }
+
+  @Benchmark
+  public BookView findViewByIsbn() {
+    String isbn = String.format("978%010d", ThreadLocalRandom.current().nextInt(20_000));
+    return readOnly.execute(status -> bookRepository.findViewByIsbn(isbn).orElseThrow());
+  }
+}
@@ -0,0 +1,71 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.krystofstanek.Azul.Intern.Task.service.BookSearchIndex;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link BookSearchIndex#search} at catalog scale without a Spring context, for a first
+ * page of 20 hits. Titles and authors are drawn from a small vocabulary, so common words touch a
+ * large share of the catalog, which is the case the scoring memory has to stay bounded for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchIndexBenchmark {
+
+  private static final String[] WORDS = {
+    "shadow", "river", "garden", "empire", "silent", "winter", "harbor", "crimson", "forest", "memory",
+    "lighthouse", "keeper", "journey", "kingdom", "stone", "night", "daughter", "secret", "glass", "ocean",
+    "history", "letters", "mountain", "thunder", "orchard", "library", "midnight", "summer", "war", "city"
+  };
+  private static final String[] NAMES = {
+    "Anna", "Boris", "Clara", "Daniel", "Eva", "Filip", "Greta", "Hugo", "Ivana", "Jonas",
+    "Novak", "Svoboda", "Dvorak", "Cerny", "Prochazka", "Kucera", "Vesely", "Horak", "Marek", "Pokorny"
+  };
+
+  @Param({"100000", "1000000"})
+  public int catalogSize;
+
+  @Param({"harbor", "lighthose keeper", "the silent"})
+  public String query;
+
+  private BookSearchIndex index;
+
+  /**
+   * Indexes a synthetic catalog with titles of two to five words.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    index = new BookSearchIndex(null, true, 0.6);
+    Random random = new Random(42);
+    for (int i = 0; i < catalogSize; i++) {
+      StringBuilder title = new StringBuilder(random.nextBoolean() ? "The" : WORDS[random.nextInt(WORDS.length)]);
+      for (int words = 1 + random.nextInt(4); words > 0; words--) {
+        title.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+      }
+      String author = NAMES[random.nextInt(10)] + " " + NAMES[10 + random.nextInt(10)];
+      index.index(String.format("978%010d", i), title.toString(), author);
+    }
+  }
+
+  @Benchmark
+  public BookSearchIndex.Hits firstPage() {
+    return index.search(query, BookSearchIndex.Field.ANY, 20);
+  }
+}
@@ -0,0 +1,89 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.web.PagedModel;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Compares the response formats of a search page, serialized the way the controller does it:
+ * CPU time to write JSON, Smile and CBOR, with and without gzip as applied by
+ * {@code server.compression}. The payload sizes are printed once per trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+  @Param({"json", "smile", "cbor"})
+  public String format;
+
+  @Param({"20", "100"})
+  public int pageSize;
+
+  private ObjectMapper objectMapper;
+  private PagedModel<BookView> page;
+
+  /**
+   * Builds the mapper of the format the way the application does and a page of synthetic books.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    JsonFactory factory = switch (format) {
+      case "json" -> new JsonFactory();
+      case "smile" -> new SmileFactory();
+      case "cbor" -> new CBORFactory();
+      default -> throw new IllegalArgumentException("Unknown format: " + format);
+    };
+    objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+    Random random = new Random(42);
+    List<BookView> books = new ArrayList<>();
+    for (int i = 0; i < pageSize; i++) {
+      books.add(BookView.of(BenchmarkApplication.book(i, random)));
+    }
+    page = new PagedModel<>(new PageImpl<>(books, PageRequest.of(3, pageSize), 10_000));
+    System.out.printf("%n%s, %d books: %d bytes, %d bytes gzipped%n",
+            format, pageSize, serialize().length, serializeGzipped().length);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return objectMapper.writeValueAsBytes(page);
+  }
+
+  @Benchmark
+  public byte[] serializeGzipped() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+      objectMapper.writeValue(gzip, page);
+    }
+    return bytes.toByteArray();
+  }
+}
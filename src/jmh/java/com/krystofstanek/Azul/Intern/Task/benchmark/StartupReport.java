@@ -0,0 +1,223 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+/**
+ * Measures the time to first request and the resident memory of every build variant found in the
+ * build directory: the executable jar, the same jar with its AOT-processed context, the jar with
+ * its class data sharing archive, and the native executable. Build them first with
+ * {@code mvn package}, {@code mvn -Paot package}, {@code mvn -Pcds package} and
+ * {@code mvn -Pnative native:compile}; variants that are missing are skipped.
+ *
+ * <p>Each run starts a fresh process on a free port, polls the health endpoint until it answers
+ * {@code 200 OK}, which is the time to first request, and then reads the resident set size of the
+ * process. The health check includes the database, so the application needs a reachable one.
+ *
+ * <p>Options, all in {@code --name=value} form:
+ * <ul>
+ *   <li>{@code target}: the build directory (default {@code target})</li>
+ *   <li>{@code runs}: number of runs per variant, of which the median is reported (default 5)</li>
+ *   <li>{@code app-args}: space-separated arguments passed to the application, e.g. database credentials</li>
+ *   <li>{@code timeout}: seconds to wait for the first response (default 60)</li>
+ *   <li>{@code out}: optional path of a JSON report, for comparing runs</li>
+ * </ul>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec@startup-report -Dstartup.args="--runs=10"}.
+ */
+public final class StartupReport {
+
+  private static final String INITIALIZER_ENTRY =
+          "BOOT-INF/classes/com/krystofstanek/Azul/Intern/Task/AzulInternTaskApplication__ApplicationContextInitializer.class";
+
+  private final Map<String, String> options;
+  private final HttpClient client = HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .connectTimeout(Duration.ofSeconds(1))
+          .build();
+  private final Path target;
+
+  private StartupReport(Map<String, String> options) {
+    this.options = options;
+    this.target = Path.of(options.getOrDefault("target", "target"));
+  }
+
+  /**
+   * Runs the report.
+   *
+   * @param args options in {@code --name=value} form
+   * @throws Exception if a variant cannot be started
+   */
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = new LinkedHashMap<>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || !arg.contains("=")) {
+        throw new IllegalArgumentException("Expected --name=value but got " + arg);
+      }
+      options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+    }
+    new StartupReport(options).run();
+  }
+
+  private void run() throws Exception {
+    Map<String, List<String>> variants = variants();
+    if (variants.isEmpty()) {
+      throw new IllegalStateException("No build variants found in " + target.toAbsolutePath());
+    }
+    int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+    StringBuilder json = new StringBuilder("{\"runs\":" + runs + ",\"variants\":{");
+    System.out.printf(Locale.ROOT, "%-10s %22s %12s%n", "variant", "time to first req ms", "RSS MB");
+    boolean first = true;
+    for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+      long[] millis = new long[runs];
+      long[] rssKb = new long[runs];
+      for (int i = 0; i < runs; i++) {
+        long[] result = measure(variant.getKey(), variant.getValue());
+        millis[i] = result[0];
+        rssKb[i] = result[1];
+      }
+      double medianMillis = median(millis);
+      double medianRssMb = median(rssKb) / 1024.0;
+      System.out.printf(Locale.ROOT, "%-10s %22.0f %12.1f%n", variant.getKey(), medianMillis, medianRssMb);
+      json.append(first ? "" : ",").append(String.format(Locale.ROOT,
+              "\"%s\":{\"timeToFirstRequestMs\":%.0f,\"rssMb\":%.1f}", variant.getKey(), medianMillis, medianRssMb));
+      first = false;
+    }
+    json.append("}}");
+    String out = options.get("out");
+    if (out != null) {
+      try {
+        Files.writeString(Path.of(out), json);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  /**
+   * Returns the command line of every variant present in the build directory, by name.
+   */
+  private Map<String, List<String>> variants() throws IOException {
+    Map<String, List<String>> variants = new LinkedHashMap<>();
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    Path jar = findJar(target);
+    if (jar != null) {
+      variants.put("jvm", List.of(java, "-jar", jar.toString()));
+      if (isAotProcessed(jar)) {
+        variants.put("aot", List.of(java, "-Dspring.aot.enabled=true", "-jar", jar.toString()));
+      }
+    }
+    Path cdsJar = findJar(target.resolve("cds"));
+    Path archive = target.resolve("cds").resolve("application.jsa");
+    if (cdsJar != null && Files.exists(archive)) {
+      variants.put("cds", List.of(java, "-XX:SharedArchiveFile=" + archive,
+              "-Dspring.aot.enabled=" + isAotProcessed(cdsJar), "-jar", cdsJar.toString()));
+    }
+    File executable = target.resolve("AzulInternTask").toFile();
+    if (executable.isFile() && executable.canExecute()) {
+      variants.put("native", List.of(executable.toString()));
+    }
+    return variants;
+  }
+
+  private static Path findJar(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return null;
+    }
+    try (var files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().endsWith("-exec.jar")).findFirst().orElse(null);
+    }
+  }
+
+  private static boolean isAotProcessed(Path jar) throws IOException {
+    try (JarFile file = new JarFile(jar.toFile())) {
+      return file.getEntry(INITIALIZER_ENTRY) != null;
+    }
+  }
+
+  /**
+   * Starts a variant once and returns its time to first request in milliseconds and its RSS in kilobytes.
+   */
+  private long[] measure(String name, List<String> command) throws Exception {
+    int port = freePort();
+    List<String> commandLine = new ArrayList<>(command);
+    commandLine.add("--server.port=" + port);
+    String appArgs = options.getOrDefault("app-args", "").trim();
+    if (!appArgs.isEmpty()) {
+      commandLine.addAll(Arrays.asList(appArgs.split("\\s+")));
+    }
+    File log = target.resolve("startup-" + name + ".log").toFile();
+    URI health = URI.create("http://localhost:" + port + "/actuator/health");
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("timeout", "60")));
+
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(commandLine).redirectErrorStream(true).redirectOutput(log).start();
+    try {
+      while (!isHealthy(health)) {
+        if (!process.isAlive()) {
+          throw new IllegalStateException(name + " exited with " + process.exitValue() + ", see " + log);
+        }
+        if (System.nanoTime() > deadline) {
+          throw new IllegalStateException(name + " did not answer in time, see " + log);
+        }
+        Thread.sleep(5);
+      }
+      long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      return new long[] {millis, residentSetKb(process.pid())};
+    } finally {
+      process.destroy();
+      if (!process.waitFor(30, TimeUnit.SECONDS)) {
+        process.destroyForcibly();
+      }
+    }
+  }
+
+  private boolean isHealthy(URI health) throws InterruptedException {
+    try {
+      return client.send(HttpRequest.newBuilder(health).timeout(Duration.ofSeconds(1)).GET().build(),
+              HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Returns the resident set size of a process in kilobytes, as reported by {@code ps}.
+   */
+  private static long residentSetKb(long pid) throws IOException, InterruptedException {
+    Process ps = new ProcessBuilder("ps", "-o", "rss=", "-p", Long.toString(pid)).start();
+    String output = new String(ps.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+    ps.waitFor();
+    return output.isEmpty() ? 0 : Long.parseLong(output);
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static double median(long[] values) {
+    long[] sorted = values.clone();
+    Arrays.sort(sorted);
+    int middle = sorted.length / 2;
+    return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+  }
+}
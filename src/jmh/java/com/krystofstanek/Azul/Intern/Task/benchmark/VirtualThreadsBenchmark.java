@@ -0,0 +1,88 @@
+package com.krystofstanek.Azul.Intern.Task.benchmark;
+
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Compares request throughput and latency of the servlet stack on platform threads and on
+ * virtual threads, under high client concurrency with a small connection pool as the bottleneck.
+ * The ISBN cache is disabled so that every request performs a blocking JDBC call.
+ *
+ * <p>Requires a Java 21+ runtime; on older runtimes {@code spring.threads.virtual.enabled} is ignored
+ * and both variants use platform threads. Carrier pinning is reported on stdout by
+ * {@code -Djdk.tracePinnedThreads=short}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+@Threads(256)
+public class VirtualThreadsBenchmark {
+
+  @Param({"false", "true"})
+  public boolean virtualThreads;
+
+  @Param({"4"})
+  public int poolSize;
+
+  @Param({"10000"})
+  public int catalogSize;
+
+  private ConfigurableApplicationContext context;
+  private HttpClient client;
+  private String baseUrl;
+
+  /**
+   * Starts the application in the requested threading mode and seeds the catalog.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = BenchmarkApplication.start(
+            "spring.threads.virtual.enabled=" + virtualThreads,
+            "spring.datasource.hikari.maximum-pool-size=" + poolSize,
+            "spring.datasource.hikari.connection-timeout=60000",
+            "server.tomcat.threads.max=200",
+            "bookstore.cache.enabled=false");
+    BenchmarkApplication.seed(context.getBean(BookService.class), catalogSize, 42);
+    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    baseUrl = "http://localhost:" + port + "/books/";
+    client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public int getBookByIsbn() throws IOException, InterruptedException {
+    String isbn = String.format("978%010d", ThreadLocalRandom.current().nextInt(catalogSize));
+    HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + isbn)).GET().build();
+    return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+}
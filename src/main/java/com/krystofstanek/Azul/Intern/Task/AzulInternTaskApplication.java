@@ -1,14 +1,19 @@
 package com.krystofstanek.Azul.Intern.Task;
 
+import com.krystofstanek.Azul.Intern.Task.config.BookstoreRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Main application class for the Azul Intern Task.
  * This class serves as the entry point for the Spring Boot application.
  */
 @EnableSpringDataWebSupport(pageSerializationMode = EnableSpringDataWebSupport.PageSerializationMode.VIA_DTO)
+@EnableScheduling
+@ImportRuntimeHints(BookstoreRuntimeHints.class)
 @SpringBootApplication
 public class AzulInternTaskApplication {
 
@@ -0,0 +1,75 @@
+package com.krystofstanek.Azul.Intern.Task.api.controller;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookVersion;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.CursorPage;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+/**
+ * Derives strong entity tags for books and pages of books from their versions, so that responses
+ * do not have to be serialized to tell whether they changed.
+ * The version of a book changes with every write, and its quantity also covers stock changes
+ * pending in the write-behind buffer; together they identify the content of a book.
+ * The negotiated format is part of every tag, since JSON, Smile and CBOR representations of the
+ * same content differ byte for byte and a strong tag must not match more than one of them.
+ */
+final class BookEtags {
+
+  private BookEtags() {
+  }
+
+  /**
+   * Returns the entity tag of a single book.
+   *
+   * @param version the version of the book
+   * @param format  the media type the book is written in
+   * @return the entity tag, without quotes
+   */
+  static String of(BookVersion version, MediaType format) {
+    return version.version() + "-" + version.quantity() + "-" + format.getSubtype();
+  }
+
+  /**
+   * Returns the entity tag of a page of books, covering its content and page metadata.
+   *
+   * @param page   the page
+   * @param format the media type the page is written in
+   * @return the entity tag, without quotes
+   */
+  static String of(Page<BookView> page, MediaType format) {
+    StringBuilder key = new StringBuilder()
+            .append(format.getSubtype()).append('/')
+            .append(page.getNumber()).append('/')
+            .append(page.getSize()).append('/')
+            .append(page.getTotalElements());
+    return digest(key, page.getContent());
+  }
+
+  /**
+   * Returns the entity tag of a keyset-paginated slice of books.
+   *
+   * @param page   the slice
+   * @param format the media type the slice is written in
+   * @return the entity tag, without quotes
+   */
+  static String of(CursorPage<BookView> page, MediaType format) {
+    StringBuilder key = new StringBuilder()
+            .append(format.getSubtype()).append('/')
+            .append(page.size()).append('/')
+            .append(page.nextCursor());
+    return digest(key, page.content());
+  }
+
+  private static String digest(StringBuilder key, List<BookView> books) {
+    for (BookView book : books) {
+      key.append('|').append(book.isbn())
+              .append(':').append(book.version())
+              .append(':').append(book.quantity());
+    }
+    return DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
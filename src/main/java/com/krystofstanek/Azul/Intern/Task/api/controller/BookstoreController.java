@@ -1,19 +1,44 @@
 package com.krystofstanek.Azul.Intern.Task.api.controller;
 
 import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BatchItemResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookLookupResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookSearchCriteria;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookVersion;
+import com.krystofstanek.Azul.Intern.Task.api.model.CursorPage;
 import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.ImportJobStatus;
+import com.krystofstanek.Azul.Intern.Task.api.model.InventoryAggregates;
 import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.service.BookCache;
+import com.krystofstanek.Azul.Intern.Task.service.BookChangeStream;
+import com.krystofstanek.Azul.Intern.Task.service.BookExportService;
 import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import com.krystofstanek.Azul.Intern.Task.service.CatalogImportService;
+import com.krystofstanek.Azul.Intern.Task.service.InventoryAggregator;
+import com.krystofstanek.Azul.Intern.Task.util.BoundedTtlCache;
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.OptionalInt;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.accept.ContentNegotiationManager;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * Controller that handles RESTful endpoints for managing books.
@@ -23,16 +48,45 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/books")
 public class BookstoreController {
 
+  /**
+   * The formats books are written in, in the order the message converters prefer them.
+   */
+  private static final List<MediaType> BOOK_FORMATS = List.of(MediaType.APPLICATION_JSON,
+          new MediaType("application", "x-jackson-smile"), MediaType.APPLICATION_CBOR);
+
   private final BookService bookService;
+  private final BookCache bookCache;
+  private final BookExportService bookExportService;
+  private final CatalogImportService catalogImportService;
+  private final InventoryAggregator inventoryAggregator;
+  private final BookChangeStream bookChangeStream;
+  private final ContentNegotiationManager contentNegotiationManager;
 
   /**
    * Creates a new {@code BookstoreController} with the specified {@link BookService}.
    *
-   * @param bookService the service used to manage books
+   * @param bookService               the service used to manage books
+   * @param bookCache                 the cache serving lookups by ISBN
+   * @param bookExportService         the service used to export the catalog
+   * @param catalogImportService      the service used to import catalog files
+   * @param inventoryAggregator       the per-genre inventory totals
+   * @param bookChangeStream          the stream of committed stock changes
+   * @param contentNegotiationManager the manager resolving the media types a request accepts
    */
   @Autowired
-  public BookstoreController(BookService bookService) {
+  public BookstoreController(BookService bookService, BookCache bookCache,
+                             BookExportService bookExportService,
+                             CatalogImportService catalogImportService,
+                             InventoryAggregator inventoryAggregator,
+                             BookChangeStream bookChangeStream,
+                             ContentNegotiationManager contentNegotiationManager) {
     this.bookService = bookService;
+    this.bookCache = bookCache;
+    this.bookExportService = bookExportService;
+    this.catalogImportService = catalogImportService;
+    this.inventoryAggregator = inventoryAggregator;
+    this.bookChangeStream = bookChangeStream;
+    this.contentNegotiationManager = contentNegotiationManager;
   }
 
   /**
@@ -48,6 +102,63 @@ public class BookstoreController {
     return ResponseEntity.status(HttpStatus.CREATED).body(savedBook);
   }
 
+  /**
+   * Adds many books at once (accessible only to users with the ADMIN role).
+   * Items with the same ISBN are merged, and existing books have their quantity incremented.
+   *
+   * @param newBooks the books to be added
+   * @return a {@link ResponseEntity} containing one result per submitted book
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @PostMapping("/batch")
+  public ResponseEntity<List<BatchItemResult>> addBooks(@RequestBody List<SimpleBook> newBooks) {
+    return ResponseEntity.ok(bookService.addBooks(newBooks));
+  }
+
+  /**
+   * Imports a catalog file sent as the request body (accessible only to users with the ADMIN role).
+   * The file is streamed, so it may be larger than the available memory.
+   * The request returns when the import has finished; its progress can be followed meanwhile
+   * through {@code GET /books/import}.
+   *
+   * @param format the format of the file: "ndjson" or "csv"
+   * @param body   the contents of the file
+   * @return a {@link ResponseEntity} containing the final status of the import
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @PostMapping("/import")
+  public ResponseEntity<ImportJobStatus> importBooks(
+          @RequestParam(defaultValue = "ndjson") String format,
+          InputStream body) {
+    CatalogImportService.Format importFormat = CatalogImportService.Format.from(format);
+    return ResponseEntity.ok(catalogImportService.importCatalog(body, importFormat));
+  }
+
+  /**
+   * Retrieves the status of all running and recently finished imports
+   * (accessible only to users with the ADMIN role).
+   *
+   * @return a {@link ResponseEntity} containing the import statuses
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @GetMapping("/import")
+  public ResponseEntity<List<ImportJobStatus>> getImports() {
+    return ResponseEntity.ok(catalogImportService.getStatuses());
+  }
+
+  /**
+   * Retrieves the status of an import (accessible only to users with the ADMIN role).
+   *
+   * @param id the identifier of the import
+   * @return a {@link ResponseEntity} containing the import status, or 404 if no such import is known
+   */
+  @PreAuthorize("hasRole('ADMIN')")
+  @GetMapping("/import/{id}")
+  public ResponseEntity<ImportJobStatus> getImport(@PathVariable String id) {
+    return catalogImportService.getStatus(id)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+  }
 
   /**
    * Removes a specified quantity of a book by ISBN (accessible only to users with the ADMIN role).
@@ -62,18 +173,19 @@ public class BookstoreController {
           @PathVariable String isbn,
           @RequestParam int quantity) {
 
-    Optional<AbstractBook> remaining = bookService.removeBook(isbn, quantity);
+    OptionalInt remaining = bookService.removeBook(isbn, quantity);
 
     if (remaining.isEmpty()) {
       return ResponseEntity.noContent().build();
     }
 
-    return ResponseEntity.ok(Map.of("remainingQuantity", remaining.get().getQuantity()));
+    return ResponseEntity.ok(Map.of("remainingQuantity", remaining.getAsInt()));
   }
 
 
   /**
    * Updates an existing book's details (accessible only to users with the ADMIN role).
+   * Details absent from the body keep their current values.
    *
    * @param updatedBook the updated book details
    * @param isbn        the ISBN of the book to update
@@ -89,64 +201,267 @@ public class BookstoreController {
 
   /**
    * Retrieves a book by its ISBN.
+   * The response carries a strong ETag and must be revalidated before reuse; a request whose
+   * {@code If-None-Match} matches the current version is answered with 304 Not Modified after
+   * looking up only the version of the book.
+   * The ETag also identifies the negotiated format, and the response varies by {@code Accept}.
    *
-   * @param isbn the ISBN of the book to retrieve
+   * @param isbn     the ISBN of the book to retrieve
+   * @param request  the request, checked for conditional headers
+   * @param response the response, marked as varying by {@code Accept}
    * @return a {@link ResponseEntity} containing the book if found, or an appropriate HTTP response
    */
   @GetMapping("/{isbn}")
-  public ResponseEntity<AbstractBook> getBookByIsbn(@PathVariable String isbn) {
-    return ResponseEntity.ok(bookService.getBookByIsbn(isbn));
+  public ResponseEntity<BookView> getBookByIsbn(@PathVariable String isbn, NativeWebRequest request,
+                                                HttpServletResponse response) {
+    MediaType format = negotiatedFormat(request);
+    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+            && request.checkNotModified(BookEtags.of(bookService.getBookVersion(isbn), format))) {
+      return null;
+    }
+    BookView book = bookService.getBookByIsbn(isbn);
+    return ResponseEntity.ok()
+            .cacheControl(CacheControl.noCache())
+            .eTag(BookEtags.of(BookVersion.of(book), format))
+            .body(book);
+  }
+
+  /**
+   * Retrieves many books by ISBN in one request, e.g. {@code GET /books?isbn=1&isbn=2}.
+   *
+   * @param isbn the ISBNs to look up
+   * @return a {@link ResponseEntity} containing the books found and the missing ISBNs, in request order
+   */
+  @GetMapping(params = "isbn")
+  public ResponseEntity<BookLookupResult> getBooksByIsbns(@RequestParam List<String> isbn) {
+    return ResponseEntity.ok(bookService.getBooksByIsbns(isbn));
+  }
+
+  /**
+   * Retrieves many books by ISBN in one request, for lists too long for a query string.
+   *
+   * @param isbns the ISBNs to look up, as a JSON array
+   * @return a {@link ResponseEntity} containing the books found and the missing ISBNs, in request order
+   */
+  @PostMapping("/lookup")
+  public ResponseEntity<BookLookupResult> lookupBooks(@RequestBody List<String> isbns) {
+    return ResponseEntity.ok(bookService.getBooksByIsbns(isbns));
+  }
+
+  /**
+   * Searches books matching any combination of genre, author, title and price range.
+   *
+   * @param genre    the genre to match, if any
+   * @param author   the author to match exactly, if any
+   * @param title    the title to match exactly, if any
+   * @param minPrice the minimum price (inclusive), if any
+   * @param maxPrice the maximum price (inclusive), if any
+   * @param sort     the sort order as "property" or "property,asc|desc"; defaults to ISBN order
+   * @param page     the page number to retrieve
+   * @param size     the number of items per page
+   * @param request  the request, whose accepted types select the format
+   * @return a {@link ResponseEntity} containing a page of matching books
+   */
+  @GetMapping("/search")
+  public ResponseEntity<Page<BookView>> searchBooksByCriteria(
+          @RequestParam(required = false) Genre genre,
+          @RequestParam(required = false) String author,
+          @RequestParam(required = false) String title,
+          @RequestParam(required = false) Double minPrice,
+          @RequestParam(required = false) Double maxPrice,
+          @RequestParam(required = false) String sort,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    BookSearchCriteria criteria = new BookSearchCriteria(genre, author, title,
+            minPrice == null ? null : BigDecimal.valueOf(minPrice),
+            maxPrice == null ? null : BigDecimal.valueOf(maxPrice));
+    return withEtag(bookService.searchBooksByCriteria(criteria, sort, page, size), request);
+  }
+
+  /**
+   * Searches books by partial or approximate title and/or author, ranked by relevance.
+   *
+   * @param q       the text to search for
+   * @param field   the field to search in: "title", "author" or "any"
+   * @param page    the page number to retrieve
+   * @param size    the number of items per page
+   * @param request the request, whose accepted types select the format
+   * @return a {@link ResponseEntity} containing a page of matching books
+   */
+  @GetMapping("/search/text")
+  public ResponseEntity<Page<BookView>> searchBooks(
+          @RequestParam String q,
+          @RequestParam(defaultValue = "any") String field,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.searchBooks(q, field, page, size), request);
+  }
+
+  /**
+   * Streams the whole catalog, or the books of one genre, as NDJSON or CSV in ISBN order.
+   *
+   * @param format   the output format: "ndjson" or "csv"
+   * @param genre    the genre to export, or absent to export all books
+   * @param response the response to stream the books to
+   * @throws IOException if writing the response fails
+   */
+  @GetMapping("/export")
+  public void exportBooks(
+          @RequestParam(defaultValue = "ndjson") String format,
+          @RequestParam(required = false) Genre genre,
+          HttpServletResponse response) throws IOException {
+    BookExportService.Format exportFormat = BookExportService.Format.from(format);
+    response.setContentType(exportFormat.getContentType());
+    response.setCharacterEncoding("UTF-8");
+    bookExportService.export(exportFormat, genre, response.getOutputStream());
+  }
+
+  /**
+   * Retrieves the hit, miss and eviction counters of the ISBN lookup cache.
+   *
+   * @return a {@link ResponseEntity} containing the cache statistics
+   */
+  @GetMapping("/cache/stats")
+  public ResponseEntity<BoundedTtlCache.Stats> getCacheStats() {
+    return ResponseEntity.ok(bookCache.stats());
+  }
+
+  /**
+   * Retrieves the inventory totals per genre: titles, units in stock, stock value and a price histogram.
+   * The totals are maintained incrementally, so this is cheap regardless of the catalog size.
+   *
+   * @return a {@link ResponseEntity} containing the inventory aggregates
+   */
+  @GetMapping("/aggregates")
+  public ResponseEntity<InventoryAggregates> getAggregates() {
+    return ResponseEntity.ok(inventoryAggregator.snapshot());
+  }
+
+  /**
+   * Streams committed stock changes as server-sent events named {@code change}, each carrying
+   * the ISBN, genre, new quantity and price of a book.
+   * Repeated changes to the same book are coalesced, and a subscriber that falls too far behind
+   * receives an {@code overflow} event and is disconnected.
+   *
+   * @param isbn  the ISBNs to watch; all books if omitted
+   * @param genre the genres to watch; all genres if omitted
+   * @return the event stream
+   */
+  @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamChanges(@RequestParam(required = false) List<String> isbn,
+                                  @RequestParam(required = false) List<Genre> genre) {
+    return bookChangeStream.subscribe(isbn, genre);
   }
 
   /**
    * Retrieves a page of books filtered by genre.
    *
-   * @param genre the genre to filter by
-   * @param page  the page number to retrieve
-   * @param size  the number of items per page
+   * @param genre   the genre to filter by
+   * @param page    the page number to retrieve
+   * @param size    the number of items per page
+   * @param request the request, whose accepted types select the format
    * @return a {@link ResponseEntity} containing a page of books matching the specified genre
    */
   @GetMapping("/genre")
-  public ResponseEntity<Page<AbstractBook>> getBooksByGenre(
+  public ResponseEntity<Page<BookView>> getBooksByGenre(
           @RequestParam Genre genre,
-          @RequestParam int page,
-          @RequestParam int size) {
-    Page<AbstractBook> books = bookService.getBooksByAttribute("genre", genre.name(), page, size);
-    return ResponseEntity.ok(books);
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByAttribute("genre", genre.name(), page, size), request);
+  }
+
+  /**
+   * Retrieves a slice of books filtered by genre using keyset pagination, ordered by title and ISBN.
+   *
+   * @param genre   the genre to filter by
+   * @param cursor  the cursor returned with the previous slice, or an empty one for the first slice
+   * @param size    the maximum number of items per slice
+   * @param request the request, whose accepted types select the format
+   * @return a {@link ResponseEntity} containing a slice of books matching the specified genre
+   */
+  @GetMapping(path = "/genre", params = "cursor")
+  public ResponseEntity<CursorPage<BookView>> getBooksByGenreAfter(
+          @RequestParam Genre genre,
+          @RequestParam String cursor,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByAttributeAfter("genre", genre.name(), cursor, size), request);
   }
 
   /**
    * Retrieves a page of books filtered by author.
    *
-   * @param author the author name to filter by
-   * @param page   the page number to retrieve
-   * @param size   the number of items per page
+   * @param author  the author name to filter by
+   * @param page    the page number to retrieve
+   * @param size    the number of items per page
+   * @param request the request, whose accepted types select the format
    * @return a {@link ResponseEntity} containing a page of books matching the specified author
    */
   @GetMapping("/author")
-  public ResponseEntity<Page<AbstractBook>>  getBooksByAuthor(
+  public ResponseEntity<Page<BookView>> getBooksByAuthor(
           @RequestParam String author,
-          @RequestParam int page,
-          @RequestParam int size) {
-    Page<AbstractBook> books = bookService.getBooksByAttribute("author", author, page, size);
-    return ResponseEntity.ok(books);
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByAttribute("author", author, page, size), request);
+  }
+
+  /**
+   * Retrieves a slice of books filtered by author using keyset pagination, ordered by title and ISBN.
+   *
+   * @param author  the author name to filter by
+   * @param cursor  the cursor returned with the previous slice, or an empty one for the first slice
+   * @param size    the maximum number of items per slice
+   * @param request the request, whose accepted types select the format
+   * @return a {@link ResponseEntity} containing a slice of books matching the specified author
+   */
+  @GetMapping(path = "/author", params = "cursor")
+  public ResponseEntity<CursorPage<BookView>> getBooksByAuthorAfter(
+          @RequestParam String author,
+          @RequestParam String cursor,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByAttributeAfter("author", author, cursor, size), request);
   }
 
   /**
    * Retrieves a page of books filtered by title.
    *
-   * @param title the title to filter by
-   * @param page  the page number to retrieve
-   * @param size  the number of items per page
+   * @param title   the title to filter by
+   * @param page    the page number to retrieve
+   * @param size    the number of items per page
+   * @param request the request, whose accepted types select the format
    * @return a {@link ResponseEntity} containing a page of books matching the specified title
    */
   @GetMapping("/title")
-  public ResponseEntity<Page<AbstractBook>>  getBooksByTitle(
+  public ResponseEntity<Page<BookView>> getBooksByTitle(
+          @RequestParam String title,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByAttribute("title", title, page, size), request);
+  }
+
+  /**
+   * Retrieves a slice of books filtered by title using keyset pagination, ordered by ISBN.
+   *
+   * @param title   the title to filter by
+   * @param cursor  the cursor returned with the previous slice, or an empty one for the first slice
+   * @param size    the maximum number of items per slice
+   * @param request the request, whose accepted types select the format
+   * @return a {@link ResponseEntity} containing a slice of books matching the specified title
+   */
+  @GetMapping(path = "/title", params = "cursor")
+  public ResponseEntity<CursorPage<BookView>> getBooksByTitleAfter(
           @RequestParam String title,
-          @RequestParam int page,
-          @RequestParam int size) {
-    Page<AbstractBook> books = bookService.getBooksByAttribute("title", title, page, size);
-    return ResponseEntity.ok(books);
+          @RequestParam String cursor,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByAttributeAfter("title", title, cursor, size), request);
   }
 
   /**
@@ -156,15 +471,78 @@ public class BookstoreController {
    * @param maxPrice the maximum price (inclusive)
    * @param page     the page number to retrieve
    * @param size     the number of items per page
+   * @param request  the request, whose accepted types select the format
    * @return a {@link ResponseEntity} containing a page of books matching the specified range
    */
   @GetMapping("/price")
-  public ResponseEntity<Page<AbstractBook>>  getBooksByPrice(
+  public ResponseEntity<Page<BookView>> getBooksByPrice(
+          @RequestParam double minPrice,
+          @RequestParam double maxPrice,
+          @RequestParam(defaultValue = "0") int page,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByPrice(minPrice, maxPrice, page, size), request);
+  }
+
+  /**
+   * Retrieves a slice of books within the specified price range using keyset pagination,
+   * ordered by price and ISBN.
+   *
+   * @param minPrice the minimum price (inclusive)
+   * @param maxPrice the maximum price (inclusive)
+   * @param cursor   the cursor returned with the previous slice, or an empty one for the first slice
+   * @param size     the maximum number of items per slice
+   * @param request  the request, whose accepted types select the format
+   * @return a {@link ResponseEntity} containing a slice of books matching the specified range
+   */
+  @GetMapping(path = "/price", params = "cursor")
+  public ResponseEntity<CursorPage<BookView>> getBooksByPriceAfter(
           @RequestParam double minPrice,
           @RequestParam double maxPrice,
-          @RequestParam int page,
-          @RequestParam int size) {
-    Page<AbstractBook> books = bookService.getBooksByPrice(minPrice, maxPrice, page, size);
-    return ResponseEntity.ok(books);
+          @RequestParam String cursor,
+          @RequestParam int size,
+          NativeWebRequest request) {
+    return withEtag(bookService.getBooksByPriceAfter(minPrice, maxPrice, cursor, size), request);
+  }
+
+  /**
+   * Wraps a page of books in a response with a strong ETag derived from the versions of its books
+   * and the negotiated format.
+   * A matching {@code If-None-Match} turns the response into 304 Not Modified before the page
+   * is serialized.
+   */
+  private ResponseEntity<Page<BookView>> withEtag(Page<BookView> books, NativeWebRequest request) {
+    return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+            .eTag(BookEtags.of(books, negotiatedFormat(request))).body(books);
+  }
+
+  /**
+   * Wraps a slice of books in a response with a strong ETag derived from the versions of its books
+   * and the negotiated format.
+   */
+  private ResponseEntity<CursorPage<BookView>> withEtag(CursorPage<BookView> books, NativeWebRequest request) {
+    return ResponseEntity.ok().cacheControl(CacheControl.noCache()).varyBy(HttpHeaders.ACCEPT)
+            .eTag(BookEtags.of(books, negotiatedFormat(request))).body(books);
+  }
+
+  /**
+   * Returns the format a body of books will be written in: the first of {@link #BOOK_FORMATS}
+   * that matches the most preferred type the request accepts, as the message converters choose.
+   * A request that accepts none of them is answered with 406 when the body is written, and its
+   * tag does not matter.
+   */
+  private MediaType negotiatedFormat(NativeWebRequest request) {
+    try {
+      for (MediaType accepted : contentNegotiationManager.resolveMediaTypes(request)) {
+        for (MediaType format : BOOK_FORMATS) {
+          if (accepted.isCompatibleWith(format)) {
+            return format;
+          }
+        }
+      }
+    } catch (HttpMediaTypeNotAcceptableException e) {
+      // Rejected again by the message converters.
+    }
+    return MediaType.APPLICATION_JSON;
   }
 }
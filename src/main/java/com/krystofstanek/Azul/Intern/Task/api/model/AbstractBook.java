@@ -3,6 +3,8 @@ package com.krystofstanek.Azul.Intern.Task.api.model;
 import jakarta.persistence.*;
 import java.math.BigDecimal;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 
 /**
@@ -25,12 +27,19 @@ public abstract class AbstractBook implements Book {
   private String title;
   private String author;
 
+  // VARCHAR on every database, as created by the Flyway migrations
   @Enumerated(EnumType.STRING)
+  @JdbcTypeCode(SqlTypes.VARCHAR)
   private Genre genre;
 
   private BigDecimal price;
   private int quantity;
 
+  // Incremented on every write, also by the bulk quantity updates of the repository
+  @Version
+  @Setter(AccessLevel.NONE)
+  private long version;
+
   /**
    * Default constructor for JPA.
    */
@@ -44,7 +53,7 @@ public abstract class AbstractBook implements Book {
    * @param title the title of the book (must not be null or blank)
    * @param author the author of the book (must not be null or blank)
    * @param genre the genre of the book (must not be null)
-   * @param price the price of the book (must not be null or negative)
+   * @param price the price of the book (must not be null or negative, with at most two decimal places)
    * @param quantity the quantity in stock (must be at least 1)
    * @throws IllegalArgumentException if any argument is invalid
    */
@@ -53,6 +62,38 @@ public abstract class AbstractBook implements Book {
                       Genre genre,
                       BigDecimal price,
                       int quantity) {
+    validate(isbn, title, author, genre, price, quantity);
+
+    this.isbn = isbn;
+    this.title = title;
+    this.author = author;
+    this.genre = genre;
+    this.price = price;
+    this.quantity = quantity;
+  }
+
+
+
+  /**
+   * Validates book attributes using the same rules as the constructor.
+   * Useful for inputs that were not created through the constructor,
+   * such as deserialized request bodies or imported rows.
+   * Prices are stored and indexed in cents, so a price with more than two decimal places
+   * (ignoring trailing zeros) is rejected rather than rounded.
+   *
+   * @param isbn the International Standard Book Number (must not be null or blank)
+   * @param title the title of the book (must not be null or blank)
+   * @param author the author of the book (must not be null or blank)
+   * @param genre the genre of the book (must not be null)
+   * @param price the price of the book (must not be null or negative, with at most two decimal places)
+   * @param quantity the quantity in stock (must be at least 1)
+   * @throws IllegalArgumentException if any argument is invalid
+   */
+  public static void validate(String isbn,
+                              String title, String author,
+                              Genre genre,
+                              BigDecimal price,
+                              int quantity) {
     if (isbn == null || isbn.isBlank()) {
       throw new IllegalArgumentException("ISBN cannot be null or empty.");
     }
@@ -68,20 +109,14 @@ public abstract class AbstractBook implements Book {
     if (price == null || price.compareTo(BigDecimal.ZERO) < 0) {
       throw new IllegalArgumentException("Price cannot be null or negative.");
     }
+    if (price.stripTrailingZeros().scale() > 2) {
+      throw new IllegalArgumentException("Price cannot have more than two decimal places.");
+    }
     if (quantity < 1) {
       throw new IllegalArgumentException("Quantity must be at least 1.");
     }
-
-    this.isbn = isbn;
-    this.title = title;
-    this.author = author;
-    this.genre = genre;
-    this.price = price;
-    this.quantity = quantity;
   }
 
-
-
   /**
    * Updates the quantity of the book by the specified amount.
    *
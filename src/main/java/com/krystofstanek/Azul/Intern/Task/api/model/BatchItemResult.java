@@ -0,0 +1,49 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+/**
+ * Outcome of a single item of a bulk book ingest.
+ * Items that share an ISBN are merged before persisting, so all of them report the same
+ * status and resulting quantity.
+ *
+ * @param index    the position of the item in the submitted batch
+ * @param isbn     the ISBN of the item, may be null if the item was rejected
+ * @param status   whether the book was created, had its quantity incremented, or was rejected
+ * @param quantity the stock quantity after the ingest, or null if the item was rejected
+ * @param message  the reason for rejection, or null if the item was accepted
+ */
+public record BatchItemResult(int index, String isbn, Status status, Integer quantity, String message) {
+
+  /**
+   * Possible outcomes of a bulk ingest item.
+   */
+  public enum Status {
+    CREATED,
+    INCREMENTED,
+    REJECTED
+  }
+
+  /**
+   * Creates a result for an item that was persisted.
+   *
+   * @param index    the position of the item in the submitted batch
+   * @param isbn     the ISBN of the item
+   * @param status   either {@link Status#CREATED} or {@link Status#INCREMENTED}
+   * @param quantity the stock quantity after the ingest
+   * @return the accepted result
+   */
+  public static BatchItemResult accepted(int index, String isbn, Status status, int quantity) {
+    return new BatchItemResult(index, isbn, status, quantity, null);
+  }
+
+  /**
+   * Creates a result for an item that failed validation.
+   *
+   * @param index   the position of the item in the submitted batch
+   * @param isbn    the ISBN of the item, may be null
+   * @param message the reason for rejection
+   * @return the rejected result
+   */
+  public static BatchItemResult rejected(int index, String isbn, String message) {
+    return new BatchItemResult(index, isbn, Status.REJECTED, null, message);
+  }
+}
@@ -0,0 +1,12 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.util.List;
+
+/**
+ * The result of looking up many books by ISBN at once.
+ *
+ * @param books   the books found, in the order their ISBNs were requested
+ * @param missing the requested ISBNs with no book, in request order
+ */
+public record BookLookupResult(List<BookView> books, List<String> missing) {
+}
@@ -0,0 +1,16 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Criteria of a combined book search. Every criterion is optional; null means "any".
+ *
+ * @param genre    the genre to match
+ * @param author   the author to match exactly
+ * @param title    the title to match exactly
+ * @param minPrice the minimum price (inclusive)
+ * @param maxPrice the maximum price (inclusive)
+ */
+public record BookSearchCriteria(Genre genre, String author, String title,
+                                 BigDecimal minPrice, BigDecimal maxPrice) {
+}
@@ -0,0 +1,22 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+/**
+ * The parts of a book that identify its current representation.
+ * Any write increments the version, except stock changes still pending in the write-behind
+ * buffer, which only change the quantity.
+ *
+ * @param version  the version of the book
+ * @param quantity the quantity in stock
+ */
+public record BookVersion(long version, int quantity) {
+
+  /**
+   * Returns the version of a book view.
+   *
+   * @param book the book
+   * @return its version
+   */
+  public static BookVersion of(BookView book) {
+    return new BookVersion(book.version(), book.quantity());
+  }
+}
@@ -0,0 +1,42 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Read-only view of a book, as returned by lookups and searches.
+ * Views are loaded with JPQL constructor expressions, so they are never managed by the
+ * persistence context and cost neither snapshots nor dirty checking.
+ * Serializes to the same JSON as the {@link AbstractBook} it was read from.
+ *
+ * @param isbn     the International Standard Book Number
+ * @param title    the title of the book
+ * @param author   the author of the book
+ * @param genre    the genre of the book
+ * @param price    the price of the book
+ * @param quantity the quantity in stock
+ * @param version  the version of the book, incremented on every write
+ */
+public record BookView(String isbn, String title, String author, Genre genre, BigDecimal price, int quantity,
+                       long version) {
+
+  /**
+   * Creates a view of the current state of a book.
+   *
+   * @param book the book to view
+   * @return the view
+   */
+  public static BookView of(AbstractBook book) {
+    return new BookView(book.getIsbn(), book.getTitle(), book.getAuthor(),
+            book.getGenre(), book.getPrice(), book.getQuantity(), book.getVersion());
+  }
+
+  /**
+   * Returns a copy of this view with a different quantity.
+   *
+   * @param newQuantity the quantity of the copy
+   * @return the copy
+   */
+  public BookView withQuantity(int newQuantity) {
+    return new BookView(isbn, title, author, genre, price, newQuantity, version);
+  }
+}
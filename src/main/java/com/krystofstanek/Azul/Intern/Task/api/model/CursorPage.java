@@ -0,0 +1,16 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.util.List;
+
+/**
+ * A slice of search results obtained by keyset pagination.
+ * Unlike a {@link org.springframework.data.domain.Page}, it carries no total count;
+ * the next slice is requested by passing {@code nextCursor} back to the same endpoint.
+ *
+ * @param content    the items of this slice
+ * @param size       the requested maximum number of items
+ * @param nextCursor an opaque token for the next slice, or null if this is the last one
+ * @param <T>        the type of items
+ */
+public record CursorPage<T>(List<T> content, int size, String nextCursor) {
+}
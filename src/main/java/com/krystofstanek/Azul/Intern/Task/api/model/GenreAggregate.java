@@ -0,0 +1,17 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Inventory totals of one genre.
+ *
+ * @param genre          the genre
+ * @param titles         the number of books
+ * @param units          the total quantity in stock
+ * @param stockValue     the total value of the stock, i.e. the sum of price times quantity
+ * @param priceHistogram the number of books per price bucket, see {@link InventoryAggregates#priceBucketBounds}
+ */
+public record GenreAggregate(Genre genre, long titles, long units, BigDecimal stockValue,
+                             List<Long> priceHistogram) {
+}
@@ -0,0 +1,50 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Snapshot of the progress of a catalog import.
+ *
+ * @param id            the identifier of the import
+ * @param state         whether the import is running, completed or failed
+ * @param format        the format of the imported file
+ * @param rowsRead      the number of data rows parsed so far
+ * @param rowsImported  the number of rows written to the database so far
+ * @param rowsRejected  the number of rows that failed validation
+ * @param rowsPerSecond the average number of rows written per second since the start
+ * @param errors        the first rejected rows, with their line numbers and reasons
+ * @param failure       the reason the import failed, or null
+ * @param startedAt     when the import started
+ * @param finishedAt    when the import finished, or null while it is running
+ */
+public record ImportJobStatus(String id,
+                              State state,
+                              String format,
+                              long rowsRead,
+                              long rowsImported,
+                              long rowsRejected,
+                              double rowsPerSecond,
+                              List<RowError> errors,
+                              String failure,
+                              Instant startedAt,
+                              Instant finishedAt) {
+
+  /**
+   * Lifecycle states of an import.
+   */
+  public enum State {
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  /**
+   * A row that was rejected.
+   *
+   * @param line    the line number of the row in the file, starting at 1
+   * @param message the reason for rejection
+   */
+  public record RowError(long line, String message) {
+  }
+}
@@ -0,0 +1,17 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Inventory totals per genre.
+ *
+ * @param priceBucketBounds the exclusive upper bounds of the price buckets; the last bucket of every
+ *                          histogram counts the books priced at or above the last bound
+ * @param genres            the totals of every genre
+ * @param reconciledAt      when the totals were last reconciled against the database, or null if not yet
+ */
+public record InventoryAggregates(List<BigDecimal> priceBucketBounds, List<GenreAggregate> genres,
+                                  Instant reconciledAt) {
+}
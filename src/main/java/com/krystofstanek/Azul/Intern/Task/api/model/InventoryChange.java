@@ -0,0 +1,35 @@
+package com.krystofstanek.Azul.Intern.Task.api.model;
+
+import java.math.BigDecimal;
+
+/**
+ * A committed change to the stock of a book, as published on the change stream.
+ *
+ * @param isbn     the ISBN of the book
+ * @param genre    the genre of the book
+ * @param quantity the quantity in stock after the change, 0 if the book was removed
+ * @param price    the price of the book after the change
+ * @param removed  whether the book was removed from the catalog
+ */
+public record InventoryChange(String isbn, Genre genre, int quantity, BigDecimal price, boolean removed) {
+
+  /**
+   * Creates the change of a book from its state after the change.
+   *
+   * @param after the book after the change
+   * @return the change
+   */
+  public static InventoryChange of(BookView after) {
+    return new InventoryChange(after.isbn(), after.genre(), after.quantity(), after.price(), false);
+  }
+
+  /**
+   * Creates the change of a book that was removed, from its last state.
+   *
+   * @param before the book before it was removed
+   * @return the change
+   */
+  public static InventoryChange removed(BookView before) {
+    return new InventoryChange(before.isbn(), before.genre(), 0, before.price(), true);
+  }
+}
@@ -1,22 +1,59 @@
 package com.krystofstanek.Azul.Intern.Task.api.repository;
 
 import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookVersion;
 import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import jakarta.persistence.QueryHint;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 
 
 /**
  * Repository interface for performing CRUD operations on {@link AbstractBook} entities.
+ * Lookups and searches return read-only {@link BookView}s instead of managed entities.
  */
 @Repository
-public interface BookRepository extends JpaRepository<AbstractBook, String> {
+public interface BookRepository extends JpaRepository<AbstractBook, String>, BookRepositoryCustom {
+
+  /**
+   * Select clause of the queries returning {@link BookView}s.
+   */
+  String SELECT_VIEW = "SELECT new com.krystofstanek.Azul.Intern.Task.api.model.BookView("
+          + "book.isbn, book.title, book.author, book.genre, book.price, book.quantity, book.version) "
+          + "FROM AbstractBook book ";
+
+  /**
+   * Finds a view of the book with the given ISBN.
+   *
+   * @param isbn the ISBN to look up
+   * @return the book, or empty if it does not exist
+   */
+  @Query(SELECT_VIEW + "WHERE book.isbn = :isbn")
+  Optional<BookView> findViewByIsbn(String isbn);
+
+  /**
+   * Finds views of the books with the given ISBNs.
+   *
+   * @param isbns the ISBNs to look up
+   * @return the books that exist, in no particular order
+   */
+  @Query(SELECT_VIEW + "WHERE book.isbn IN :isbns")
+  List<BookView> findViewsByIsbnIn(Collection<String> isbns);
 
   /**
    * Finds books with the specified title.
@@ -25,7 +62,9 @@ public interface BookRepository extends JpaRepository<AbstractBook, String> {
    * @param pageable pagination information
    * @return a page of books with the matching title
    */
-  Page<AbstractBook> findByTitle(String title, Pageable pageable);
+  @Query(value = SELECT_VIEW + "WHERE book.title = :title",
+          countQuery = "SELECT count(book) FROM AbstractBook book WHERE book.title = :title")
+  Page<BookView> findByTitle(String title, Pageable pageable);
 
   /**
    * Finds books by the specified author.
@@ -34,7 +73,9 @@ public interface BookRepository extends JpaRepository<AbstractBook, String> {
    * @param pageable pagination information
    * @return a page of books with the matching author
    */
-  Page<AbstractBook> findByAuthor(String author, Pageable pageable);
+  @Query(value = SELECT_VIEW + "WHERE book.author = :author",
+          countQuery = "SELECT count(book) FROM AbstractBook book WHERE book.author = :author")
+  Page<BookView> findByAuthor(String author, Pageable pageable);
 
   /**
    * Finds books in the specified genre.
@@ -43,7 +84,9 @@ public interface BookRepository extends JpaRepository<AbstractBook, String> {
    * @param pageable pagination information
    * @return a page of books with the matching genre
    */
-  Page<AbstractBook> findByGenre(Genre genre, Pageable pageable);
+  @Query(value = SELECT_VIEW + "WHERE book.genre = :genre",
+          countQuery = "SELECT count(book) FROM AbstractBook book WHERE book.genre = :genre")
+  Page<BookView> findByGenre(Genre genre, Pageable pageable);
 
 
   /**
@@ -54,6 +97,170 @@ public interface BookRepository extends JpaRepository<AbstractBook, String> {
    * @param pageable pagination information
    * @return a page of books whose price is between the specified values
    */
-  @Query("SELECT book FROM AbstractBook book WHERE book.price BETWEEN :minPrice AND :maxPrice")
-  Page<AbstractBook> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+  @Query(value = SELECT_VIEW + "WHERE book.price BETWEEN :minPrice AND :maxPrice",
+          countQuery = "SELECT count(book) FROM AbstractBook book WHERE book.price BETWEEN :minPrice AND :maxPrice")
+  Page<BookView> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+  /**
+   * Finds the books whose ISBN comes after the given one, in ISBN order.
+   * Used to walk the whole catalog in chunks without OFFSET scans.
+   *
+   * @param isbn  the last ISBN already processed, or an empty string to start from the beginning
+   * @param limit the maximum number of books to return
+   * @return the next books ordered by ISBN
+   */
+  List<AbstractBook> findByIsbnGreaterThanOrderByIsbnAsc(String isbn, Limit limit);
+
+  /**
+   * Finds books in the specified genre that come after the given position in (title, ISBN) order.
+   * Seeks directly to the position instead of skipping rows, and issues no count query.
+   *
+   * @param genre the genre to search for
+   * @param title the title of the last book already returned, or an empty string to start from the beginning
+   * @param isbn  the ISBN of the last book already returned, or an empty string to start from the beginning
+   * @param limit the maximum number of books to return
+   * @return the matching books ordered by title and ISBN
+   */
+  @Query(SELECT_VIEW + "WHERE book.genre = :genre "
+          + "AND (book.title > :title OR (book.title = :title AND book.isbn > :isbn)) "
+          + "ORDER BY book.title, book.isbn")
+  List<BookView> findByGenreAfter(Genre genre, String title, String isbn, Limit limit);
+
+  /**
+   * Finds books by the specified author that come after the given position in (title, ISBN) order.
+   *
+   * @param author the author to search for
+   * @param title  the title of the last book already returned, or an empty string to start from the beginning
+   * @param isbn   the ISBN of the last book already returned, or an empty string to start from the beginning
+   * @param limit  the maximum number of books to return
+   * @return the matching books ordered by title and ISBN
+   */
+  @Query(SELECT_VIEW + "WHERE book.author = :author "
+          + "AND (book.title > :title OR (book.title = :title AND book.isbn > :isbn)) "
+          + "ORDER BY book.title, book.isbn")
+  List<BookView> findByAuthorAfter(String author, String title, String isbn, Limit limit);
+
+  /**
+   * Finds books with the specified title whose ISBN comes after the given one.
+   *
+   * @param title the title to search for
+   * @param isbn  the ISBN of the last book already returned, or an empty string to start from the beginning
+   * @param limit the maximum number of books to return
+   * @return the matching books ordered by ISBN
+   */
+  @Query(SELECT_VIEW + "WHERE book.title = :title AND book.isbn > :isbn "
+          + "ORDER BY book.isbn")
+  List<BookView> findByTitleAfter(String title, String isbn, Limit limit);
+
+  /**
+   * Finds books within the specified price range that come after the given position in (price, ISBN) order.
+   *
+   * @param minPrice the minimum price
+   * @param maxPrice the maximum price
+   * @param price    the price of the last book already returned, or minPrice to start from the beginning
+   * @param isbn     the ISBN of the last book already returned, or an empty string to start from the beginning
+   * @param limit    the maximum number of books to return
+   * @return the matching books ordered by price and ISBN
+   */
+  @Query(SELECT_VIEW + "WHERE book.price BETWEEN :minPrice AND :maxPrice "
+          + "AND (book.price > :price OR (book.price = :price AND book.isbn > :isbn)) "
+          + "ORDER BY book.price, book.isbn")
+  List<BookView> findByPriceRangeAfter(BigDecimal minPrice, BigDecimal maxPrice,
+                                       BigDecimal price, String isbn, Limit limit);
+
+  /**
+   * Atomically increments the stock quantity of a book.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the amount to add; must be positive
+   * @return the number of updated rows, 0 if the book does not exist
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE AbstractBook book SET book.quantity = book.quantity + :amount, book.version = book.version + 1 "
+          + "WHERE book.isbn = :isbn")
+  int incrementQuantity(String isbn, int amount);
+
+  /**
+   * Atomically decrements the stock quantity of a book if more than the requested amount is in stock,
+   * so that the quantity stays above zero.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the amount to remove; must be positive
+   * @return the number of updated rows, 0 if the book does not exist or has insufficient stock
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE AbstractBook book SET book.quantity = book.quantity - :amount, book.version = book.version + 1 "
+          + "WHERE book.isbn = :isbn AND book.quantity > :amount")
+  int decrementQuantityIfAvailable(String isbn, int amount);
+
+  /**
+   * Atomically deletes a book if its stock quantity equals the given amount,
+   * i.e. if removing that amount would leave no stock.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the amount being removed
+   * @return the number of deleted rows, 0 if the book does not exist or its quantity differs
+   */
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("DELETE FROM AbstractBook book WHERE book.isbn = :isbn AND book.quantity = :amount")
+  int deleteByIsbnIfQuantityEquals(String isbn, int amount);
+
+  /**
+   * Finds the version and stock quantity of a book without loading the rest of it,
+   * which is all that is needed to answer a conditional request.
+   *
+   * @param isbn the ISBN of the book
+   * @return the version of the book, or empty if it does not exist
+   */
+  @Query("SELECT new com.krystofstanek.Azul.Intern.Task.api.model.BookVersion(book.version, book.quantity) "
+          + "FROM AbstractBook book WHERE book.isbn = :isbn")
+  Optional<BookVersion> findVersionByIsbn(String isbn);
+
+  /**
+   * Sums up the catalog per genre and price in a single aggregate query.
+   * Runs in its own read-only transaction, so it is served by a read replica when one is configured,
+   * unless the caller requires the primary.
+   *
+   * @return the number of titles and units for every combination of genre and price
+   */
+  @Transactional(readOnly = true)
+  @Query("SELECT new com.krystofstanek.Azul.Intern.Task.api.repository.GenrePriceTotals("
+          + "book.genre, book.price, count(book), sum(book.quantity)) "
+          + "FROM AbstractBook book GROUP BY book.genre, book.price")
+  List<GenrePriceTotals> findGenrePriceTotals();
+
+  /**
+   * Finds the stock quantity of a book without loading the entity.
+   *
+   * @param isbn the ISBN of the book
+   * @return the current quantity, or empty if the book does not exist
+   */
+  @Query("SELECT book.quantity FROM AbstractBook book WHERE book.isbn = :isbn")
+  Optional<Integer> findQuantityByIsbn(String isbn);
+
+  /**
+   * Streams all books in ISBN order through a forward-only database cursor.
+   * Must be consumed inside a transaction and closed afterwards.
+   *
+   * @return a stream of all books
+   */
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+          @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT book FROM AbstractBook book ORDER BY book.isbn")
+  Stream<AbstractBook> streamAll();
+
+  /**
+   * Streams the books of a genre in ISBN order through a forward-only database cursor.
+   * Must be consumed inside a transaction and closed afterwards.
+   *
+   * @param genre the genre to export
+   * @return a stream of the matching books
+   */
+  @QueryHints({
+          @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+          @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+  })
+  @Query("SELECT book FROM AbstractBook book WHERE book.genre = :genre ORDER BY book.isbn")
+  Stream<AbstractBook> streamByGenre(Genre genre);
 }
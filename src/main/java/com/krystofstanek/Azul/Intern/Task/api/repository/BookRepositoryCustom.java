@@ -0,0 +1,65 @@
+package com.krystofstanek.Azul.Intern.Task.api.repository;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Custom repository operations that need direct access to the persistence context.
+ */
+public interface BookRepositoryCustom {
+
+  /**
+   * Adds quantities to books with a single JDBC batch of upserts.
+   * A book that exists has its quantity incremented and its version bumped, and a book that does
+   * not exist is inserted with the given quantity, atomically per book, so that concurrent
+   * batches adding the same new ISBN neither fail on the primary key nor lose an increment.
+   *
+   * @param books      the books to add, with distinct ISBNs; their details are used for inserts
+   * @param quantities the quantity to add per ISBN, overriding the quantities of the books
+   */
+  void upsertQuantities(Collection<? extends AbstractBook> books, Map<String, Integer> quantities);
+
+  /**
+   * Detaches a book from the persistence context, so that it can be garbage collected
+   * while a long result stream is still being consumed.
+   *
+   * @param book the book to detach
+   */
+  void detach(AbstractBook book);
+
+  /**
+   * Finds views of the books matching a dynamic specification.
+   * Only the columns of {@link BookView} are selected, and the total count is only queried
+   * when it cannot be derived from the size of the page.
+   *
+   * @param specification the criteria to match, see {@link BookSpecifications}
+   * @param pageable      pagination and sort information
+   * @return a page of matching books
+   */
+  Page<BookView> findViews(Specification<AbstractBook> specification, Pageable pageable);
+
+  /**
+   * Adds signed deltas to the quantities of existing books with a single JDBC batch.
+   * Books that do not exist are skipped.
+   *
+   * @param deltas the quantity delta per ISBN
+   * @return the number of books updated
+   */
+  int applyQuantityDeltas(Map<String, Integer> deltas);
+
+  /**
+   * Atomically deletes a book if its stock quantity equals the given amount, and returns the
+   * deleted row as read by the same statement, so that no separate read can see an older state.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the amount being removed
+   * @return the deleted book, or empty if the book does not exist or its quantity differs
+   */
+  Optional<BookView> deleteIfQuantityEquals(String isbn, int amount);
+}
@@ -0,0 +1,191 @@
+package com.krystofstanek.Azul.Intern.Task.api.repository;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import jakarta.persistence.DiscriminatorValue;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.hibernate.Session;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+/**
+ * Implementation of {@link BookRepositoryCustom} backed by the JPA {@link EntityManager}.
+ */
+class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+  private static final String POSTGRESQL_UPSERT =
+          "INSERT INTO abstract_book (isbn, book_type, title, author, genre, price, quantity, version) "
+          + "VALUES (?, ?, ?, ?, ?, ?, ?, 0) "
+          + "ON CONFLICT (isbn) DO UPDATE SET quantity = abstract_book.quantity + EXCLUDED.quantity, "
+          + "version = abstract_book.version + 1";
+
+  private static final String MERGE_UPSERT =
+          "MERGE INTO abstract_book book USING (VALUES (CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(31)), "
+          + "CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), CAST(? AS VARCHAR(255)), "
+          + "CAST(? AS NUMERIC(38, 2)), CAST(? AS INTEGER))) "
+          + "AS incoming (isbn, book_type, title, author, genre, price, quantity) ON book.isbn = incoming.isbn "
+          + "WHEN MATCHED THEN UPDATE SET quantity = book.quantity + incoming.quantity, version = book.version + 1 "
+          + "WHEN NOT MATCHED THEN INSERT (isbn, book_type, title, author, genre, price, quantity, version) "
+          + "VALUES (incoming.isbn, incoming.book_type, incoming.title, incoming.author, incoming.genre, "
+          + "incoming.price, incoming.quantity, 0)";
+
+  private static final String DELETED_COLUMNS = "isbn, title, author, genre, price, quantity, version";
+
+  private static final String POSTGRESQL_DELETE_RETURNING =
+          "DELETE FROM abstract_book WHERE isbn = ? AND quantity = ? RETURNING " + DELETED_COLUMNS;
+
+  private static final String DELTA_TABLE_DELETE =
+          "SELECT " + DELETED_COLUMNS + " FROM OLD TABLE (DELETE FROM abstract_book WHERE isbn = ? AND quantity = ?)";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * {@inheritDoc}
+   * PostgreSQL gets {@code INSERT ... ON CONFLICT DO UPDATE}, which never raises a unique
+   * violation for a concurrent insert, and other databases the standard {@code MERGE}.
+   * Rows are written in ISBN order, so that concurrent batches lock them in the same order.
+   */
+  @Override
+  public void upsertQuantities(Collection<? extends AbstractBook> books, Map<String, Integer> quantities) {
+    if (books.isEmpty()) {
+      return;
+    }
+    List<AbstractBook> sorted = new ArrayList<>(books);
+    sorted.sort(Comparator.comparing(AbstractBook::getIsbn));
+    entityManager.flush();
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      String sql = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+              ? POSTGRESQL_UPSERT : MERGE_UPSERT;
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        for (AbstractBook book : sorted) {
+          statement.setString(1, book.getIsbn());
+          statement.setString(2, discriminatorValue(book));
+          statement.setString(3, book.getTitle());
+          statement.setString(4, book.getAuthor());
+          statement.setString(5, book.getGenre().name());
+          statement.setBigDecimal(6, book.getPrice());
+          statement.setInt(7, quantities.get(book.getIsbn()));
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    });
+    entityManager.clear();
+  }
+
+  /**
+   * {@inheritDoc}
+   * PostgreSQL gets {@code DELETE ... RETURNING}, and other databases the standard
+   * {@code OLD TABLE} data change delta table, so the row is read by the deleting statement itself.
+   */
+  @Override
+  public Optional<BookView> deleteIfQuantityEquals(String isbn, int amount) {
+    entityManager.flush();
+    BookView[] deleted = new BookView[1];
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      String sql = "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())
+              ? POSTGRESQL_DELETE_RETURNING : DELTA_TABLE_DELETE;
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        statement.setString(1, isbn);
+        statement.setInt(2, amount);
+        try (ResultSet row = statement.executeQuery()) {
+          if (row.next()) {
+            deleted[0] = new BookView(row.getString("isbn"), row.getString("title"), row.getString("author"),
+                    Genre.valueOf(row.getString("genre")), row.getBigDecimal("price"),
+                    row.getInt("quantity"), row.getLong("version"));
+          }
+        }
+      }
+    });
+    entityManager.clear();
+    return Optional.ofNullable(deleted[0]);
+  }
+
+  private static String discriminatorValue(AbstractBook book) {
+    DiscriminatorValue value = book.getClass().getAnnotation(DiscriminatorValue.class);
+    return value != null ? value.value() : book.getClass().getSimpleName();
+  }
+
+  @Override
+  public void detach(AbstractBook book) {
+    entityManager.detach(book);
+  }
+
+  @Override
+  public Page<BookView> findViews(Specification<AbstractBook> specification, Pageable pageable) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+
+    CriteriaQuery<BookView> query = cb.createQuery(BookView.class);
+    Root<AbstractBook> book = query.from(AbstractBook.class);
+    query.select(cb.construct(BookView.class, book.get("isbn"), book.get("title"), book.get("author"),
+            book.get("genre"), book.get("price"), book.get("quantity"), book.get("version")));
+    Predicate predicate = specification.toPredicate(book, query, cb);
+    if (predicate != null) {
+      query.where(predicate);
+    }
+    query.orderBy(QueryUtils.toOrders(pageable.getSort(), book, cb));
+    List<BookView> content = entityManager.createQuery(query)
+            .setFirstResult((int) pageable.getOffset())
+            .setMaxResults(pageable.getPageSize())
+            .getResultList();
+
+    return PageableExecutionUtils.getPage(content, pageable, () -> {
+      CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+      Root<AbstractBook> countRoot = countQuery.from(AbstractBook.class);
+      countQuery.select(cb.count(countRoot));
+      Predicate countPredicate = specification.toPredicate(countRoot, countQuery, cb);
+      if (countPredicate != null) {
+        countQuery.where(countPredicate);
+      }
+      return entityManager.createQuery(countQuery).getSingleResult();
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   * JPQL bulk updates cannot be batched, so the statements are sent through the JDBC connection
+   * of the current transaction.
+   */
+  @Override
+  public int applyQuantityDeltas(Map<String, Integer> deltas) {
+    if (deltas.isEmpty()) {
+      return 0;
+    }
+    entityManager.flush();
+    int[] updated = new int[1];
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(
+              "UPDATE abstract_book SET quantity = quantity + ?, version = version + 1 WHERE isbn = ?")) {
+        for (Map.Entry<String, Integer> delta : deltas.entrySet()) {
+          statement.setInt(1, delta.getValue());
+          statement.setString(2, delta.getKey());
+          statement.addBatch();
+        }
+        for (int count : statement.executeBatch()) {
+          // Drivers may report SUCCESS_NO_INFO (-2) instead of a row count.
+          updated[0] += count == PreparedStatement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+      }
+    });
+    entityManager.clear();
+    return updated[0];
+  }
+}
@@ -0,0 +1,67 @@
+package com.krystofstanek.Azul.Intern.Task.api.repository;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import java.math.BigDecimal;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Building blocks for dynamic book queries.
+ * Every factory returns a specification that matches all books when its argument is null,
+ * so criteria can be combined with {@link Specification#where} and {@code and} without null checks.
+ */
+public final class BookSpecifications {
+
+  private BookSpecifications() {
+  }
+
+  /**
+   * Matches books of the given genre.
+   *
+   * @param genre the genre, or null to match all books
+   * @return the specification
+   */
+  public static Specification<AbstractBook> hasGenre(Genre genre) {
+    return (book, query, cb) -> genre == null ? null : cb.equal(book.get("genre"), genre);
+  }
+
+  /**
+   * Matches books by the given author.
+   *
+   * @param author the author, or null to match all books
+   * @return the specification
+   */
+  public static Specification<AbstractBook> hasAuthor(String author) {
+    return (book, query, cb) -> author == null ? null : cb.equal(book.get("author"), author);
+  }
+
+  /**
+   * Matches books with the given title.
+   *
+   * @param title the title, or null to match all books
+   * @return the specification
+   */
+  public static Specification<AbstractBook> hasTitle(String title) {
+    return (book, query, cb) -> title == null ? null : cb.equal(book.get("title"), title);
+  }
+
+  /**
+   * Matches books priced at or above the given price.
+   *
+   * @param minPrice the minimum price (inclusive), or null to match all books
+   * @return the specification
+   */
+  public static Specification<AbstractBook> priceAtLeast(BigDecimal minPrice) {
+    return (book, query, cb) -> minPrice == null ? null : cb.greaterThanOrEqualTo(book.get("price"), minPrice);
+  }
+
+  /**
+   * Matches books priced at or below the given price.
+   *
+   * @param maxPrice the maximum price (inclusive), or null to match all books
+   * @return the specification
+   */
+  public static Specification<AbstractBook> priceAtMost(BigDecimal maxPrice) {
+    return (book, query, cb) -> maxPrice == null ? null : cb.lessThanOrEqualTo(book.get("price"), maxPrice);
+  }
+}
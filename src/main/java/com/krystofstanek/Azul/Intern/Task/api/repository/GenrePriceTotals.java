@@ -0,0 +1,15 @@
+package com.krystofstanek.Azul.Intern.Task.api.repository;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import java.math.BigDecimal;
+
+/**
+ * Number of titles and units in stock for one combination of genre and price.
+ *
+ * @param genre  the genre
+ * @param price  the price
+ * @param titles the number of books with this genre and price
+ * @param units  the total quantity in stock of these books
+ */
+public record GenrePriceTotals(Genre genre, BigDecimal price, Long titles, Long units) {
+}
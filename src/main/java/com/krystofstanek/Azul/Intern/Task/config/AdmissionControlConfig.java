@@ -0,0 +1,103 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.krystofstanek.Azul.Intern.Task.config.AdmissionControlFilter.RequestClass;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.Locale;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Configures admission control when {@code bookstore.admission.enabled} is {@code true},
+ * see {@link AdmissionControlFilter}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bookstore.admission.enabled", havingValue = "true")
+public class AdmissionControlConfig {
+
+  /**
+   * Creates the admission control filter.
+   *
+   * @param ratePerSecond     the sustained number of requests per second of one client
+   * @param burst             the number of requests a client may send at once
+   * @param maxClients        the maximum number of clients tracked individually
+   * @param lookupConcurrency the maximum number of lookups by ISBN processed at once
+   * @param searchConcurrency the maximum number of searches processed at once
+   * @param exportConcurrency the maximum number of exports processed at once
+   * @param maxQueued         the maximum number of requests per class waiting for a permit
+   * @param queueTimeoutMs    how long a request waits for a permit
+   * @return the filter
+   */
+  @Bean
+  public AdmissionControlFilter admissionControlFilter(
+          @Value("${bookstore.admission.rate-per-second:50}") double ratePerSecond,
+          @Value("${bookstore.admission.burst:100}") int burst,
+          @Value("${bookstore.admission.max-clients:10000}") int maxClients,
+          @Value("${bookstore.admission.lookup-concurrency:200}") int lookupConcurrency,
+          @Value("${bookstore.admission.search-concurrency:32}") int searchConcurrency,
+          @Value("${bookstore.admission.export-concurrency:4}") int exportConcurrency,
+          @Value("${bookstore.admission.max-queued:64}") int maxQueued,
+          @Value("${bookstore.admission.queue-timeout-ms:50}") long queueTimeoutMs) {
+    return new AdmissionControlFilter(ratePerSecond, burst, maxClients, lookupConcurrency, searchConcurrency,
+            exportConcurrency, maxQueued, Duration.ofMillis(queueTimeoutMs));
+  }
+
+  /**
+   * Registers the admission control filter ahead of Spring Security, so that rejected requests
+   * never reach authentication and its password hashing. It runs after the {@code ForwardedHeaderFilter}
+   * registered by {@code server.forward-headers-strategy=framework}, which has the highest precedence.
+   *
+   * @param filter the filter
+   * @return the registration
+   */
+  @Bean
+  public FilterRegistrationBean<AdmissionControlFilter> admissionControlFilterRegistration(
+          AdmissionControlFilter filter) {
+    FilterRegistrationBean<AdmissionControlFilter> registration = new FilterRegistrationBean<>(filter);
+    registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+    return registration;
+  }
+
+  /**
+   * Publishes the rejections, in-flight requests and queue depths of the filter as
+   * {@code bookstore.admission.*} meters.
+   *
+   * @param filter the filter
+   * @return the binder
+   */
+  @Bean
+  public MeterBinder admissionControlMetrics(AdmissionControlFilter filter) {
+    return registry -> {
+      FunctionCounter.builder("bookstore.admission.rejections", filter, AdmissionControlFilter::rateLimitedCount)
+              .description("Requests rejected by admission control")
+              .tag("reason", "rate_limited")
+              .tag("class", "any")
+              .register(registry);
+      Gauge.builder("bookstore.admission.clients", filter, AdmissionControlFilter::clientCount)
+              .description("Clients with a rate limit bucket")
+              .register(registry);
+      for (RequestClass requestClass : new RequestClass[] {RequestClass.LOOKUP, RequestClass.SEARCH, RequestClass.EXPORT}) {
+        String tag = requestClass.name().toLowerCase(Locale.ROOT);
+        FunctionCounter.builder("bookstore.admission.rejections", filter, f -> f.overloadedCount(requestClass))
+                .description("Requests rejected by admission control")
+                .tag("reason", "overloaded")
+                .tag("class", tag)
+                .register(registry);
+        Gauge.builder("bookstore.admission.in_flight", filter, f -> f.inFlight(requestClass))
+                .description("Requests holding a concurrency permit")
+                .tag("class", tag)
+                .register(registry);
+        Gauge.builder("bookstore.admission.queued", filter, f -> f.queued(requestClass))
+                .description("Requests waiting for a concurrency permit")
+                .tag("class", tag)
+                .register(registry);
+      }
+    };
+  }
+}
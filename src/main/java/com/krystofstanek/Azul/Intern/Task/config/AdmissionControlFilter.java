@@ -0,0 +1,336 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sheds load at the edge of {@code /books} before it reaches Spring Security, the controller
+ * or the connection pool.
+ *
+ * <p>Every client, identified by its remote address, has a token bucket refilled at a fixed rate.
+ * Behind a proxy, the remote address is the proxy's unless {@code server.forward-headers-strategy} is set:
+ * {@code native} makes the container, and {@code framework} the {@code ForwardedHeaderFilter} that runs
+ * before this filter, report the client address from the forwarded headers. Only enable either when every
+ * request passes through a proxy that overwrites those headers, since clients could otherwise choose
+ * their own address and bucket.
+ * The bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm), so admitting a request is one compare-and-set.
+ * A client that has used up its burst gets {@code 429 Too Many Requests}.
+ *
+ * <p>Lookups by ISBN, the expensive searches and the export have separate concurrency limits, so a burst
+ * of searches cannot starve cheap lookups, and long downloads cannot hold the permits of searches. A request over the limit waits in a short, bounded queue
+ * and gets {@code 503 Service Unavailable} if no permit frees up in time. Both rejections carry
+ * {@code Retry-After} and are answered without touching the rest of the application.
+ */
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+  /**
+   * The classes of requests with their own concurrency limit.
+   */
+  public enum RequestClass {
+    /** {@code GET /books/{isbn}}. */
+    LOOKUP,
+    /** The paginated searches and the multi-gets by ISBN. */
+    SEARCH,
+    /** {@code GET /books/export}, which streams the whole catalog. */
+    EXPORT,
+    /** Everything else, which is only rate limited. */
+    OTHER
+  }
+
+  private static final Set<String> SEARCH_PATHS = Set.of(
+          "/books/search", "/books/search/text", "/books/genre", "/books/author",
+          "/books/title", "/books/price");
+  private static final Set<String> NON_LOOKUP_PATHS = Set.of(
+          "/books/aggregates", "/books/changes", "/books/import", "/books/batch");
+
+  private final long emissionIntervalNanos;
+  private final long burstToleranceNanos;
+  private final int maxClients;
+  private final LongSupplier clock;
+  private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+  // Shared by all clients arriving while the bucket map is full.
+  private final AtomicLong overflowBucket = new AtomicLong(Long.MIN_VALUE);
+  private final Map<RequestClass, Limit> limits = new EnumMap<>(RequestClass.class);
+  private final LongAdder rateLimited = new LongAdder();
+
+  /**
+   * Creates a new {@code AdmissionControlFilter} using {@link System#nanoTime()} as its clock.
+   *
+   * @param ratePerSecond     the sustained number of requests per second of one client
+   * @param burst             the number of requests a client may send at once
+   * @param maxClients        the maximum number of clients tracked individually
+   * @param lookupConcurrency the maximum number of lookups by ISBN processed at once
+   * @param searchConcurrency the maximum number of searches processed at once
+   * @param exportConcurrency the maximum number of exports processed at once
+   * @param maxQueued         the maximum number of requests per class waiting for a permit
+   * @param queueTimeout      how long a request waits for a permit
+   */
+  public AdmissionControlFilter(double ratePerSecond, int burst, int maxClients,
+                                int lookupConcurrency, int searchConcurrency, int exportConcurrency,
+                                int maxQueued, Duration queueTimeout) {
+    this(ratePerSecond, burst, maxClients, lookupConcurrency, searchConcurrency, exportConcurrency,
+            maxQueued, queueTimeout, System::nanoTime);
+  }
+
+  /**
+   * Creates a new {@code AdmissionControlFilter} with the given clock.
+   *
+   * @param ratePerSecond     the sustained number of requests per second of one client
+   * @param burst             the number of requests a client may send at once
+   * @param maxClients        the maximum number of clients tracked individually
+   * @param lookupConcurrency the maximum number of lookups by ISBN processed at once
+   * @param searchConcurrency the maximum number of searches processed at once
+   * @param exportConcurrency the maximum number of exports processed at once
+   * @param maxQueued         the maximum number of requests per class waiting for a permit
+   * @param queueTimeout      how long a request waits for a permit
+   * @param clock             the source of the current time in nanoseconds
+   * @throws IllegalArgumentException if a rate, size or limit is not positive
+   */
+  public AdmissionControlFilter(double ratePerSecond, int burst, int maxClients,
+                                int lookupConcurrency, int searchConcurrency, int exportConcurrency,
+                                int maxQueued, Duration queueTimeout, LongSupplier clock) {
+    if (ratePerSecond <= 0 || burst <= 0 || maxClients <= 0
+            || lookupConcurrency <= 0 || searchConcurrency <= 0 || exportConcurrency <= 0) {
+      throw new IllegalArgumentException("Admission control rates and limits must be greater than zero.");
+    }
+    if (maxQueued < 0) {
+      throw new IllegalArgumentException("Admission control queue size must not be negative.");
+    }
+    this.emissionIntervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+    this.burstToleranceNanos = emissionIntervalNanos * (burst - 1);
+    this.maxClients = maxClients;
+    this.clock = clock;
+    limits.put(RequestClass.LOOKUP, new Limit(lookupConcurrency, maxQueued, queueTimeout));
+    limits.put(RequestClass.SEARCH, new Limit(searchConcurrency, maxQueued, queueTimeout));
+    limits.put(RequestClass.EXPORT, new Limit(exportConcurrency, maxQueued, queueTimeout));
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    String path = path(request);
+    return !path.equals("/books") && !path.startsWith("/books/");
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+    long waitNanos = admit(request.getRemoteAddr());
+    if (waitNanos > 0) {
+      rateLimited.increment();
+      reject(response, HttpStatus.TOO_MANY_REQUESTS, waitNanos, "Rate limit exceeded");
+      return;
+    }
+
+    Limit limit = limits.get(classify(request));
+    if (limit == null) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    boolean acquired;
+    try {
+      acquired = limit.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      acquired = false;
+    }
+    if (!acquired) {
+      reject(response, HttpStatus.SERVICE_UNAVAILABLE, TimeUnit.SECONDS.toNanos(1), "Server is overloaded");
+      return;
+    }
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      limit.release();
+    }
+  }
+
+  /**
+   * Returns the class of a request.
+   *
+   * @param request the request
+   * @return its class
+   */
+  public static RequestClass classify(HttpServletRequest request) {
+    String path = path(request);
+    // The multi-gets read up to a thousand books, like a page of a search.
+    if (HttpMethod.POST.matches(request.getMethod()) && path.equals("/books/lookup")) {
+      return RequestClass.SEARCH;
+    }
+    if (!HttpMethod.GET.matches(request.getMethod())) {
+      return RequestClass.OTHER;
+    }
+    if (SEARCH_PATHS.contains(path) || (path.equals("/books") && request.getParameter("isbn") != null)) {
+      return RequestClass.SEARCH;
+    }
+    if (path.equals("/books/export")) {
+      return RequestClass.EXPORT;
+    }
+    boolean singleSegment = path.startsWith("/books/") && path.indexOf('/', "/books/".length()) < 0;
+    return singleSegment && !NON_LOOKUP_PATHS.contains(path) ? RequestClass.LOOKUP : RequestClass.OTHER;
+  }
+
+  /**
+   * Drops the buckets of clients that have been idle long enough for their bucket to be full,
+   * as they are indistinguishable from new clients.
+   */
+  @Scheduled(fixedDelayString = "${bookstore.admission.cleanup-interval-ms:60000}")
+  public void evictIdleClients() {
+    long now = clock.getAsLong();
+    buckets.entrySet().removeIf(entry -> entry.getValue().get() - now <= 0);
+  }
+
+  /**
+   * Returns the number of requests rejected by the rate limit.
+   *
+   * @return the number of 429 responses
+   */
+  public long rateLimitedCount() {
+    return rateLimited.sum();
+  }
+
+  /**
+   * Returns the number of requests of a class rejected by its concurrency limit.
+   *
+   * @param requestClass the class
+   * @return the number of 503 responses
+   */
+  public long overloadedCount(RequestClass requestClass) {
+    Limit limit = limits.get(requestClass);
+    return limit == null ? 0 : limit.rejected.sum();
+  }
+
+  /**
+   * Returns the number of requests of a class being processed.
+   *
+   * @param requestClass the class
+   * @return the number of requests holding a permit
+   */
+  public int inFlight(RequestClass requestClass) {
+    Limit limit = limits.get(requestClass);
+    return limit == null ? 0 : limit.permits - limit.semaphore.availablePermits();
+  }
+
+  /**
+   * Returns the number of requests of a class waiting for a permit.
+   *
+   * @param requestClass the class
+   * @return the queue depth
+   */
+  public int queued(RequestClass requestClass) {
+    Limit limit = limits.get(requestClass);
+    return limit == null ? 0 : limit.queued.get();
+  }
+
+  /**
+   * Returns the number of clients with a bucket.
+   *
+   * @return the number of tracked clients
+   */
+  public int clientCount() {
+    return buckets.size();
+  }
+
+  /**
+   * Takes a token from the bucket of a client.
+   *
+   * @return 0 if the request is admitted, otherwise the nanoseconds until the next token
+   */
+  private long admit(String client) {
+    AtomicLong bucket = buckets.get(client);
+    if (bucket == null) {
+      bucket = buckets.size() < maxClients
+              ? buckets.computeIfAbsent(client, key -> new AtomicLong(Long.MIN_VALUE))
+              : overflowBucket;
+    }
+    long now = clock.getAsLong();
+    while (true) {
+      long fullAt = bucket.get();
+      // A bucket that was full before now does not carry credit into the future.
+      long base = fullAt == Long.MIN_VALUE || fullAt - now < 0 ? now : fullAt;
+      long wait = base - now - burstToleranceNanos;
+      if (wait > 0) {
+        return wait;
+      }
+      if (bucket.compareAndSet(fullAt, base + emissionIntervalNanos)) {
+        return 0;
+      }
+    }
+  }
+
+  private static void reject(HttpServletResponse response, HttpStatus status, long waitNanos, String message)
+          throws IOException {
+    long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    response.setStatus(status.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+    response.setContentType("text/plain");
+    response.getWriter().write(message);
+  }
+
+  private static String path(HttpServletRequest request) {
+    return request.getRequestURI().substring(request.getContextPath().length());
+  }
+
+  /**
+   * A concurrency limit with a bounded queue of waiting requests.
+   */
+  private static final class Limit {
+
+    private final int permits;
+    private final Semaphore semaphore;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    private Limit(int permits, int maxQueued, Duration queueTimeout) {
+      this.permits = permits;
+      this.semaphore = new Semaphore(permits);
+      this.maxQueued = maxQueued;
+      this.queueTimeoutNanos = queueTimeout.toNanos();
+    }
+
+    private boolean acquire() throws InterruptedException {
+      if (semaphore.tryAcquire()) {
+        return true;
+      }
+      if (queued.incrementAndGet() > maxQueued) {
+        queued.decrementAndGet();
+        rejected.increment();
+        return false;
+      }
+      try {
+        if (semaphore.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+          return true;
+        }
+        rejected.increment();
+        return false;
+      } finally {
+        queued.decrementAndGet();
+      }
+    }
+
+    private void release() {
+      semaphore.release();
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Registers the binary Jackson formats Smile ({@code application/x-jackson-smile}) and CBOR
+ * ({@code application/cbor}) next to JSON, selected by the {@code Accept} and {@code Content-Type}
+ * headers. Both encode numbers, including prices, in binary, and Smile also back-references
+ * repeated field names, which makes pages of books considerably smaller.
+ * The mappers are built from the application's {@link Jackson2ObjectMapperBuilder}, so they
+ * share the JSON configuration; JSON stays the default for clients that accept anything.
+ */
+@Configuration(proxyBeanMethods = false)
+public class BinaryFormatConfig {
+
+  /**
+   * Creates the Smile message converter.
+   *
+   * @param builder the object mapper builder configured by Spring Boot
+   * @return the converter
+   */
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+  }
+
+  /**
+   * Creates the CBOR message converter.
+   *
+   * @param builder the object mapper builder configured by Spring Boot
+   * @return the converter
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+}
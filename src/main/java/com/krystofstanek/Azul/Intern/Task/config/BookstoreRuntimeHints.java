@@ -0,0 +1,33 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.InventoryChange;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.data.web.PagedModel;
+
+/**
+ * Registers the reflection hints a native image needs beyond those inferred by Spring's AOT processing.
+ * Request and response types declared by the controllers are detected automatically; this covers
+ * the types serialized elsewhere or hidden behind {@code Page}, and the entities,
+ * whose Lombok-generated accessors and protected constructors Jackson and Hibernate call reflectively.
+ */
+public class BookstoreRuntimeHints implements RuntimeHintsRegistrar {
+
+  private final BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    // Pages are serialized through PagedModel, the export writes entities and the change stream sends
+    // InventoryChange events
+    bindings.registerReflectionHints(hints.reflection(), PagedModel.class,
+            AbstractBook.class, SimpleBook.class, InventoryChange.class);
+    for (Class<?> entity : new Class<?>[] {AbstractBook.class, SimpleBook.class}) {
+      hints.reflection().registerType(entity, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+              MemberCategory.INVOKE_PUBLIC_METHODS, MemberCategory.DECLARED_FIELDS);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.krystofstanek.Azul.Intern.Task.util.BoundedTtlCache;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Remembers successful username and password verifications for a short time, so that clients
+ * sending HTTP Basic credentials with every request do not pay for the password hash every time.
+ *
+ * <p>Entries are keyed by an HMAC-SHA256 of the username and password under a random key that
+ * only lives in memory, so the cache holds neither the password nor anything that can be checked
+ * against it offline. Failed verifications are never cached. All entries are dropped whenever a
+ * user changes, see {@link ObservableUserDetailsManager}.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+  private static final String ALGORITHM = "HmacSHA256";
+
+  private final AuthenticationProvider delegate;
+  private final BoundedTtlCache<String, Authentication> cache;
+  private final SecretKeySpec key;
+
+  /**
+   * Creates a new {@code CachingAuthenticationProvider}.
+   *
+   * @param delegate the provider verifying the credentials on a cache miss
+   * @param maxSize  the maximum number of cached verifications
+   * @param ttl      how long a verification is remembered
+   */
+  public CachingAuthenticationProvider(AuthenticationProvider delegate, int maxSize, Duration ttl) {
+    this.delegate = delegate;
+    this.cache = new BoundedTtlCache<>(maxSize, ttl.toNanos());
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.key = new SecretKeySpec(secret, ALGORITHM);
+  }
+
+  @Override
+  public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+    if (!(authentication instanceof UsernamePasswordAuthenticationToken)
+            || !(authentication.getCredentials() instanceof String password)) {
+      return delegate.authenticate(authentication);
+    }
+    String fingerprint = fingerprint(authentication.getName(), password);
+    Authentication cached = cache.get(fingerprint);
+    if (cached != null) {
+      return cached;
+    }
+    long stamp = cache.stamp();
+    Authentication result = delegate.authenticate(authentication);
+    if (result != null && result.isAuthenticated()) {
+      cache.putIfNotInvalidated(fingerprint, result, stamp);
+    }
+    return result;
+  }
+
+  @Override
+  public boolean supports(Class<?> authentication) {
+    return delegate.supports(authentication);
+  }
+
+  /**
+   * Forgets all verifications, so that changed passwords, roles or account states take effect
+   * with the next request.
+   */
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  /**
+   * Returns the hit, miss and eviction counters of the cache.
+   *
+   * @return the cache statistics
+   */
+  public BoundedTtlCache.Stats stats() {
+    return cache.stats();
+  }
+
+  private String fingerprint(String username, String password) {
+    try {
+      Mac mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      mac.update(username.getBytes(StandardCharsets.UTF_8));
+      // Usernames cannot contain NUL, so the boundary between username and password is unambiguous.
+      mac.update((byte) 0);
+      return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("HMAC-SHA256 is not available", e);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.provisioning.UserDetailsManager;
+
+/**
+ * A {@link UserDetailsManager} that notifies listeners after any user was created, changed
+ * or deleted, so that state derived from users, such as cached credential verifications,
+ * can be dropped.
+ */
+public class ObservableUserDetailsManager implements UserDetailsManager, UserDetailsPasswordService {
+
+  private final UserDetailsManager delegate;
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a new {@code ObservableUserDetailsManager}.
+   *
+   * @param delegate the manager storing the users; must also implement {@link UserDetailsPasswordService}
+   *                 if password encodings are to be upgraded
+   */
+  public ObservableUserDetailsManager(UserDetailsManager delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Registers a listener called after every change to a user.
+   *
+   * @param listener the listener
+   */
+  public void addChangeListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+    return delegate.loadUserByUsername(username);
+  }
+
+  @Override
+  public boolean userExists(String username) {
+    return delegate.userExists(username);
+  }
+
+  @Override
+  public void createUser(UserDetails user) {
+    delegate.createUser(user);
+    changed();
+  }
+
+  @Override
+  public void updateUser(UserDetails user) {
+    delegate.updateUser(user);
+    changed();
+  }
+
+  @Override
+  public void deleteUser(String username) {
+    delegate.deleteUser(username);
+    changed();
+  }
+
+  @Override
+  public void changePassword(String oldPassword, String newPassword) {
+    delegate.changePassword(oldPassword, newPassword);
+    changed();
+  }
+
+  @Override
+  public UserDetails updatePassword(UserDetails user, String newPassword) {
+    if (!(delegate instanceof UserDetailsPasswordService passwordService)) {
+      return user;
+    }
+    UserDetails updated = passwordService.updatePassword(user, newPassword);
+    changed();
+    return updated;
+  }
+
+  private void changed() {
+    for (Runnable listener : listeners) {
+      listener.run();
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Routes all reads of a request to the primary database when the request carries
+ * {@code X-Read-Your-Writes: true}, so that a client sees its own writes despite replication lag.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+  /**
+   * The request header that requires reads from the primary.
+   */
+  public static final String HEADER = "X-Read-Your-Writes";
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+    if (!Boolean.parseBoolean(request.getHeader(HEADER))) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    ReplicaRoutingDataSource.setPrimaryRequired(true);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      ReplicaRoutingDataSource.setPrimaryRequired(false);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Configures read replicas when {@code bookstore.replica.urls} is set.
+ * The primary pool is built from the usual {@code spring.datasource.*} properties, and every replica
+ * gets its own read-only pool. The application data source routes read-only transactions to the
+ * replicas, see {@link ReplicaRoutingDataSource}, and requests can opt into reading from the primary
+ * with the {@link ReadYourWritesFilter} header.
+ */
+@Configuration
+@ConditionalOnProperty("bookstore.replica.urls")
+public class ReplicaDataSourceConfig {
+
+  /**
+   * Creates the connection pool of the primary database.
+   *
+   * @param properties the {@code spring.datasource.*} properties
+   * @return the primary pool
+   */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    primary.setPoolName("primary");
+    return primary;
+  }
+
+  /**
+   * Creates the replica pools and the data source that routes between them and the primary.
+   *
+   * @param primaryDataSource   the primary pool
+   * @param properties          the {@code spring.datasource.*} properties, for the driver
+   * @param urls                the JDBC URLs of the replicas
+   * @param username            the user name for the replicas
+   * @param password            the password for the replicas
+   * @param maximumPoolSize     the maximum number of connections per replica
+   * @param connectionTimeoutMs how long to wait for a replica connection before falling back to the primary
+   * @param retryAfterMs        how long a failed replica is skipped before it is tried again
+   * @param meterRegistry       the registry for the pool metrics of the replicas, if any
+   * @return the routing data source
+   */
+  @Bean
+  public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                               DataSourceProperties properties,
+                               @Value("${bookstore.replica.urls}") List<String> urls,
+                               @Value("${bookstore.replica.username:${spring.datasource.username:}}") String username,
+                               @Value("${bookstore.replica.password:${spring.datasource.password:}}") String password,
+                               @Value("${bookstore.replica.maximum-pool-size:10}") int maximumPoolSize,
+                               @Value("${bookstore.replica.connection-timeout-ms:1000}") long connectionTimeoutMs,
+                               @Value("${bookstore.replica.retry-after-ms:5000}") long retryAfterMs,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+    List<DataSource> replicas = new ArrayList<>();
+    for (String url : urls) {
+      HikariDataSource replica = new HikariDataSource();
+      replica.setPoolName("replica-" + (replicas.size() + 1));
+      replica.setJdbcUrl(url.trim());
+      replica.setDriverClassName(properties.determineDriverClassName());
+      replica.setUsername(username);
+      replica.setPassword(password);
+      replica.setReadOnly(true);
+      replica.setMaximumPoolSize(maximumPoolSize);
+      replica.setConnectionTimeout(connectionTimeoutMs);
+      // Start even if a replica is down; reads fall back to the primary until it is back
+      replica.setInitializationFailTimeout(-1);
+      meterRegistry.ifAvailable(registry -> replica.setMetricsTrackerFactory(
+              new MicrometerMetricsTrackerFactory(registry)));
+      replicas.add(replica);
+    }
+    return new ReplicaRoutingDataSource(primaryDataSource, replicas, TimeUnit.MILLISECONDS.toNanos(retryAfterMs));
+  }
+
+  /**
+   * Creates the application data source. Connections are obtained lazily, at the first statement,
+   * so that the routing sees whether the transaction is read-only.
+   *
+   * @param routingDataSource the routing data source
+   * @return the application data source
+   */
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+    return new LazyConnectionDataSourceProxy(routingDataSource);
+  }
+
+  /**
+   * Creates the filter that lets requests read from the primary.
+   *
+   * @return the filter
+   */
+  @Bean
+  public ReadYourWritesFilter readYourWritesFilter() {
+    return new ReadYourWritesFilter();
+  }
+}
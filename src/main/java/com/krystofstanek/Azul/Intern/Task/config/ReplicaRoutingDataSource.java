@@ -0,0 +1,126 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes connections of read-only transactions to read replicas and everything else to the primary.
+ * Replicas are used round-robin. A replica that fails to hand out a connection is skipped for a
+ * retry interval, and when no replica is available the primary serves the read.
+ * The current thread can require the primary for reads, to see its own writes despite replication lag.
+ *
+ * <p>The routing decision is made when the connection is obtained, so this data source must be wrapped
+ * in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: the transaction manager
+ * then marks the transaction read-only before the first statement fetches the actual connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = ThreadLocal.withInitial(() -> false);
+
+  private final DataSource primary;
+  private final List<DataSource> replicas;
+  private final long retryAfterNanos;
+  private final AtomicLongArray downUntil;
+  private final AtomicInteger next = new AtomicInteger();
+
+  /**
+   * Creates a new {@code ReplicaRoutingDataSource}.
+   *
+   * @param primary         the data source for writes and for reads that require the primary
+   * @param replicas        the read replicas; must not be empty
+   * @param retryAfterNanos how long a failed replica is skipped before it is tried again
+   */
+  public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long retryAfterNanos) {
+    if (replicas.isEmpty()) {
+      throw new IllegalArgumentException("At least one replica is required.");
+    }
+    this.primary = primary;
+    this.replicas = List.copyOf(replicas);
+    this.retryAfterNanos = retryAfterNanos;
+    this.downUntil = new AtomicLongArray(replicas.size());
+    long now = System.nanoTime();
+    for (int i = 0; i < replicas.size(); i++) {
+      downUntil.set(i, now);
+    }
+  }
+
+  /**
+   * Sets whether reads of the current thread must go to the primary.
+   * Callers must reset it to false when they are done, as threads are pooled.
+   *
+   * @param required true to route all connections of the current thread to the primary
+   */
+  public static void setPrimaryRequired(boolean required) {
+    if (required) {
+      PRIMARY_REQUIRED.set(true);
+    } else {
+      PRIMARY_REQUIRED.remove();
+    }
+  }
+
+  /**
+   * Returns whether reads of the current thread must go to the primary.
+   *
+   * @return true if all connections of the current thread are routed to the primary
+   */
+  public static boolean isPrimaryRequired() {
+    return PRIMARY_REQUIRED.get();
+  }
+
+  /**
+   * Returns a connection to a replica if the current transaction is read-only and the primary is not
+   * required, and a connection to the primary otherwise.
+   *
+   * @return the connection
+   * @throws SQLException if the primary cannot hand out a connection
+   */
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !PRIMARY_REQUIRED.get()) {
+      for (int attempt = 0; attempt < replicas.size(); attempt++) {
+        int index = Math.floorMod(next.getAndIncrement(), replicas.size());
+        if (downUntil.get(index) - System.nanoTime() > 0) {
+          continue;
+        }
+        try {
+          return replicas.get(index).getConnection();
+        } catch (SQLException e) {
+          downUntil.set(index, System.nanoTime() + retryAfterNanos);
+          log.warn("Replica {} is unavailable, reading from the primary: {}", index, e.getMessage());
+        }
+      }
+    }
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return primary.getConnection(username, password);
+  }
+
+  /**
+   * Closes the replica pools. The primary is managed separately.
+   *
+   * @throws IOException if a replica pool fails to close
+   */
+  @Override
+  public void close() throws IOException {
+    for (DataSource replica : replicas) {
+      if (replica instanceof Closeable closeable) {
+        closeable.close();
+      }
+    }
+  }
+}
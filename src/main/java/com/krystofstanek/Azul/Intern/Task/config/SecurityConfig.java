@@ -1,14 +1,20 @@
 package com.krystofstanek.Azul.Intern.Task.config;
 
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
@@ -26,19 +32,52 @@ public class SecurityConfig {
    * @return an instance of {@link UserDetailsService} containing the configured user.
    */
   @Bean
-  public UserDetailsService userDetailsService() {
+  public ObservableUserDetailsManager userDetailsService() {
     UserDetails admin = User.withDefaultPasswordEncoder()
             .username("admin")
             .password("password")
             .roles("ADMIN")
             .build();
-    return new InMemoryUserDetailsManager(admin);
+    return new ObservableUserDetailsManager(new InMemoryUserDetailsManager(admin));
+  }
+
+  /**
+   * Configures username and password authentication against the {@link UserDetailsService}.
+   * Unless disabled, successful verifications are cached for a short time, so that the password
+   * hash does not run for every request of a client using HTTP Basic; the cache is cleared
+   * whenever a user changes.
+   *
+   * @param userDetailsService the users
+   * @param cacheEnabled       whether successful verifications are cached
+   * @param cacheMaxSize       the maximum number of cached verifications
+   * @param cacheTtlSeconds    how long a verification is cached
+   * @return the authentication provider
+   */
+  @Bean
+  public AuthenticationProvider authenticationProvider(
+          ObservableUserDetailsManager userDetailsService,
+          @Value("${bookstore.security.credential-cache.enabled:true}") boolean cacheEnabled,
+          @Value("${bookstore.security.credential-cache.max-size:1000}") int cacheMaxSize,
+          @Value("${bookstore.security.credential-cache.ttl-seconds:60}") long cacheTtlSeconds) {
+    DaoAuthenticationProvider provider =
+            new DaoAuthenticationProvider(PasswordEncoderFactories.createDelegatingPasswordEncoder());
+    provider.setUserDetailsService(userDetailsService);
+    provider.setUserDetailsPasswordService(userDetailsService);
+    if (!cacheEnabled) {
+      return provider;
+    }
+    CachingAuthenticationProvider cachingProvider =
+            new CachingAuthenticationProvider(provider, cacheMaxSize, Duration.ofSeconds(cacheTtlSeconds));
+    userDetailsService.addChangeListener(cachingProvider::invalidateAll);
+    return cachingProvider;
   }
 
   /**
    * Configures the security filter chain for HTTP requests.
    * This configuration disables CSRF protection,
-   * allows GET requests to "/books/**" without authentication,
+   * allows GET requests to "/books/**", multi-gets through "POST /books/lookup" and the health endpoint
+   * without authentication,
+   * restricts the other actuator endpoints to the ADMIN role,
    * and requires authentication for all other requests. HTTP Basic authentication is used.
    *
    * @param http the {@link HttpSecurity} to configure
@@ -50,7 +89,10 @@ public class SecurityConfig {
     http
             .csrf(csrf -> csrf.disable())
             .authorizeHttpRequests(authz -> authz
+                    .requestMatchers(EndpointRequest.to("health")).permitAll()
+                    .requestMatchers(EndpointRequest.toAnyEndpoint()).hasRole("ADMIN")
                     .requestMatchers(HttpMethod.GET).permitAll()
+                    .requestMatchers(HttpMethod.POST, "/books/lookup").permitAll()
                     .anyRequest().authenticated()
             )
             .httpBasic();
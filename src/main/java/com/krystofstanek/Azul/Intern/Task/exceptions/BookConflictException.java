@@ -0,0 +1,31 @@
+package com.krystofstanek.Azul.Intern.Task.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Exception thrown when a book was changed by another request while it was being updated.
+ * This exception results in a 409 CONFLICT HTTP status; the update can be retried.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class BookConflictException extends RuntimeException {
+
+  /**
+   * Constructs a new {@code BookConflictException} with the specified detail message.
+   *
+   * @param message the detail message
+   */
+  public BookConflictException(String message) {
+    super(message);
+  }
+
+  /**
+   * Constructs a new {@code BookConflictException} with the specified detail message and cause.
+   *
+   * @param message the detail message
+   * @param cause   the optimistic locking failure
+   */
+  public BookConflictException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
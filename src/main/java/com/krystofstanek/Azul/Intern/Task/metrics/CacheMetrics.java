@@ -0,0 +1,44 @@
+package com.krystofstanek.Azul.Intern.Task.metrics;
+
+import com.krystofstanek.Azul.Intern.Task.service.BookCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the statistics of the {@link BookCache} as {@code bookstore.cache.*} meters.
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+  private final BookCache bookCache;
+
+  /**
+   * Creates a new {@code CacheMetrics}.
+   *
+   * @param bookCache the cache to publish statistics of
+   */
+  public CacheMetrics(BookCache bookCache) {
+    this.bookCache = bookCache;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("bookstore.cache.requests", bookCache, cache -> cache.stats().hits())
+            .description("Lookups by ISBN served by the cache")
+            .tag("result", "hit")
+            .register(registry);
+    FunctionCounter.builder("bookstore.cache.requests", bookCache, cache -> cache.stats().misses())
+            .description("Lookups by ISBN served by the cache")
+            .tag("result", "miss")
+            .register(registry);
+    FunctionCounter.builder("bookstore.cache.evictions", bookCache, cache -> cache.stats().evictions())
+            .description("Books evicted from the cache")
+            .register(registry);
+    Gauge.builder("bookstore.cache.size", bookCache, cache -> cache.stats().size())
+            .description("Books in the cache")
+            .register(registry);
+  }
+}
@@ -0,0 +1,62 @@
+package com.krystofstanek.Azul.Intern.Task.metrics;
+
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.ConstraintViolationException;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.method.annotation.HandlerMethodValidationException;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Counts requests that failed because a book was not found or because the input was invalid,
+ * as {@code bookstore.errors} tagged with the error type.
+ * It runs before the other exception resolvers and never resolves an exception itself,
+ * so error responses are unchanged.
+ */
+@Component
+public class ExceptionMetrics implements HandlerExceptionResolver, Ordered {
+
+  private final Counter notFound;
+  private final Counter validation;
+
+  /**
+   * Creates a new {@code ExceptionMetrics}.
+   *
+   * @param meterRegistry the registry to record metrics in
+   */
+  public ExceptionMetrics(MeterRegistry meterRegistry) {
+    this.notFound = Counter.builder("bookstore.errors")
+            .description("Requests failed because of a missing book or invalid input")
+            .tag("type", "not_found")
+            .register(meterRegistry);
+    this.validation = Counter.builder("bookstore.errors")
+            .description("Requests failed because of a missing book or invalid input")
+            .tag("type", "validation")
+            .register(meterRegistry);
+  }
+
+  @Override
+  public ModelAndView resolveException(HttpServletRequest request, HttpServletResponse response,
+                                       Object handler, Exception ex) {
+    if (ex instanceof BookNotFoundException) {
+      notFound.increment();
+    } else if (ex instanceof IllegalArgumentException
+            || ex instanceof MethodArgumentNotValidException
+            || ex instanceof HandlerMethodValidationException
+            || ex instanceof ConstraintViolationException) {
+      validation.increment();
+    }
+    return null;
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+}
@@ -0,0 +1,120 @@
+package com.krystofstanek.Azul.Intern.Task.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.BaseStream;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records metrics for the service and repository layers.
+ * Every public {@code BookService} operation is timed as {@code bookstore.service}, tagged with the
+ * operation, the filter type for attribute lookups, and the outcome.
+ * The number of rows returned or affected by every {@code BookRepository} method is recorded as
+ * {@code bookstore.repository.rows}; the per-method query timers are provided by Spring Boot as
+ * {@code spring.data.repository.invocations}.
+ */
+@Aspect
+@Component
+public class MetricsAspect {
+
+  private static final Set<String> FILTER_TYPES = Set.of("genre", "title", "author");
+
+  private final MeterRegistry meterRegistry;
+
+  /**
+   * Creates a new {@code MetricsAspect}.
+   *
+   * @param meterRegistry the registry to record metrics in
+   */
+  public MetricsAspect(MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Times a {@code BookService} operation.
+   *
+   * @param joinPoint the service call
+   * @return the result of the call
+   * @throws Throwable whatever the call throws
+   */
+  @Around("execution(public * com.krystofstanek.Azul.Intern.Task.service.BookService.*(..))")
+  public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+    String operation = joinPoint.getSignature().getName();
+    Timer.Sample sample = Timer.start(meterRegistry);
+    String outcome = "success";
+    try {
+      return joinPoint.proceed();
+    } catch (Throwable e) {
+      outcome = e.getClass().getSimpleName();
+      throw e;
+    } finally {
+      sample.stop(Timer.builder("bookstore.service")
+              .description("Time spent in BookService operations")
+              .tag("operation", operation)
+              .tag("filterType", filterType(operation, joinPoint.getArgs()))
+              .tag("outcome", outcome)
+              .publishPercentileHistogram()
+              .register(meterRegistry));
+    }
+  }
+
+  /**
+   * Counts the rows returned or affected by a {@code BookRepository} method.
+   * Streams are not counted, because counting would consume them.
+   *
+   * @param joinPoint the repository call
+   * @return the result of the call
+   * @throws Throwable whatever the call throws
+   */
+  @Around("execution(* com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository+.*(..))")
+  public Object countRows(ProceedingJoinPoint joinPoint) throws Throwable {
+    Object result = joinPoint.proceed();
+    long rows = rows(result);
+    if (rows >= 0) {
+      DistributionSummary.builder("bookstore.repository.rows")
+              .description("Rows returned or affected by BookRepository methods")
+              .baseUnit("rows")
+              .tag("method", joinPoint.getSignature().getName())
+              .register(meterRegistry)
+              .record(rows);
+    }
+    return result;
+  }
+
+  private static String filterType(String operation, Object[] args) {
+    if (!operation.startsWith("getBooksByAttribute") || args.length == 0 || !(args[0] instanceof String type)) {
+      return "none";
+    }
+    String normalized = type.toLowerCase(Locale.ROOT);
+    return FILTER_TYPES.contains(normalized) ? normalized : "invalid";
+  }
+
+  private static long rows(Object result) {
+    if (result instanceof Slice<?> slice) {
+      return slice.getNumberOfElements();
+    }
+    if (result instanceof Collection<?> collection) {
+      return collection.size();
+    }
+    if (result instanceof Optional<?> optional) {
+      return optional.isPresent() ? 1 : 0;
+    }
+    if (result instanceof Integer affected) {
+      return affected;
+    }
+    if (result == null || result instanceof Boolean || result instanceof Long
+            || result instanceof Iterable<?> || result instanceof BaseStream<?, ?>) {
+      return -1;
+    }
+    return 1;
+  }
+}
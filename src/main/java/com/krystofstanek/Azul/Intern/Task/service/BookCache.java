@@ -0,0 +1,103 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.util.BoundedTtlCache;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-process cache of book snapshots keyed by ISBN, used to serve lookups by ISBN without
+ * a database round trip.
+ * Entries are immutable {@link BookView}s, so they can be shared between requests.
+ * The cache is kept in sync by {@link BookChangedEvent}s, which are applied only after
+ * the writing transaction commits.
+ */
+@Component
+public class BookCache {
+
+  private final boolean enabled;
+  private final BoundedTtlCache<String, BookView> cache;
+
+  /**
+   * Creates a new {@code BookCache}.
+   *
+   * @param enabled    whether lookups should be cached at all
+   * @param maxSize    the maximum number of cached books
+   * @param ttlSeconds the number of seconds after which a cached book is reloaded
+   */
+  public BookCache(@Value("${bookstore.cache.enabled:true}") boolean enabled,
+                   @Value("${bookstore.cache.max-size:10000}") int maxSize,
+                   @Value("${bookstore.cache.ttl-seconds:300}") long ttlSeconds) {
+    this.enabled = enabled;
+    this.cache = new BoundedTtlCache<>(maxSize, TimeUnit.SECONDS.toNanos(ttlSeconds));
+  }
+
+  /**
+   * Returns whether lookups are cached.
+   *
+   * @return true if the cache is enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the cached snapshot of a book.
+   *
+   * @param isbn the ISBN to look up
+   * @return the cached book, or null if it is not cached
+   */
+  public BookView get(String isbn) {
+    return enabled ? cache.get(isbn) : null;
+  }
+
+  /**
+   * Returns a stamp to be passed to {@link #putIfNotInvalidated} after loading a book.
+   *
+   * @return the current invalidation stamp
+   */
+  public long stamp() {
+    return cache.stamp();
+  }
+
+  /**
+   * Caches a snapshot of a book loaded from the database, unless any book was invalidated
+   * since the stamp was taken.
+   *
+   * @param book  the loaded book
+   * @param stamp the stamp taken before loading the book
+   */
+  public void putIfNotInvalidated(BookView book, long stamp) {
+    if (enabled) {
+      cache.putIfNotInvalidated(book.isbn(), book, stamp);
+    }
+  }
+
+  /**
+   * Applies a committed change to the cache by invalidating the entry.
+   * The new state is not cached here: after-commit listeners of concurrent transactions may
+   * run in any order, so an older change could otherwise replace a newer one. The next lookup
+   * loads the committed state, and the invalidation keeps readers that started before the
+   * change from caching the old state afterwards.
+   *
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookChanged(BookChangedEvent event) {
+    if (!enabled) {
+      return;
+    }
+    cache.invalidate(event.isbn());
+  }
+
+  /**
+   * Returns the hit, miss and eviction counters of the cache.
+   *
+   * @return the cache statistics
+   */
+  public BoundedTtlCache.Stats stats() {
+    return cache.stats();
+  }
+}
@@ -0,0 +1,326 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.InventoryChange;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Publishes committed stock changes to server-sent-event subscribers, so clients can watch
+ * stock levels instead of polling {@code GET /books/{isbn}}.
+ *
+ * <p>Writers never block on subscribers: a change is put into the pending buffer of every matching
+ * subscriber and delivered later by a task on a small sender pool of its own, so slow subscribers cannot
+ * take threads from other work on the application executor. The buffer is keyed by ISBN, so a burst of
+ * changes to the same book within the coalescing window is delivered once, with its latest state; after
+ * each batch, the next one is again collected for a full window. A subscriber whose buffer holds more than
+ * {@code bookstore.stream.buffer-size} distinct books is too slow to keep up; it receives an
+ * {@code overflow} event and is disconnected, and is expected to reload the books it watches before
+ * subscribing again.
+ *
+ * <p>A send blocks while the client does not read. A subscriber whose send takes longer than
+ * {@code bookstore.stream.send-timeout-ms} is dropped: it stops receiving changes and no further sends are
+ * queued for it, and its sender thread is released once the server's write timeout fails the send.
+ */
+@Component
+public class BookChangeStream {
+
+  private static final Logger log = LoggerFactory.getLogger(BookChangeStream.class);
+  private static final int SEND_QUEUE_CAPACITY = 10_000;
+
+  private final TaskScheduler taskScheduler;
+  private final ThreadPoolTaskExecutor senderExecutor;
+  private final int bufferSize;
+  private final long coalesceMillis;
+  private final long timeoutMillis;
+  private final long sendTimeoutMillis;
+  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+  /**
+   * Creates a new {@code BookChangeStream}.
+   *
+   * @param taskScheduler     the scheduler delaying deliveries by the coalescing window
+   * @param senderThreads     the number of threads sending the events
+   * @param bufferSize        the maximum number of distinct books pending per subscriber
+   * @param coalesceMillis    how long changes are collected before they are sent
+   * @param timeoutMillis     how long a subscription lasts before the client has to reconnect
+   * @param sendTimeoutMillis how long a send may take before the subscriber is dropped
+   */
+  public BookChangeStream(TaskScheduler taskScheduler,
+                          @Value("${bookstore.stream.sender-threads:4}") int senderThreads,
+                          @Value("${bookstore.stream.buffer-size:1000}") int bufferSize,
+                          @Value("${bookstore.stream.coalesce-ms:100}") long coalesceMillis,
+                          @Value("${bookstore.stream.timeout-ms:1800000}") long timeoutMillis,
+                          @Value("${bookstore.stream.send-timeout-ms:10000}") long sendTimeoutMillis) {
+    this.taskScheduler = taskScheduler;
+    this.bufferSize = bufferSize;
+    this.coalesceMillis = coalesceMillis;
+    this.timeoutMillis = timeoutMillis;
+    this.sendTimeoutMillis = sendTimeoutMillis;
+    senderExecutor = new ThreadPoolTaskExecutor();
+    senderExecutor.setCorePoolSize(senderThreads);
+    senderExecutor.setMaxPoolSize(senderThreads);
+    senderExecutor.setQueueCapacity(SEND_QUEUE_CAPACITY);
+    senderExecutor.setThreadNamePrefix("change-stream-");
+    senderExecutor.initialize();
+  }
+
+  /**
+   * Subscribes to the changes of the given books or genres.
+   * A change matches a genre filter if the book had that genre before or after the change.
+   *
+   * @param isbns  the ISBNs to watch, or null or empty for all books
+   * @param genres the genres to watch, or null or empty for all genres
+   * @return the emitter streaming the changes
+   */
+  public SseEmitter subscribe(Collection<String> isbns, Collection<Genre> genres) {
+    SseEmitter emitter = new SseEmitter(timeoutMillis);
+    Subscriber subscriber = new Subscriber(emitter,
+            isbns == null ? Set.of() : Set.copyOf(isbns),
+            genres == null || genres.isEmpty() ? EnumSet.noneOf(Genre.class) : EnumSet.copyOf(genres));
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(error -> subscribers.remove(subscriber));
+    try {
+      // Sent right away, so the response headers are flushed before the first change.
+      emitter.send(SseEmitter.event().comment("subscribed"));
+    } catch (IOException e) {
+      emitter.completeWithError(e);
+      return emitter;
+    }
+    subscribers.add(subscriber);
+    return emitter;
+  }
+
+  /**
+   * Returns the number of open subscriptions.
+   *
+   * @return the number of subscribers
+   */
+  public int subscriberCount() {
+    return subscribers.size();
+  }
+
+  /**
+   * Queues a committed change for every matching subscriber.
+   *
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookChanged(BookChangedEvent event) {
+    if (subscribers.isEmpty()) {
+      return;
+    }
+    InventoryChange change = event.removed()
+            ? InventoryChange.removed(event.before())
+            : InventoryChange.of(event.after());
+    for (Subscriber subscriber : subscribers) {
+      if (subscriber.matches(event)) {
+        subscriber.offer(change);
+      }
+    }
+  }
+
+  /**
+   * Drops the subscribers whose current send has taken longer than the send timeout.
+   */
+  @Scheduled(fixedDelayString = "${bookstore.stream.send-timeout-ms:10000}")
+  public void dropStalledSubscribers() {
+    long now = System.currentTimeMillis();
+    for (Subscriber subscriber : subscribers) {
+      long sendingSince = subscriber.sendingSince;
+      if (sendingSince != 0 && now - sendingSince > sendTimeoutMillis) {
+        log.debug("Dropping change stream subscriber whose send has stalled");
+        subscriber.drop();
+      }
+    }
+  }
+
+  /**
+   * Ends all subscriptions when the application shuts down.
+   */
+  @PreDestroy
+  public void close() {
+    for (Subscriber subscriber : subscribers) {
+      subscriber.emitter.complete();
+    }
+    subscribers.clear();
+    senderExecutor.shutdown();
+  }
+
+  private final class Subscriber {
+
+    private final SseEmitter emitter;
+    private final Set<String> isbns;
+    private final Set<Genre> genres;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, InventoryChange> pending = new LinkedHashMap<>();
+    private boolean scheduled;
+    private boolean closed;
+    private boolean dropped;
+    /**
+     * When the send in progress started, or 0 while no send is in progress.
+     */
+    private volatile long sendingSince;
+
+    private Subscriber(SseEmitter emitter, Set<String> isbns, Set<Genre> genres) {
+      this.emitter = emitter;
+      this.isbns = isbns;
+      this.genres = genres;
+    }
+
+    private boolean matches(BookChangedEvent event) {
+      if (!isbns.isEmpty() && !isbns.contains(event.isbn())) {
+        return false;
+      }
+      return genres.isEmpty()
+              || hasGenre(event.before())
+              || hasGenre(event.after());
+    }
+
+    private boolean hasGenre(BookView view) {
+      return view != null && view.genre() != null && genres.contains(view.genre());
+    }
+
+    private void offer(InventoryChange change) {
+      lock.lock();
+      try {
+        if (closed) {
+          return;
+        }
+        if (pending.size() >= bufferSize && !pending.containsKey(change.isbn())) {
+          closed = true;
+          pending.clear();
+          subscribers.remove(this);
+          // Completing may wait for a send in progress, so it is never done on the writer's thread.
+          send(this::overflow);
+          return;
+        }
+        pending.put(change.isbn(), change);
+        if (!scheduled) {
+          scheduled = true;
+          scheduleDrain();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void scheduleDrain() {
+      taskScheduler.schedule(() -> send(this::drain), Instant.now().plusMillis(coalesceMillis));
+    }
+
+    /**
+     * Hands a task to the sender pool. A subscriber that cannot get a sender is dropped rather than
+     * holding up the scheduler or the writers; its subscription then ends with its timeout.
+     */
+    private void send(Runnable task) {
+      try {
+        senderExecutor.execute(task);
+      } catch (TaskRejectedException e) {
+        log.warn("Dropping change stream subscriber, all senders are busy");
+        drop();
+      }
+    }
+
+    /**
+     * Sends one batch and, if more changes arrived meanwhile, schedules the next one after
+     * the coalescing window.
+     */
+    private void drain() {
+      List<InventoryChange> batch;
+      lock.lock();
+      try {
+        if (closed || pending.isEmpty()) {
+          scheduled = false;
+          return;
+        }
+        batch = new ArrayList<>(pending.values());
+        pending.clear();
+      } finally {
+        lock.unlock();
+      }
+      // Changes arriving while the batch is sent are coalesced into the next one.
+      sendingSince = System.currentTimeMillis();
+      try {
+        for (InventoryChange change : batch) {
+          emitter.send(SseEmitter.event().name("change").data(change, MediaType.APPLICATION_JSON));
+        }
+      } catch (IOException | IllegalStateException e) {
+        log.debug("Dropping change stream subscriber", e);
+        disconnect();
+        return;
+      } finally {
+        sendingSince = 0;
+      }
+      boolean wasDropped;
+      lock.lock();
+      try {
+        wasDropped = dropped;
+        if (closed || pending.isEmpty()) {
+          scheduled = false;
+        } else {
+          scheduleDrain();
+        }
+      } finally {
+        lock.unlock();
+      }
+      if (wasDropped) {
+        // Dropped while the batch was sent, e.g. because the send stalled.
+        emitter.completeWithError(new IOException("Change stream subscriber dropped"));
+      }
+    }
+
+    private void overflow() {
+      try {
+        emitter.send(SseEmitter.event().name("overflow").data("Subscriber fell behind, reload and resubscribe."));
+        emitter.complete();
+      } catch (IOException | IllegalStateException e) {
+        emitter.completeWithError(e);
+      }
+    }
+
+    private void disconnect() {
+      drop();
+      emitter.completeWithError(new IOException("Change stream subscriber disconnected"));
+    }
+
+    /**
+     * Stops delivering changes to the subscriber, without touching the emitter, which may be
+     * held by a send in progress.
+     */
+    private void drop() {
+      lock.lock();
+      try {
+        closed = true;
+        dropped = true;
+        scheduled = false;
+        pending.clear();
+      } finally {
+        lock.unlock();
+      }
+      subscribers.remove(this);
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+
+/**
+ * Event published by {@link BookService} whenever a write changes a book.
+ * Listeners that keep derived state, such as the {@link BookCache}, receive it after the
+ * surrounding transaction commits.
+ * Carrying both states lets listeners that keep totals apply the change as a delta.
+ *
+ * @param isbn   the ISBN of the changed book
+ * @param before the state of the book before the change, or null if it was created
+ * @param after  the state of the book after the change, or null if it was removed
+ */
+public record BookChangedEvent(String isbn, BookView before, BookView after) {
+
+  /**
+   * Creates an event for a book that was created.
+   *
+   * @param after the new book
+   * @return the event
+   */
+  public static BookChangedEvent created(BookView after) {
+    return new BookChangedEvent(after.isbn(), null, after);
+  }
+
+  /**
+   * Creates an event for a book that changed.
+   *
+   * @param before the book before the change
+   * @param after  the book after the change
+   * @return the event
+   */
+  public static BookChangedEvent changed(BookView before, BookView after) {
+    return new BookChangedEvent(after.isbn(), before, after);
+  }
+
+  /**
+   * Creates an event for a book that was deleted.
+   *
+   * @param before the book before it was deleted
+   * @return the event
+   */
+  public static BookChangedEvent removed(BookView before) {
+    return new BookChangedEvent(before.isbn(), before, null);
+  }
+
+  /**
+   * Returns whether the book was deleted.
+   *
+   * @return true if the book no longer exists
+   */
+  public boolean removed() {
+    return after == null;
+  }
+}
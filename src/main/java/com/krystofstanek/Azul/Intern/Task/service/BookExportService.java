@@ -0,0 +1,149 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Service class for exporting the catalog.
+ * Books are read through a database cursor and written one by one, so heap use does not
+ * depend on the size of the catalog.
+ */
+@Service
+public class BookExportService {
+
+  /**
+   * Supported export formats.
+   */
+  public enum Format {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    Format(String contentType) {
+      this.contentType = contentType;
+    }
+
+    /**
+     * Returns the MIME type of the format.
+     *
+     * @return the content type
+     */
+    public String getContentType() {
+      return contentType;
+    }
+
+    /**
+     * Resolves a format from its case-insensitive name.
+     *
+     * @param name the name of the format
+     * @return the format
+     * @throws IllegalArgumentException if the name is null or unknown
+     */
+    public static Format from(String name) {
+      if (name == null) {
+        throw new IllegalArgumentException("Format must not be null");
+      }
+      try {
+        return valueOf(name.toUpperCase());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid format: " + name);
+      }
+    }
+  }
+
+  private static final String CSV_HEADER = "isbn,title,author,genre,price,quantity";
+
+  private final BookRepository bookRepository;
+  private final ObjectWriter jsonWriter;
+
+  /**
+   * Constructs a new {@code BookExportService}.
+   *
+   * @param bookRepository the repository for book data
+   * @param objectMapper   the mapper used to write NDJSON lines
+   */
+  @Autowired
+  public BookExportService(BookRepository bookRepository, ObjectMapper objectMapper) {
+    this.bookRepository = bookRepository;
+    this.jsonWriter = objectMapper.writer();
+  }
+
+  /**
+   * Writes all books, or the books of one genre, to the output stream in ISBN order.
+   * Each book is detached from the persistence context once written.
+   * The output stream is flushed but not closed.
+   *
+   * @param format the output format; must not be null
+   * @param genre  the genre to export, or null to export the whole catalog
+   * @param out    the stream to write to
+   * @throws IOException if writing fails
+   */
+  @Transactional(readOnly = true)
+  public void export(Format format, Genre genre, OutputStream out) throws IOException {
+    if (format == null) {
+      throw new IllegalArgumentException("Format must not be null");
+    }
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    if (format == Format.CSV) {
+      writer.write(CSV_HEADER);
+      writer.write('\n');
+    }
+    try (Stream<AbstractBook> books = genre == null
+            ? bookRepository.streamAll()
+            : bookRepository.streamByGenre(genre)) {
+      Iterator<AbstractBook> iterator = books.iterator();
+      while (iterator.hasNext()) {
+        AbstractBook book = iterator.next();
+        if (format == Format.CSV) {
+          writeCsvLine(writer, book);
+        } else {
+          writer.write(jsonWriter.writeValueAsString(book));
+          writer.write('\n');
+        }
+        bookRepository.detach(book);
+      }
+    }
+    writer.flush();
+  }
+
+  private static void writeCsvLine(Writer writer, AbstractBook book) throws IOException {
+    writer.write(csvField(book.getIsbn()));
+    writer.write(',');
+    writer.write(csvField(book.getTitle()));
+    writer.write(',');
+    writer.write(csvField(book.getAuthor()));
+    writer.write(',');
+    writer.write(book.getGenre().name());
+    writer.write(',');
+    writer.write(book.getPrice().toPlainString());
+    writer.write(',');
+    writer.write(Integer.toString(book.getQuantity()));
+    writer.write('\n');
+  }
+
+  /**
+   * Quotes a CSV field if it contains a separator, quote or line break, doubling embedded quotes.
+   */
+  static String csvField(String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+            && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
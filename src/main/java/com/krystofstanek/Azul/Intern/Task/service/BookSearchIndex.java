@@ -0,0 +1,618 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * In-process trigram index over book titles and authors, supporting case- and accent-insensitive
+ * substring, prefix and typo-tolerant matching.
+ * The index is built from the database once the application is ready and is then kept in sync
+ * by the {@link BookChangedEvent}s published by {@link BookService}.
+ *
+ * <p>Each indexed word contributes its padded trigrams (e.g. {@code "  h", " ha", "har", ...}),
+ * stored as packed {@code long} codes mapping to ascending arrays of internal document ids.
+ * Updating a book appends a new document and tombstones the old one; postings are compacted
+ * once tombstones outnumber live documents.
+ * A rebuild fills a new segment from the database while the current one keeps serving searches,
+ * then replays the changes made in the meantime onto the new segment and swaps it in.
+ *
+ * <p>A search scores into primitive arrays indexed by document id and keeps only the requested
+ * number of best matches in a bounded heap. The arrays are borrowed from a small pool and cleared
+ * through the list of documents the search touched, so a search neither allocates nor zeroes memory
+ * in proportion to the catalog.
+ */
+@Component
+public class BookSearchIndex {
+
+  /**
+   * The book fields that can be searched.
+   */
+  public enum Field {
+    TITLE,
+    AUTHOR,
+    ANY
+  }
+
+  /**
+   * The best matches of a search.
+   *
+   * @param isbns the ISBNs of the best matching books, best matches first
+   * @param total the number of matching books
+   */
+  public record Hits(List<String> isbns, int total) {
+  }
+
+  private static final double EXACT_BONUS = 1.0;
+  private static final double PREFIX_BONUS = 0.5;
+  private static final double SUBSTRING_SCORE = 1.0;
+
+  private final BookRepository bookRepository;
+  private final boolean enabled;
+  private final double minSimilarity;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+
+  private final ArrayBlockingQueue<Scratch> scratchPool =
+          new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors());
+
+  private Segment segment = new Segment();
+  /**
+   * The changes applied to the current segment while a rebuild is running, or null otherwise.
+   */
+  private List<Consumer<Segment>> pendingChanges;
+
+  /**
+   * Creates a new {@code BookSearchIndex}.
+   *
+   * @param bookRepository the repository used to build the index at startup
+   * @param enabled        whether the index is built and maintained at all
+   * @param minSimilarity  the minimum fraction of query trigrams a field must contain to be a fuzzy match
+   */
+  public BookSearchIndex(BookRepository bookRepository,
+                         @Value("${bookstore.search-index.enabled:true}") boolean enabled,
+                         @Value("${bookstore.search-index.min-similarity:0.6}") double minSimilarity) {
+    this.bookRepository = bookRepository;
+    this.enabled = enabled;
+    this.minSimilarity = minSimilarity;
+  }
+
+  /**
+   * Returns whether the index is enabled.
+   *
+   * @return true if searches can be served from the index
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Loads all books into a new segment and swaps it in.
+   * Changes that arrive while the database is read are applied to the current segment and
+   * recorded, then replayed in order onto the new segment before it replaces the current one,
+   * so the swap neither loses them nor lets a stale read of the scan win.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    rebuildLock.lock();
+    try {
+      lock.writeLock().lock();
+      try {
+        pendingChanges = new ArrayList<>();
+      } finally {
+        lock.writeLock().unlock();
+      }
+      Segment rebuilt = new Segment();
+      boolean scanned = false;
+      try {
+        CatalogScan.forEachBook(bookRepository,
+                book -> rebuilt.put(doc(book.getIsbn(), book.getTitle(), book.getAuthor())));
+        scanned = true;
+      } finally {
+        lock.writeLock().lock();
+        try {
+          if (scanned) {
+            pendingChanges.forEach(change -> change.accept(rebuilt));
+            segment = rebuilt;
+          }
+          pendingChanges = null;
+        } finally {
+          lock.writeLock().unlock();
+        }
+      }
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Applies a committed change to the index.
+   *
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookChanged(BookChangedEvent event) {
+    if (!enabled) {
+      return;
+    }
+    if (event.removed()) {
+      remove(event.isbn());
+    } else {
+      index(event.isbn(), event.after().title(), event.after().author());
+    }
+  }
+
+  /**
+   * Adds or replaces a book in the index.
+   *
+   * @param book the book to index
+   */
+  public void index(AbstractBook book) {
+    index(book.getIsbn(), book.getTitle(), book.getAuthor());
+  }
+
+  /**
+   * Adds or replaces a book in the index.
+   *
+   * @param isbn   the ISBN of the book
+   * @param title  the title of the book
+   * @param author the author of the book
+   */
+  public void index(String isbn, String title, String author) {
+    Doc doc = doc(isbn, title, author);
+    apply(target -> target.put(doc));
+  }
+
+  /**
+   * Removes a book from the index.
+   *
+   * @param isbn the ISBN of the book to remove
+   */
+  public void remove(String isbn) {
+    apply(target -> target.remove(isbn));
+  }
+
+  private void apply(Consumer<Segment> change) {
+    lock.writeLock().lock();
+    try {
+      change.accept(segment);
+      if (pendingChanges != null) {
+        pendingChanges.add(change);
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Searches the index and returns the ISBNs of the best matching books, best matches first.
+   * A field matches if it contains the query as a substring, or if it contains at least
+   * the configured fraction of the query's trigrams. Exact and prefix matches rank higher,
+   * and ties are broken by ISBN.
+   *
+   * @param query the text to search for; must not be null or blank
+   * @param field the field to search in
+   * @param limit the maximum number of ISBNs to return
+   * @return the ranked ISBNs of the best matching books and the number of all matching books
+   */
+  public Hits search(String query, Field field, int limit) {
+    String normalized = normalize(query);
+    if (normalized.isEmpty()) {
+      return new Hits(List.of(), 0);
+    }
+    Set<Long> fuzzyTrigrams = trigrams(normalized, true);
+    Set<Long> substringTrigrams = trigrams(normalized, false);
+
+    Scratch scratch = scratchPool.poll();
+    if (scratch == null) {
+      scratch = new Scratch();
+    }
+    lock.readLock().lock();
+    try {
+      return segment.search(normalized, fuzzyTrigrams, substringTrigrams, field, limit, scratch);
+    } finally {
+      lock.readLock().unlock();
+      scratch.clear();
+      scratchPool.offer(scratch);
+    }
+  }
+
+  private static Doc doc(String isbn, String title, String author) {
+    return new Doc(isbn, normalize(title), normalize(author));
+  }
+
+  /**
+   * The documents and postings of the index. Callers hold the write lock to modify a segment
+   * that is in use and the read lock to search it.
+   */
+  private final class Segment {
+    private Doc[] docs = new Doc[1024];
+    private int nextDocId;
+    private int deletedDocs;
+    private final Map<String, Integer> docIdByIsbn = new HashMap<>();
+    private final Map<Long, IntList> titlePostings = new HashMap<>();
+    private final Map<Long, IntList> authorPostings = new HashMap<>();
+
+    private void put(Doc doc) {
+      Integer previous = docIdByIsbn.get(doc.isbn());
+      if (previous != null && doc.equals(docs[previous])) {
+        return;
+      }
+      if (previous != null) {
+        tombstone(previous);
+      }
+      add(doc);
+      compactIfNeeded();
+    }
+
+    private void remove(String isbn) {
+      Integer previous = docIdByIsbn.remove(isbn);
+      if (previous != null) {
+        tombstone(previous);
+        compactIfNeeded();
+      }
+    }
+
+    private Hits search(String query, Set<Long> fuzzyTrigrams, Set<Long> substringTrigrams,
+                        Field field, int limit, Scratch scratch) {
+      scratch.ensureCapacity(nextDocId);
+      if (field != Field.AUTHOR) {
+        score(titlePostings, query, fuzzyTrigrams, substringTrigrams, true, scratch.scores,
+                scratch.fuzzyCounts, scratch.substringCounts, scratch.touched, scratch.matched);
+      }
+      if (field != Field.TITLE) {
+        score(authorPostings, query, fuzzyTrigrams, substringTrigrams, false, scratch.scores,
+                scratch.fuzzyCounts, scratch.substringCounts, scratch.touched, scratch.matched);
+      }
+      return top(scratch.scores, scratch.matched, limit);
+    }
+
+    /**
+     * Scores the documents of one field, keeping the best score of each document in
+     * {@code scores} and adding documents to {@code matched} the first time they score.
+     * The counts are cleared again for the documents in {@code touched}.
+     */
+    private void score(Map<Long, IntList> postings, String query, Set<Long> fuzzyTrigrams,
+                       Set<Long> substringTrigrams, boolean title, double[] scores, int[] fuzzyCounts,
+                       int[] substringCounts, IntList touched, IntList matched) {
+      touched.size = 0;
+      count(postings, fuzzyTrigrams, substringTrigrams, fuzzyCounts, substringCounts, touched);
+      for (int i = 0; i < touched.size; i++) {
+        int docId = touched.values[i];
+        double score = 0;
+        double similarity = (double) fuzzyCounts[docId] / fuzzyTrigrams.size();
+        if (similarity >= minSimilarity) {
+          score = similarity;
+        }
+        if (substringCounts[docId] == substringTrigrams.size()) {
+          Doc doc = docs[docId];
+          String value = title ? doc.title() : doc.author();
+          if (value.contains(query)) {
+            double substringScore = SUBSTRING_SCORE;
+            if (value.equals(query)) {
+              substringScore += EXACT_BONUS;
+            } else if (value.startsWith(query)) {
+              substringScore += PREFIX_BONUS;
+            }
+            score = Math.max(score, substringScore);
+          }
+        }
+        if (score > 0) {
+          if (scores[docId] == 0) {
+            matched.add(docId);
+          }
+          scores[docId] = Math.max(scores[docId], score);
+        }
+        fuzzyCounts[docId] = 0;
+        substringCounts[docId] = 0;
+      }
+    }
+
+    /**
+     * Counts the fuzzy and substring trigrams of the live documents that can still match.
+     * A document reaches the fuzzy threshold of {@code m} out of {@code n} trigrams only if it contains
+     * one of any {@code n - m + 1} of them, and contains the query as a substring only if it contains
+     * every substring trigram. So candidates are collected from the postings of the rarest
+     * {@code n - m + 1} fuzzy trigrams and the rarest substring trigram, and the other postings are
+     * only used to count the trigrams of those candidates.
+     */
+    private void count(Map<Long, IntList> postings, Set<Long> fuzzyTrigrams, Set<Long> substringTrigrams,
+                       int[] fuzzyCounts, int[] substringCounts, IntList touched) {
+      int minFuzzyCount = 1;
+      while (minFuzzyCount <= fuzzyTrigrams.size() && (double) minFuzzyCount / fuzzyTrigrams.size() < minSimilarity) {
+        minFuzzyCount++;
+      }
+      Set<Long> candidateTrigrams = new LinkedHashSet<>(
+              rarest(postings, fuzzyTrigrams, Math.max(0, fuzzyTrigrams.size() - minFuzzyCount + 1)));
+      candidateTrigrams.addAll(rarest(postings, substringTrigrams, 1));
+      Set<Long> otherTrigrams = new LinkedHashSet<>(fuzzyTrigrams);
+      otherTrigrams.addAll(substringTrigrams);
+      otherTrigrams.removeAll(candidateTrigrams);
+
+      for (long trigram : candidateTrigrams) {
+        IntList docIds = postings.get(trigram);
+        if (docIds == null) {
+          continue;
+        }
+        int fuzzy = fuzzyTrigrams.contains(trigram) ? 1 : 0;
+        int substring = substringTrigrams.contains(trigram) ? 1 : 0;
+        for (int i = 0; i < docIds.size; i++) {
+          int docId = docIds.values[i];
+          if (docs[docId] == null) {
+            continue;
+          }
+          if (fuzzyCounts[docId] == 0 && substringCounts[docId] == 0) {
+            touched.add(docId);
+          }
+          fuzzyCounts[docId] += fuzzy;
+          substringCounts[docId] += substring;
+        }
+      }
+      for (long trigram : otherTrigrams) {
+        IntList docIds = postings.get(trigram);
+        if (docIds == null) {
+          continue;
+        }
+        int fuzzy = fuzzyTrigrams.contains(trigram) ? 1 : 0;
+        int substring = substringTrigrams.contains(trigram) ? 1 : 0;
+        // Probing a long posting list for each candidate beats scanning it when candidates are few.
+        if ((long) touched.size * (32 - Integer.numberOfLeadingZeros(docIds.size)) < docIds.size) {
+          for (int i = 0; i < touched.size; i++) {
+            int docId = touched.values[i];
+            if (Arrays.binarySearch(docIds.values, 0, docIds.size, docId) >= 0) {
+              fuzzyCounts[docId] += fuzzy;
+              substringCounts[docId] += substring;
+            }
+          }
+        } else {
+          for (int i = 0; i < docIds.size; i++) {
+            int docId = docIds.values[i];
+            if (fuzzyCounts[docId] != 0 || substringCounts[docId] != 0) {
+              fuzzyCounts[docId] += fuzzy;
+              substringCounts[docId] += substring;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Returns the {@code count} trigrams with the shortest postings.
+     */
+    private List<Long> rarest(Map<Long, IntList> postings, Set<Long> trigrams, int count) {
+      List<Long> sorted = new ArrayList<>(trigrams);
+      sorted.sort(Comparator.comparingInt(trigram -> {
+        IntList docIds = postings.get(trigram);
+        return docIds == null ? 0 : docIds.size;
+      }));
+      return sorted.subList(0, Math.min(count, sorted.size()));
+    }
+
+    /**
+     * Selects the best {@code limit} matches with a heap whose root is the worst match kept.
+     */
+    private Hits top(double[] scores, IntList matched, int limit) {
+      int[] heap = new int[Math.max(0, Math.min(limit, matched.size))];
+      int size = 0;
+      for (int i = 0; i < matched.size; i++) {
+        int docId = matched.values[i];
+        if (size < heap.length) {
+          heap[size] = docId;
+          siftUp(heap, size++, scores);
+        } else if (size > 0 && ranksBefore(docId, heap[0], scores)) {
+          heap[0] = docId;
+          siftDown(heap, size, scores);
+        }
+      }
+      String[] isbns = new String[size];
+      while (size > 0) {
+        isbns[--size] = docs[heap[0]].isbn();
+        heap[0] = heap[size];
+        siftDown(heap, size, scores);
+      }
+      return new Hits(List.of(isbns), matched.size);
+    }
+
+    private void siftUp(int[] heap, int index, double[] scores) {
+      while (index > 0) {
+        int parent = (index - 1) / 2;
+        if (!ranksBefore(heap[parent], heap[index], scores)) {
+          return;
+        }
+        swap(heap, parent, index);
+        index = parent;
+      }
+    }
+
+    private void siftDown(int[] heap, int size, double[] scores) {
+      int index = 0;
+      while (true) {
+        int worst = index;
+        for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+          if (ranksBefore(heap[worst], heap[child], scores)) {
+            worst = child;
+          }
+        }
+        if (worst == index) {
+          return;
+        }
+        swap(heap, index, worst);
+        index = worst;
+      }
+    }
+
+    private void swap(int[] heap, int i, int j) {
+      int docId = heap[i];
+      heap[i] = heap[j];
+      heap[j] = docId;
+    }
+
+    private boolean ranksBefore(int docId, int otherDocId, double[] scores) {
+      int byScore = Double.compare(scores[docId], scores[otherDocId]);
+      return byScore > 0 || (byScore == 0 && docs[docId].isbn().compareTo(docs[otherDocId].isbn()) < 0);
+    }
+
+    private void add(Doc doc) {
+      if (nextDocId == docs.length) {
+        docs = Arrays.copyOf(docs, docs.length + (docs.length >> 1));
+      }
+      int docId = nextDocId++;
+      docs[docId] = doc;
+      docIdByIsbn.put(doc.isbn(), docId);
+      for (long trigram : trigrams(doc.title(), true)) {
+        titlePostings.computeIfAbsent(trigram, key -> new IntList()).add(docId);
+      }
+      for (long trigram : trigrams(doc.author(), true)) {
+        authorPostings.computeIfAbsent(trigram, key -> new IntList()).add(docId);
+      }
+    }
+
+    private void tombstone(int docId) {
+      docs[docId] = null;
+      deletedDocs++;
+    }
+
+    private void compactIfNeeded() {
+      int liveDocs = docIdByIsbn.size();
+      if (deletedDocs < Math.max(liveDocs, 1024)) {
+        return;
+      }
+      Doc[] live = new Doc[liveDocs];
+      int count = 0;
+      for (int i = 0; i < nextDocId; i++) {
+        if (docs[i] != null) {
+          live[count++] = docs[i];
+        }
+      }
+      docs = new Doc[Math.max(1024, liveDocs * 2)];
+      nextDocId = 0;
+      deletedDocs = 0;
+      docIdByIsbn.clear();
+      titlePostings.clear();
+      authorPostings.clear();
+      for (Doc doc : live) {
+        add(doc);
+      }
+    }
+  }
+
+  /**
+   * Lower-cases the text, strips diacritics and collapses everything that is not
+   * a letter or digit into single spaces.
+   */
+  static String normalize(String text) {
+    String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    StringBuilder normalized = new StringBuilder(decomposed.length());
+    for (int i = 0; i < decomposed.length(); i++) {
+      char c = decomposed.charAt(i);
+      if (Character.getType(c) == Character.NON_SPACING_MARK) {
+        continue;
+      }
+      if (Character.isLetterOrDigit(c)) {
+        normalized.append(Character.toLowerCase(c));
+      } else if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+        normalized.append(' ');
+      }
+    }
+    return normalized.toString().trim();
+  }
+
+  /**
+   * Returns the trigrams of normalized text.
+   * With full padding, every word is padded like in {@code pg_trgm}, which is used for indexing
+   * and fuzzy matching. Without it, the start of the first word and the end of the last word
+   * are left open, so the trigrams of a substring query are a subset of those of any text containing it.
+   */
+  private static Set<Long> trigrams(String text, boolean fullPadding) {
+    Set<Long> trigrams = new LinkedHashSet<>();
+    String[] words = text.split(" ");
+    for (int w = 0; w < words.length; w++) {
+      boolean padStart = fullPadding || w > 0;
+      boolean padEnd = fullPadding || w < words.length - 1;
+      String padded = (padStart ? "  " : "") + words[w] + (padEnd ? " " : "");
+      if (padded.length() < 3) {
+        padded = "  " + words[w];
+        padded = padded.substring(0, Math.min(3, padded.length()));
+      }
+      for (int i = 0; i + 3 <= padded.length(); i++) {
+        trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+      }
+    }
+    return trigrams;
+  }
+
+  private record Doc(String isbn, String title, String author) {
+  }
+
+  /**
+   * Growable array of document ids, in ascending order because ids are assigned incrementally.
+   */
+  private static final class IntList {
+    private int[] values = new int[4];
+    private int size;
+
+    private void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+
+  /**
+   * Scoring arrays indexed by document id, reused across searches. Between searches, every
+   * count and score is zero.
+   */
+  private static final class Scratch {
+    private double[] scores = new double[0];
+    private int[] fuzzyCounts = new int[0];
+    private int[] substringCounts = new int[0];
+    private final IntList touched = new IntList();
+    private final IntList matched = new IntList();
+
+    private void ensureCapacity(int docCount) {
+      if (scores.length < docCount) {
+        int capacity = docCount + (docCount >> 3);
+        scores = new double[capacity];
+        fuzzyCounts = new int[capacity];
+        substringCounts = new int[capacity];
+      }
+    }
+
+    /**
+     * Zeroes the scores of the matched documents. The counts are cleared per field, and again here
+     * in case a search ended half way through a field.
+     */
+    private void clear() {
+      for (int i = 0; i < matched.size; i++) {
+        scores[matched.values[i]] = 0;
+      }
+      for (int i = 0; i < touched.size; i++) {
+        fuzzyCounts[touched.values[i]] = 0;
+        substringCounts[touched.values[i]] = 0;
+      }
+      matched.size = 0;
+      touched.size = 0;
+    }
+  }
+}
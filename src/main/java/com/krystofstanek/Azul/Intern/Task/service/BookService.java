@@ -1,15 +1,43 @@
 package com.krystofstanek.Azul.Intern.Task.service;
 
 import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BatchItemResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookLookupResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookSearchCriteria;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookVersion;
+import com.krystofstanek.Azul.Intern.Task.api.model.CursorPage;
 import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
 import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookSpecifications;
+import com.krystofstanek.Azul.Intern.Task.config.ReplicaRoutingDataSource;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookConflictException;
 import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,56 +46,194 @@ import org.springframework.transaction.annotation.Transactional;
 /**
  * Service class for managing book operations.
  * Provides methods to add, remove, update, and retrieve books based on various attributes.
+ * Lookups and searches run in read-only transactions and return {@link BookView}s,
+ * so the persistence context neither snapshots nor dirty-checks what they read.
  */
 @Service
 public class BookService {
 
+  private static final Set<String> SORTABLE_PROPERTIES = Set.of("isbn", "title", "author", "genre", "price");
+
   private final BookRepository bookRepository;
+  private final BookCache bookCache;
+  private final BookSearchIndex searchIndex;
+  private final PriceIndex priceIndex;
+  private final StockDeltaBuffer stockDeltaBuffer;
+  private final ApplicationEventPublisher eventPublisher;
+  private final int batchChunkSize;
+  private final int lookupMaxIsbns;
 
   /**
    * Constructs a new {@code BookService} with the specified {@link BookRepository}.
    *
-   * @param bookRepository the repository for book data
+   * @param bookRepository   the repository for book data
+   * @param bookCache        the cache serving lookups by ISBN
+   * @param searchIndex      the index serving text searches
+   * @param priceIndex       the optional in-memory index serving price-range queries
+   * @param stockDeltaBuffer the optional write-behind buffer for stock changes
+   * @param eventPublisher   the publisher of {@link BookChangedEvent}s
+   * @param batchChunkSize   the number of distinct ISBNs written per chunk during bulk ingests,
+   *                         and read per query during multi-gets
+   * @param lookupMaxIsbns   the maximum number of ISBNs of a multi-get
    */
   @Autowired
-  public BookService(BookRepository bookRepository) {
+  public BookService(BookRepository bookRepository,
+                     BookCache bookCache,
+                     BookSearchIndex searchIndex,
+                     PriceIndex priceIndex,
+                     StockDeltaBuffer stockDeltaBuffer,
+                     ApplicationEventPublisher eventPublisher,
+                     @Value("${bookstore.batch.chunk-size:500}") int batchChunkSize,
+                     @Value("${bookstore.lookup.max-isbns:1000}") int lookupMaxIsbns) {
+    if (batchChunkSize <= 0) {
+      throw new IllegalArgumentException("Batch chunk size must be greater than zero.");
+    }
+    if (lookupMaxIsbns <= 0) {
+      throw new IllegalArgumentException("Lookup size limit must be greater than zero.");
+    }
     this.bookRepository = bookRepository;
+    this.bookCache = bookCache;
+    this.searchIndex = searchIndex;
+    this.priceIndex = priceIndex;
+    this.stockDeltaBuffer = stockDeltaBuffer;
+    this.eventPublisher = eventPublisher;
+    this.batchChunkSize = batchChunkSize;
+    this.lookupMaxIsbns = lookupMaxIsbns;
   }
 
   /**
    * Adds a book to the repository.
    * If a book with the same ISBN already exists,
-   * increments its quantity by the quantity of the new book.
+   * atomically increments its quantity by the quantity of the new book.
    * Otherwise, saves the new book.
+   * With the write-behind buffer enabled, the increment of an existing book is only buffered
+   * and the returned book reflects the buffered quantity.
    *
    * @param book the book to add
    * @return the saved {@link AbstractBook} instance
+   * @throws IllegalArgumentException if the book is invalid according to {@link AbstractBook#validate}
    */
   @Transactional
   public AbstractBook addBook(AbstractBook book) {
-    Optional<AbstractBook> existingBook = bookRepository.findById(book.getIsbn());
-    if (existingBook.isPresent()) {
-      AbstractBook databaseBook = existingBook.get();
-      databaseBook.updateQuantity(book.getQuantity());
-      return bookRepository.save(databaseBook);
-    } else {
-      return bookRepository.save(book);
+    // Request bodies are bound through setters and bypass the validating constructor.
+    AbstractBook.validate(book.getIsbn(), book.getTitle(), book.getAuthor(),
+            book.getGenre(), book.getPrice(), book.getQuantity());
+    if (stockDeltaBuffer.isEnabled()) {
+      BookView buffered = stockDeltaBuffer.add(book.getIsbn(), book.getQuantity());
+      if (buffered != null) {
+        return new SimpleBook(buffered.isbn(), buffered.title(), buffered.author(),
+                buffered.genre(), buffered.price(), buffered.quantity());
+      }
     }
+    if (bookRepository.incrementQuantity(book.getIsbn(), book.getQuantity()) == 1) {
+      AbstractBook saved = bookRepository.findById(book.getIsbn()).orElseThrow();
+      BookView after = BookView.of(saved);
+      eventPublisher.publishEvent(BookChangedEvent.changed(
+              after.withQuantity(after.quantity() - book.getQuantity()), after));
+      return saved;
+    }
+    AbstractBook saved = bookRepository.save(book);
+    eventPublisher.publishEvent(BookChangedEvent.created(BookView.of(saved)));
+    return saved;
+  }
+
+  /**
+   * Adds many books in one transaction.
+   * Items are validated individually, and invalid items are rejected without failing the batch.
+   * Items sharing an ISBN are merged by summing their quantities, and the details of the first
+   * occurrence are kept; an item whose quantity would overflow the merged sum is rejected.
+   * The submitted books are not modified.
+   * The distinct ISBNs are then written in chunks, each with a single JDBC batch of upserts that
+   * increments existing books and inserts new ones, so that concurrent batches adding the same
+   * new ISBN do not fail on the primary key.
+   *
+   * @param books the books to add; must not be null
+   * @return one result per submitted item, in submission order
+   * @throws IllegalArgumentException if the list of books is null
+   */
+  @Transactional
+  public List<BatchItemResult> addBooks(List<? extends AbstractBook> books) {
+    if (books == null) {
+      throw new IllegalArgumentException("Books must not be null");
+    }
+
+    BatchItemResult[] results = new BatchItemResult[books.size()];
+    Map<String, AbstractBook> firsts = new LinkedHashMap<>();
+    Map<String, Integer> quantities = new HashMap<>();
+    Map<String, List<Integer>> positions = new LinkedHashMap<>();
+    for (int i = 0; i < books.size(); i++) {
+      AbstractBook book = books.get(i);
+      if (book == null) {
+        results[i] = BatchItemResult.rejected(i, null, "Book must not be null");
+        continue;
+      }
+      try {
+        AbstractBook.validate(book.getIsbn(), book.getTitle(), book.getAuthor(),
+                book.getGenre(), book.getPrice(), book.getQuantity());
+      } catch (IllegalArgumentException e) {
+        results[i] = BatchItemResult.rejected(i, book.getIsbn(), e.getMessage());
+        continue;
+      }
+      Integer merged = quantities.get(book.getIsbn());
+      if (merged != null) {
+        try {
+          quantities.put(book.getIsbn(), Math.addExact(merged, book.getQuantity()));
+        } catch (ArithmeticException e) {
+          results[i] = BatchItemResult.rejected(i, book.getIsbn(), "Merged quantity exceeds the maximum quantity.");
+          continue;
+        }
+      } else {
+        quantities.put(book.getIsbn(), book.getQuantity());
+        firsts.put(book.getIsbn(), book);
+      }
+      positions.computeIfAbsent(book.getIsbn(), key -> new ArrayList<>()).add(i);
+    }
+
+    List<String> isbns = new ArrayList<>(firsts.keySet());
+    for (int from = 0; from < isbns.size(); from += batchChunkSize) {
+      List<String> chunk = isbns.subList(from, Math.min(from + batchChunkSize, isbns.size()));
+      List<AbstractBook> chunkBooks = new ArrayList<>(chunk.size());
+      for (String isbn : chunk) {
+        chunkBooks.add(firsts.get(isbn));
+      }
+      bookRepository.upsertQuantities(chunkBooks, quantities);
+
+      // Inserted rows start at version zero, and every increment bumps the version.
+      for (BookView after : bookRepository.findViewsByIsbnIn(chunk)) {
+        boolean created = after.version() == 0;
+        BatchItemResult.Status status = created
+                ? BatchItemResult.Status.CREATED : BatchItemResult.Status.INCREMENTED;
+        for (int index : positions.get(after.isbn())) {
+          results[index] = BatchItemResult.accepted(index, after.isbn(), status, after.quantity());
+        }
+        BookView before = after.withQuantity(after.quantity() - quantities.get(after.isbn()));
+        eventPublisher.publishEvent(created
+                ? BookChangedEvent.created(after)
+                : BookChangedEvent.changed(before, after));
+      }
+    }
+    return Arrays.asList(results);
   }
 
   /**
    * Removes a specified amount of a book's quantity from the repository.
-   * If the removal amount results in a quantity of zero, the book is deleted from the repository.
+   * The stock is adjusted with a single conditional statement, so concurrent removals
+   * can neither lose updates nor drive the quantity below zero.
+   * If the removal amount results in a quantity of zero, the book is deleted from the repository,
+   * and the published change carries the row as read by the deleting statement.
    * If the book is not found, a {@link BookNotFoundException} is thrown.
+   * With the write-behind buffer enabled, the stock is checked and changed in memory,
+   * and the change is written by the next flush.
    *
    * @param isbn           the ISBN of the book to remove; must not be null or blank
    * @param amountToRemove the amount to remove from the book's quantity; must be greater than zero
-   * @return an {@link Optional} containing the updated {@link AbstractBook} if it still exists, or empty if it was removed
-   * @throws IllegalArgumentException if the ISBN is null or blank, or if the removal amount is less than or equal to zero
+   * @return an {@link OptionalInt} containing the remaining quantity if the book still exists, or empty if it was removed
+   * @throws IllegalArgumentException if the ISBN is null or blank, if the removal amount is less than or equal to zero,
+   *                                  or if there is not enough stock available
    * @throws BookNotFoundException    if no book with the specified ISBN is found
    */
   @Transactional
-  public Optional<AbstractBook> removeBook(String isbn, int amountToRemove) {
+  public OptionalInt removeBook(String isbn, int amountToRemove) {
     if (isbn == null || isbn.isBlank()) {
       throw new IllegalArgumentException("ISBN must not be null or blank");
     }
@@ -75,20 +241,28 @@ public class BookService {
       throw new IllegalArgumentException("Amount to remove must be greater than zero.");
     }
 
-    Optional<AbstractBook> bookOptional = bookRepository.findById(isbn);
-    if (bookOptional.isEmpty()) {
-      throw new BookNotFoundException("Book with ISBN " + isbn + " not found.");
+    if (stockDeltaBuffer.isEnabled()) {
+      int remaining = stockDeltaBuffer.remove(isbn, amountToRemove);
+      if (remaining != StockDeltaBuffer.NOT_BUFFERED) {
+        return remaining == 0 ? OptionalInt.empty() : OptionalInt.of(remaining);
+      }
     }
-
-    AbstractBook book = bookOptional.get();
-    book.updateQuantity(-amountToRemove);
-
-    if (book.getQuantity() == 0) {
-      bookRepository.delete(book);
-      return Optional.empty();
+    if (bookRepository.decrementQuantityIfAvailable(isbn, amountToRemove) == 1) {
+      BookView after = bookRepository.findViewByIsbn(isbn).orElseThrow();
+      eventPublisher.publishEvent(BookChangedEvent.changed(
+              after.withQuantity(after.quantity() + amountToRemove), after));
+      return OptionalInt.of(after.quantity());
     }
-
-    return Optional.of(bookRepository.save(book));
+    // The removed view is the row the delete itself read, never an earlier unlocked read.
+    Optional<BookView> removed = bookRepository.deleteIfQuantityEquals(isbn, amountToRemove);
+    if (removed.isPresent()) {
+      eventPublisher.publishEvent(BookChangedEvent.removed(removed.get()));
+      return OptionalInt.empty();
+    }
+    if (!bookRepository.existsById(isbn)) {
+      throw new BookNotFoundException("Book with ISBN " + isbn + " not found.");
+    }
+    throw new IllegalArgumentException("Not enough stock available.");
   }
 
 
@@ -97,12 +271,17 @@ public class BookService {
    * Updates the details of an existing book.
    * The book identified by the provided ISBN is
    * updated with the details from the given updated book.
+   * Only the title, author, genre and price are updated, and those that are null keep their
+   * current values, so that a PATCH request can send just the details it changes; the reactive
+   * variant updates books the same way. The merged book is validated as a whole.
    *
    * @param updatedBook the book containing updated details; must not be null
    * @param isbn        the ISBN of the book to update; must not be null or blank
    * @return the updated {@link AbstractBook} instance
-   * @throws IllegalArgumentException if the ISBN is null or blank, or if updatedBook is null
+   * @throws IllegalArgumentException if the ISBN is null or blank, if updatedBook is null,
+   *                                  or if the merged book is invalid according to {@link AbstractBook#validate}
    * @throws BookNotFoundException if no book with the specified ISBN is found
+   * @throws BookConflictException if the book was changed by another transaction in the meantime
    */
   @Transactional
   public AbstractBook updateBook(AbstractBook updatedBook, String isbn) {
@@ -119,11 +298,25 @@ public class BookService {
     }
 
     AbstractBook existing = bookOptional.get();
-    existing.setTitle(updatedBook.getTitle());
-    existing.setAuthor(updatedBook.getAuthor());
-    existing.setGenre(updatedBook.getGenre());
-    existing.setPrice(updatedBook.getPrice());
-    return bookRepository.save(existing);
+    String title = updatedBook.getTitle() != null ? updatedBook.getTitle() : existing.getTitle();
+    String author = updatedBook.getAuthor() != null ? updatedBook.getAuthor() : existing.getAuthor();
+    Genre genre = updatedBook.getGenre() != null ? updatedBook.getGenre() : existing.getGenre();
+    BigDecimal price = updatedBook.getPrice() != null ? updatedBook.getPrice() : existing.getPrice();
+    AbstractBook.validate(existing.getIsbn(), title, author, genre, price, existing.getQuantity());
+    BookView before = BookView.of(existing);
+    existing.setTitle(title);
+    existing.setAuthor(author);
+    existing.setGenre(genre);
+    existing.setPrice(price);
+    // Flushed right away, so that the published view carries the incremented version.
+    AbstractBook saved;
+    try {
+      saved = bookRepository.saveAndFlush(existing);
+    } catch (OptimisticLockingFailureException e) {
+      throw new BookConflictException("Book was modified concurrently: " + isbn, e);
+    }
+    eventPublisher.publishEvent(BookChangedEvent.changed(before, BookView.of(saved)));
+    return saved;
   }
 
 
@@ -144,7 +337,8 @@ public class BookService {
    *                                  if page < 0 or size <= 0,
    *                                  or if an invalid genre is provided when filtering by genre
    */
-  public Page<AbstractBook> getBooksByAttribute(String filterType, String filterValue, int page, int size) {
+  @Transactional(readOnly = true)
+  public Page<BookView> getBooksByAttribute(String filterType, String filterValue, int page, int size) {
     if (filterType == null || filterType.isBlank()) {
       throw new IllegalArgumentException("Filter type must not be null or blank");
     }
@@ -159,14 +353,14 @@ public class BookService {
       case "genre":
         try {
           Genre genre = Genre.valueOf(filterValue.toUpperCase());
-          return bookRepository.findByGenre(genre, pageable);
+          return withPending(bookRepository.findByGenre(genre, pageable));
         } catch (IllegalArgumentException e) {
           throw new IllegalArgumentException("Invalid genre: " + filterValue);
         }
       case "title":
-        return bookRepository.findByTitle(filterValue, pageable);
+        return withPending(bookRepository.findByTitle(filterValue, pageable));
       case "author":
-        return bookRepository.findByAuthor(filterValue, pageable);
+        return withPending(bookRepository.findByAuthor(filterValue, pageable));
       default:
         throw new IllegalArgumentException("Invalid filter type: " + filterType);
     }
@@ -174,6 +368,8 @@ public class BookService {
 
   /**
    * Retrieves a page of books within a specified price range.
+   * Pages are always served by the database; use {@link #getBooksByPriceAfter} to page through
+   * the in-memory {@link PriceIndex}.
    *
    * @param minPrice the minimum price (inclusive); must not be negative
    * @param maxPrice the maximum price (inclusive); must not be negative and must be greater than or equal to minPrice
@@ -183,7 +379,8 @@ public class BookService {
    * @throws IllegalArgumentException if minPrice or maxPrice is negative, if minPrice is greater than maxPrice,
    *                                  or if page/size values are invalid (page < 0 or size <= 0)
    */
-  public Page<AbstractBook> getBooksByPrice(double minPrice, double maxPrice, int page, int size) {
+  @Transactional(readOnly = true)
+  public Page<BookView> getBooksByPrice(double minPrice, double maxPrice, int page, int size) {
     if (minPrice < 0 || maxPrice < 0) {
       throw new IllegalArgumentException("Prices must not be negative");
     }
@@ -194,29 +391,411 @@ public class BookService {
       throw new IllegalArgumentException("Page must be >= 0 and size must be > 0");
     }
     Pageable pageable = PageRequest.of(page, size);
-    return bookRepository.findByPriceRange(
-            BigDecimal.valueOf(minPrice),
-            BigDecimal.valueOf(maxPrice),
-            pageable);
+    return withPending(bookRepository.findByPriceRange(
+            BigDecimal.valueOf(minPrice), BigDecimal.valueOf(maxPrice), pageable));
+  }
+
+  /**
+   * Retrieves a page of books matching any combination of genre, author, title and price range.
+   * Results are sorted by the requested property, with the ISBN as a tiebreaker so that pages are stable.
+   *
+   * @param criteria the criteria to match; must not be null, absent criteria match all books
+   * @param sort     the sort order as "property" or "property,asc|desc", where property is one of
+   *                 "isbn", "title", "author", "genre" or "price"; null or blank sorts by ISBN
+   * @param page     the page number to retrieve; must be >= 0
+   * @param size     the number of items per page; must be > 0
+   * @return a page of books matching all given criteria
+   * @throws IllegalArgumentException if criteria is null, if the author or title is blank,
+   *                                  if a price is negative or minPrice is greater than maxPrice,
+   *                                  if the sort order is invalid, or if page < 0 or size <= 0
+   */
+  @Transactional(readOnly = true)
+  public Page<BookView> searchBooksByCriteria(BookSearchCriteria criteria, String sort, int page, int size) {
+    if (criteria == null) {
+      throw new IllegalArgumentException("Criteria must not be null");
+    }
+    if (criteria.author() != null && criteria.author().isBlank()) {
+      throw new IllegalArgumentException("Author must not be blank");
+    }
+    if (criteria.title() != null && criteria.title().isBlank()) {
+      throw new IllegalArgumentException("Title must not be blank");
+    }
+    BigDecimal minPrice = criteria.minPrice();
+    BigDecimal maxPrice = criteria.maxPrice();
+    if ((minPrice != null && minPrice.signum() < 0) || (maxPrice != null && maxPrice.signum() < 0)) {
+      throw new IllegalArgumentException("Prices must not be negative");
+    }
+    if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+      throw new IllegalArgumentException("minPrice cannot be greater than maxPrice");
+    }
+    if (page < 0 || size <= 0) {
+      throw new IllegalArgumentException("Page must be >= 0 and size must be > 0");
+    }
+
+    Specification<AbstractBook> specification = Specification
+            .where(BookSpecifications.hasGenre(criteria.genre()))
+            .and(BookSpecifications.hasAuthor(criteria.author()))
+            .and(BookSpecifications.hasTitle(criteria.title()))
+            .and(BookSpecifications.priceAtLeast(minPrice))
+            .and(BookSpecifications.priceAtMost(maxPrice));
+    return withPending(bookRepository.findViews(specification, PageRequest.of(page, size, parseSort(sort))));
   }
 
+  /**
+   * Parses a sort order given as "property" or "property,asc|desc" and appends the ISBN as a tiebreaker.
+   */
+  private static Sort parseSort(String sort) {
+    if (sort == null || sort.isBlank()) {
+      return Sort.by("isbn");
+    }
+    String[] parts = sort.split(",");
+    String property = parts[0].trim();
+    if (!SORTABLE_PROPERTIES.contains(property) || parts.length > 2) {
+      throw new IllegalArgumentException("Invalid sort: " + sort);
+    }
+    Sort.Direction direction = Sort.Direction.ASC;
+    if (parts.length == 2) {
+      direction = Sort.Direction.fromOptionalString(parts[1].trim())
+              .orElseThrow(() -> new IllegalArgumentException("Invalid sort: " + sort));
+    }
+    Sort order = Sort.by(direction, property);
+    return property.equals("isbn") ? order : order.and(Sort.by(direction, "isbn"));
+  }
+
+  /**
+   * Retrieves a slice of books filtered by a specified attribute using keyset pagination.
+   * Books filtered by genre or author are ordered by title and ISBN, books filtered by title by ISBN.
+   * Every slice costs the same regardless of how deep it is, and no total count is computed.
+   *
+   * @param filterType  the type of attribute to filter by (e.g., "genre", "title", "author"); must not be null or blank
+   * @param filterValue the value of the attribute to filter by; must not be null or blank
+   * @param cursor      the cursor returned with the previous slice, or null/blank for the first slice
+   * @param size        the maximum number of items per slice; must be > 0
+   * @return a slice of books matching the specified filter
+   * @throws IllegalArgumentException if filterType or filterValue is null or blank,
+   *                                  if an invalid filter type is provided, if size <= 0,
+   *                                  if the cursor is malformed,
+   *                                  or if an invalid genre is provided when filtering by genre
+   */
+  @Transactional(readOnly = true)
+  public CursorPage<BookView> getBooksByAttributeAfter(String filterType, String filterValue,
+                                                       String cursor, int size) {
+    if (filterType == null || filterType.isBlank()) {
+      throw new IllegalArgumentException("Filter type must not be null or blank");
+    }
+    if (filterValue == null || filterValue.isBlank()) {
+      throw new IllegalArgumentException("Filter value must not be null or blank");
+    }
+    if (size <= 0) {
+      throw new IllegalArgumentException("Size must be > 0");
+    }
+    KeysetCursor after = KeysetCursor.decode(cursor);
+    Limit limit = Limit.of(size + 1);
+    switch (filterType.toLowerCase()) {
+      case "genre":
+        Genre genre;
+        try {
+          genre = Genre.valueOf(filterValue.toUpperCase());
+        } catch (IllegalArgumentException e) {
+          throw new IllegalArgumentException("Invalid genre: " + filterValue);
+        }
+        return toCursorPage(bookRepository.findByGenreAfter(genre, after.sortKey(), after.isbn(), limit),
+                size, BookView::title);
+      case "title":
+        return toCursorPage(bookRepository.findByTitleAfter(filterValue, after.isbn(), limit),
+                size, book -> "");
+      case "author":
+        return toCursorPage(bookRepository.findByAuthorAfter(filterValue, after.sortKey(), after.isbn(), limit),
+                size, BookView::title);
+      default:
+        throw new IllegalArgumentException("Invalid filter type: " + filterType);
+    }
+  }
+
+  /**
+   * Retrieves a slice of books within a specified price range using keyset pagination,
+   * ordered by price and ISBN.
+   * If the in-memory {@link PriceIndex} is enabled and built, the slice is resolved from it
+   * and only the books of the slice are loaded from the database.
+   *
+   * @param minPrice the minimum price (inclusive); must not be negative
+   * @param maxPrice the maximum price (inclusive); must not be negative and must be greater than or equal to minPrice
+   * @param cursor   the cursor returned with the previous slice, or null/blank for the first slice
+   * @param size     the maximum number of items per slice; must be > 0
+   * @return a slice of books whose prices fall within the specified range
+   * @throws IllegalArgumentException if minPrice or maxPrice is negative, if minPrice is greater than maxPrice,
+   *                                  if size <= 0, or if the cursor is malformed
+   */
+  @Transactional(readOnly = true)
+  public CursorPage<BookView> getBooksByPriceAfter(double minPrice, double maxPrice, String cursor, int size) {
+    if (minPrice < 0 || maxPrice < 0) {
+      throw new IllegalArgumentException("Prices must not be negative");
+    }
+    if (minPrice > maxPrice) {
+      throw new IllegalArgumentException("minPrice cannot be greater than maxPrice");
+    }
+    if (size <= 0) {
+      throw new IllegalArgumentException("Size must be > 0");
+    }
+    KeysetCursor after = KeysetCursor.decode(cursor);
+    BigDecimal min = BigDecimal.valueOf(minPrice);
+    BigDecimal afterPrice;
+    try {
+      afterPrice = after.sortKey().isEmpty() ? min : new BigDecimal(after.sortKey());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+    if (afterPrice.stripTrailingZeros().scale() > 2) {
+      throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+    BigDecimal max = BigDecimal.valueOf(maxPrice);
+    if (priceIndex.isReady()) {
+      List<PriceIndex.Entry> entries = priceIndex.find(
+              min, max, after.sortKey().isEmpty() ? null : afterPrice, after.isbn(), size + 1);
+      List<PriceIndex.Entry> content = entries.subList(0, Math.min(size, entries.size()));
+      List<BookView> books = findAllInOrder(content.stream().map(PriceIndex.Entry::isbn).toList());
+      // The cursor comes from the index, so a book deleted since the lookup does not end the slices early.
+      String nextCursor = null;
+      if (entries.size() > size) {
+        PriceIndex.Entry last = content.get(size - 1);
+        nextCursor = new KeysetCursor(last.price().toPlainString(), last.isbn()).encode();
+      }
+      return new CursorPage<>(books.stream().map(stockDeltaBuffer::withPending).toList(), size, nextCursor);
+    }
+    List<BookView> books = bookRepository.findByPriceRangeAfter(
+            min, max, afterPrice, after.isbn(), Limit.of(size + 1));
+    return toCursorPage(books, size, book -> book.price().toPlainString());
+  }
+
+  /**
+   * Retrieves a page of books whose title and/or author match the query text.
+   * Matching is case- and accent-insensitive and covers substrings, prefixes and small typos.
+   * Results are ranked by relevance: exact matches first, then prefix and substring matches,
+   * then fuzzy matches by similarity.
+   *
+   * @param query the text to search for; must not be null or blank
+   * @param field the field to search in ("title", "author" or "any"); must not be null
+   * @param page  the page number to retrieve; must be >= 0
+   * @param size  the number of items per page; must be > 0
+   * @return a page of matching books in rank order
+   * @throws IllegalArgumentException if query is null or blank, if field is invalid,
+   *                                  or if page < 0 or size <= 0
+   * @throws IllegalStateException    if the search index is disabled
+   */
+  @Transactional(readOnly = true)
+  public Page<BookView> searchBooks(String query, String field, int page, int size) {
+    if (query == null || query.isBlank()) {
+      throw new IllegalArgumentException("Query must not be null or blank");
+    }
+    if (field == null) {
+      throw new IllegalArgumentException("Field must not be null");
+    }
+    if (page < 0 || size <= 0) {
+      throw new IllegalArgumentException("Page must be >= 0 and size must be > 0");
+    }
+    BookSearchIndex.Field searchField;
+    try {
+      searchField = BookSearchIndex.Field.valueOf(field.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid field: " + field);
+    }
+    if (!searchIndex.isEnabled()) {
+      throw new IllegalStateException("Text search is disabled");
+    }
+
+    Pageable pageable = PageRequest.of(page, size);
+    int limit = (int) Math.min(pageable.getOffset() + size, Integer.MAX_VALUE);
+    BookSearchIndex.Hits hits = searchIndex.search(query, searchField, limit);
+    int from = (int) Math.min(pageable.getOffset(), hits.isbns().size());
+    List<String> pageIsbns = hits.isbns().subList(from, hits.isbns().size());
+
+    return withPending(new PageImpl<>(findAllInOrder(pageIsbns), pageable, hits.total()));
+  }
+
+  /**
+   * Loads the books with the given ISBNs with a single query and returns them in the given order.
+   * ISBNs of books that no longer exist are skipped.
+   */
+  private List<BookView> findAllInOrder(List<String> isbns) {
+    Map<String, BookView> found = new HashMap<>();
+    for (BookView book : bookRepository.findViewsByIsbnIn(isbns)) {
+      found.put(book.isbn(), book);
+    }
+    List<BookView> books = new ArrayList<>(isbns.size());
+    for (String isbn : isbns) {
+      BookView book = found.get(isbn);
+      if (book != null) {
+        books.add(book);
+      }
+    }
+    return books;
+  }
+
+  /**
+   * Turns the result of a keyset query that fetched one item more than requested into a slice.
+   * The extra item only signals that another slice exists and is not returned.
+   */
+  private CursorPage<BookView> toCursorPage(List<BookView> books, int size,
+                                           Function<BookView, String> sortKey) {
+    if (books.size() <= size) {
+      return new CursorPage<>(books.stream().map(stockDeltaBuffer::withPending).toList(), size, null);
+    }
+    List<BookView> content = books.subList(0, size);
+    BookView last = content.get(size - 1);
+    String nextCursor = new KeysetCursor(sortKey.apply(last), last.isbn()).encode();
+    return new CursorPage<>(content.stream().map(stockDeltaBuffer::withPending).toList(), size, nextCursor);
+  }
+
+  /**
+   * Applies the quantity changes pending in the write-behind buffer to a page of books.
+   */
+  private Page<BookView> withPending(Page<BookView> books) {
+    return stockDeltaBuffer.isEnabled() ? books.map(stockDeltaBuffer::withPending) : books;
+  }
 
   /**
    * Retrieves a book by its ISBN.
+   * Lookups are served from the {@link BookCache} when possible, and include the quantity
+   * changes pending in the {@link StockDeltaBuffer}. Books that are not cached are read from
+   * the primary before being cached.
    *
    * @param isbn the ISBN to look up; must not be null/blank
-   * @return the matching AbstractBook
+   * @return the matching book
    * @throws IllegalArgumentException if the ISBN is null or blank
    * @throws BookNotFoundException if no book is found with the given ISBN
    */
-  public AbstractBook getBookByIsbn(String isbn) {
+  @Transactional(readOnly = true)
+  public BookView getBookByIsbn(String isbn) {
     if (isbn == null || isbn.isBlank()) {
       throw new IllegalArgumentException("ISBN must not be null or blank");
     }
-    Optional<AbstractBook> existingBook = bookRepository.findById(isbn);
+    BookView cached = bookCache.get(isbn);
+    if (cached != null) {
+      return withPending(cached);
+    }
+    long stamp = bookCache.stamp();
+    Optional<BookView> existingBook = readForCache(() -> bookRepository.findViewByIsbn(isbn));
     if (existingBook.isEmpty()) {
       throw new BookNotFoundException("Book with ISBN " + isbn + " not found.");
     }
-    return existingBook.get();
+    bookCache.putIfNotInvalidated(existingBook.get(), stamp);
+    return withPending(existingBook.get());
+  }
+
+  /**
+   * Retrieves many books by ISBN at once.
+   * Cached books are served from the cache, and the others are loaded from the primary with one
+   * {@code IN} query per chunk of ISBNs and then cached. Repeated ISBNs are looked up and returned once.
+   *
+   * @param isbns the ISBNs to look up; must not be null, and must contain at most the configured
+   *              number of ISBNs, none of them null or blank
+   * @return the books found and the ISBNs without a book, both in request order
+   * @throws IllegalArgumentException if the list is null or too long, or if an ISBN is null or blank
+   */
+  @Transactional(readOnly = true)
+  public BookLookupResult getBooksByIsbns(List<String> isbns) {
+    if (isbns == null) {
+      throw new IllegalArgumentException("ISBNs must not be null");
+    }
+    if (isbns.size() > lookupMaxIsbns) {
+      throw new IllegalArgumentException("At most " + lookupMaxIsbns + " ISBNs can be looked up at once");
+    }
+    Set<String> requested = new LinkedHashSet<>();
+    for (String isbn : isbns) {
+      if (isbn == null || isbn.isBlank()) {
+        throw new IllegalArgumentException("ISBN must not be null or blank");
+      }
+      requested.add(isbn);
+    }
+
+    Map<String, BookView> found = new HashMap<>();
+    List<String> uncached = new ArrayList<>();
+    for (String isbn : requested) {
+      BookView cached = bookCache.get(isbn);
+      if (cached != null) {
+        found.put(isbn, cached);
+      } else {
+        uncached.add(isbn);
+      }
+    }
+    long stamp = bookCache.stamp();
+    for (int from = 0; from < uncached.size(); from += batchChunkSize) {
+      List<String> chunk = uncached.subList(from, Math.min(from + batchChunkSize, uncached.size()));
+      for (BookView book : readForCache(() -> bookRepository.findViewsByIsbnIn(chunk))) {
+        bookCache.putIfNotInvalidated(book, stamp);
+        found.put(book.isbn(), book);
+      }
+    }
+
+    List<BookView> books = new ArrayList<>(found.size());
+    List<String> missing = new ArrayList<>();
+    for (String isbn : requested) {
+      BookView book = found.get(isbn);
+      BookView current = book == null ? null : stockDeltaBuffer.withPending(book);
+      // A book whose buffered stock dropped to zero is about to be deleted.
+      if (current == null || (current != book && current.quantity() == 0)) {
+        missing.add(isbn);
+      } else {
+        books.add(current);
+      }
+    }
+    return new BookLookupResult(books, missing);
+  }
+
+  /**
+   * Retrieves the version of a book, without loading the book if it is not cached.
+   * Used to answer conditional requests; the version changes whenever the book
+   * returned by {@link #getBookByIsbn} does. Like that lookup, it reads from the primary when
+   * the book is not cached, so that both agree.
+   *
+   * @param isbn the ISBN to look up; must not be null/blank
+   * @return the version of the book
+   * @throws IllegalArgumentException if the ISBN is null or blank
+   * @throws BookNotFoundException if no book is found with the given ISBN
+   */
+  @Transactional(readOnly = true)
+  public BookVersion getBookVersion(String isbn) {
+    if (isbn == null || isbn.isBlank()) {
+      throw new IllegalArgumentException("ISBN must not be null or blank");
+    }
+    BookView cached = bookCache.get(isbn);
+    if (cached != null) {
+      return BookVersion.of(withPending(cached));
+    }
+    BookVersion stored = readForCache(() -> bookRepository.findVersionByIsbn(isbn))
+            .orElseThrow(() -> new BookNotFoundException("Book with ISBN " + isbn + " not found."));
+    int quantity = stockDeltaBuffer.withPending(isbn, stored.quantity());
+    if (quantity == 0) {
+      throw new BookNotFoundException("Book with ISBN " + isbn + " not found.");
+    }
+    return new BookVersion(stored.version(), quantity);
+  }
+
+  /**
+   * Runs a read backing the {@link BookCache} against the primary, since a copy read from a lagging
+   * replica would be cached for the full TTL. Without the cache the read stays on the replica.
+   */
+  private <T> T readForCache(Supplier<T> read) {
+    if (!bookCache.isEnabled() || ReplicaRoutingDataSource.isPrimaryRequired()) {
+      return read.get();
+    }
+    ReplicaRoutingDataSource.setPrimaryRequired(true);
+    try {
+      return read.get();
+    } finally {
+      ReplicaRoutingDataSource.setPrimaryRequired(false);
+    }
+  }
+
+  /**
+   * Applies the quantity change pending in the write-behind buffer to a single book.
+   * A book whose buffered stock dropped to zero is about to be deleted and is reported as missing.
+   */
+  private BookView withPending(BookView book) {
+    BookView current = stockDeltaBuffer.withPending(book);
+    if (current != book && current.quantity() == 0) {
+      throw new BookNotFoundException("Book with ISBN " + book.isbn() + " not found.");
+    }
+    return current;
   }
 }
@@ -0,0 +1,68 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.ImportJobStatus;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Imports a catalog file at startup when {@code bookstore.import.file} is set, e.g.
+ * {@code java -jar app.jar --bookstore.import.file=/data/catalog.csv}.
+ * The format is taken from {@code bookstore.import.format}, or from the file extension.
+ */
+@Component
+@ConditionalOnProperty("bookstore.import.file")
+public class CatalogImportRunner implements ApplicationRunner {
+
+  private static final Logger log = LoggerFactory.getLogger(CatalogImportRunner.class);
+
+  private final CatalogImportService importService;
+  private final Path file;
+  private final String format;
+
+  /**
+   * Creates a new {@code CatalogImportRunner}.
+   *
+   * @param importService the service performing the import
+   * @param file          the file to import
+   * @param format        the format of the file, or empty to derive it from the extension
+   */
+  public CatalogImportRunner(CatalogImportService importService,
+                             @Value("${bookstore.import.file}") Path file,
+                             @Value("${bookstore.import.format:}") String format) {
+    this.importService = importService;
+    this.file = file;
+    this.format = format;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws IOException {
+    String name = format.isBlank() ? extension(file) : format;
+    CatalogImportService.Format importFormat = CatalogImportService.Format.from(name);
+    log.info("Importing {} as {}", file, importFormat);
+    ImportJobStatus status;
+    try (InputStream in = Files.newInputStream(file)) {
+      status = importService.importCatalog(in, importFormat);
+    }
+    log.info("Import {} {}: {} rows read, {} imported, {} rejected, {} rows/s",
+            status.id(), status.state(), status.rowsRead(), status.rowsImported(),
+            status.rowsRejected(), Math.round(status.rowsPerSecond()));
+    if (status.state() == ImportJobStatus.State.FAILED) {
+      throw new IllegalStateException("Import of " + file + " failed: " + status.failure());
+    }
+  }
+
+  private static String extension(Path file) {
+    String fileName = file.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    return dot < 0 ? "" : fileName.substring(dot + 1);
+  }
+}
@@ -0,0 +1,421 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BatchItemResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.ImportJobStatus;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service class for importing catalog files in NDJSON or CSV format.
+ * The file is parsed line by line on the calling thread and validated with the same rules as the
+ * {@link AbstractBook} constructor. Valid rows are grouped into chunks and handed over through
+ * a bounded queue to a writer task, which adds them with {@link BookService#addBooks}.
+ * When the writer falls behind, the parser blocks, so memory use is bounded by the queue
+ * capacity times the chunk size regardless of the file size.
+ * A line or CSV record longer than the configured maximum, such as one opened by an unterminated
+ * quote, fails the import as soon as the limit is reached instead of buffering the rest of the file.
+ */
+@Service
+public class CatalogImportService {
+
+  /**
+   * Supported import formats.
+   */
+  public enum Format {
+    NDJSON,
+    CSV;
+
+    /**
+     * Resolves a format from its case-insensitive name.
+     *
+     * @param name the name of the format
+     * @return the format
+     * @throws IllegalArgumentException if the name is null or unknown
+     */
+    public static Format from(String name) {
+      if (name == null) {
+        throw new IllegalArgumentException("Format must not be null");
+      }
+      try {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid format: " + name);
+      }
+    }
+  }
+
+  private static final List<AbstractBook> END_OF_INPUT = List.of();
+  private static final int MAX_RETAINED_JOBS = 100;
+  private static final int MAX_ERRORS_PER_JOB = 100;
+
+  private final BookService bookService;
+  private final ObjectMapper objectMapper;
+  private final AsyncTaskExecutor taskExecutor;
+  private final int chunkSize;
+  private final int queueCapacity;
+  private final int maxRecordLength;
+  private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * Constructs a new {@code CatalogImportService}.
+   *
+   * @param bookService   the service used to write chunks of books
+   * @param objectMapper  the mapper used to parse NDJSON lines
+   * @param taskExecutor  the executor running the writer task
+   * @param chunkSize     the number of rows written per transaction
+   * @param queueCapacity   the number of parsed chunks that may wait for the writer
+   * @param maxRecordLength the maximum number of characters of an NDJSON line or a CSV record
+   */
+  @Autowired
+  public CatalogImportService(BookService bookService,
+                              ObjectMapper objectMapper,
+                              @Qualifier("applicationTaskExecutor") AsyncTaskExecutor taskExecutor,
+                              @Value("${bookstore.import.chunk-size:1000}") int chunkSize,
+                              @Value("${bookstore.import.queue-capacity:4}") int queueCapacity,
+                              @Value("${bookstore.import.max-record-length:65536}") int maxRecordLength) {
+    if (chunkSize <= 0 || queueCapacity <= 0 || maxRecordLength <= 0) {
+      throw new IllegalArgumentException(
+              "Import chunk size, queue capacity and maximum record length must be greater than zero.");
+    }
+    this.bookService = bookService;
+    this.objectMapper = objectMapper;
+    this.taskExecutor = taskExecutor;
+    this.chunkSize = chunkSize;
+    this.queueCapacity = queueCapacity;
+    this.maxRecordLength = maxRecordLength;
+  }
+
+  /**
+   * Imports a catalog file and returns when it has been fully processed.
+   * Progress can be queried with {@link #getStatus} from other threads while the import runs.
+   * Rows that fail validation are counted and reported but do not stop the import;
+   * a database error stops it and marks it as failed.
+   *
+   * @param in     the file contents; not closed by this method
+   * @param format the format of the file; must not be null
+   * @return the final status of the import
+   */
+  public ImportJobStatus importCatalog(InputStream in, Format format) {
+    if (format == null) {
+      throw new IllegalArgumentException("Format must not be null");
+    }
+    ImportJob job = register(format);
+    BlockingQueue<List<AbstractBook>> queue = new ArrayBlockingQueue<>(queueCapacity);
+    Future<?> writer = taskExecutor.submit(() -> {
+      writeChunks(job, queue);
+      return null;
+    });
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+      if (format == Format.CSV) {
+        parseCsv(reader, job, queue, writer);
+      } else {
+        parseNdjson(reader, job, queue, writer);
+      }
+      enqueue(END_OF_INPUT, queue, writer);
+      writer.get();
+      job.complete();
+    } catch (ExecutionException e) {
+      job.fail(e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      writer.cancel(true);
+      job.fail("Import interrupted");
+    } catch (IOException | RuntimeException e) {
+      writer.cancel(true);
+      job.fail(e.getMessage());
+    }
+    return job.status();
+  }
+
+  /**
+   * Returns the status of an import.
+   *
+   * @param id the identifier of the import
+   * @return the status, or empty if no such import is known
+   */
+  public Optional<ImportJobStatus> getStatus(String id) {
+    return Optional.ofNullable(jobs.get(id)).map(ImportJob::status);
+  }
+
+  /**
+   * Returns the status of all retained imports.
+   *
+   * @return the statuses of running and recently finished imports
+   */
+  public List<ImportJobStatus> getStatuses() {
+    return jobs.values().stream().map(ImportJob::status).toList();
+  }
+
+  private ImportJob register(Format format) {
+    if (jobs.size() >= MAX_RETAINED_JOBS) {
+      jobs.values().removeIf(job -> !job.isRunning());
+    }
+    ImportJob job = new ImportJob(UUID.randomUUID().toString(), format.name(), MAX_ERRORS_PER_JOB);
+    jobs.put(job.getId(), job);
+    return job;
+  }
+
+  private void writeChunks(ImportJob job, BlockingQueue<List<AbstractBook>> queue) throws InterruptedException {
+    while (true) {
+      List<AbstractBook> chunk = queue.take();
+      if (chunk == END_OF_INPUT) {
+        return;
+      }
+      int imported = 0;
+      for (BatchItemResult result : bookService.addBooks(chunk)) {
+        if (result.status() != BatchItemResult.Status.REJECTED) {
+          imported++;
+        }
+      }
+      job.rowsImported(imported);
+    }
+  }
+
+  /**
+   * Hands a chunk over to the writer, blocking while the queue is full.
+   * Gives up if the writer has stopped, so a failed writer cannot block the parser forever.
+   */
+  private static void enqueue(List<AbstractBook> chunk, BlockingQueue<List<AbstractBook>> queue,
+                              Future<?> writer) throws InterruptedException, ExecutionException {
+    while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+      if (writer.isDone()) {
+        writer.get();
+        throw new IllegalStateException("Import writer stopped unexpectedly");
+      }
+    }
+  }
+
+  private void parseNdjson(BufferedReader reader, ImportJob job, BlockingQueue<List<AbstractBook>> queue,
+                           Future<?> writer) throws IOException, InterruptedException, ExecutionException {
+    List<AbstractBook> chunk = new ArrayList<>(chunkSize);
+    long lineNumber = 0;
+    String line;
+    while ((line = readLine(reader, maxRecordLength, lineNumber + 1)) != null) {
+      lineNumber++;
+      if (line.isBlank()) {
+        continue;
+      }
+      job.rowRead();
+      try {
+        JsonNode node = objectMapper.readTree(line);
+        chunk.add(toBook(text(node, "isbn"), text(node, "title"), text(node, "author"),
+                text(node, "genre"), text(node, "price"), text(node, "quantity")));
+      } catch (JsonProcessingException e) {
+        job.rowRejected(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+      } catch (IllegalArgumentException e) {
+        job.rowRejected(lineNumber, e.getMessage());
+      }
+      if (chunk.size() == chunkSize) {
+        enqueue(chunk, queue, writer);
+        chunk = new ArrayList<>(chunkSize);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      enqueue(chunk, queue, writer);
+    }
+  }
+
+  private void parseCsv(BufferedReader reader, ImportJob job, BlockingQueue<List<AbstractBook>> queue,
+                        Future<?> writer) throws IOException, InterruptedException, ExecutionException {
+    long[] lineNumber = {0};
+    List<String> header = readCsvRecord(reader, lineNumber, maxRecordLength);
+    if (header == null) {
+      return;
+    }
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+    }
+    for (String column : List.of("isbn", "title", "author", "genre", "price", "quantity")) {
+      if (!columns.containsKey(column)) {
+        throw new IllegalArgumentException("Missing CSV column: " + column);
+      }
+    }
+
+    List<AbstractBook> chunk = new ArrayList<>(chunkSize);
+    List<String> record;
+    while ((record = readCsvRecord(reader, lineNumber, maxRecordLength)) != null) {
+      if (record.size() == 1 && record.get(0).isBlank()) {
+        continue;
+      }
+      job.rowRead();
+      try {
+        chunk.add(toBook(column(record, columns, "isbn"), column(record, columns, "title"),
+                column(record, columns, "author"), column(record, columns, "genre"),
+                column(record, columns, "price"), column(record, columns, "quantity")));
+      } catch (IllegalArgumentException e) {
+        job.rowRejected(lineNumber[0], e.getMessage());
+      }
+      if (chunk.size() == chunkSize) {
+        enqueue(chunk, queue, writer);
+        chunk = new ArrayList<>(chunkSize);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      enqueue(chunk, queue, writer);
+    }
+  }
+
+  /**
+   * Converts the raw values of a row into a book, validated by the {@link AbstractBook} constructor.
+   *
+   * @throws IllegalArgumentException if a value cannot be converted or the book is invalid
+   */
+  static AbstractBook toBook(String isbn, String title, String author,
+                             String genre, String price, String quantity) {
+    Genre parsedGenre = null;
+    if (genre != null && !genre.isBlank()) {
+      try {
+        parsedGenre = Genre.valueOf(genre.trim().toUpperCase(Locale.ROOT));
+      } catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException("Invalid genre: " + genre);
+      }
+    }
+    BigDecimal parsedPrice = null;
+    if (price != null && !price.isBlank()) {
+      try {
+        parsedPrice = new BigDecimal(price.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid price: " + price);
+      }
+    }
+    int parsedQuantity;
+    try {
+      parsedQuantity = quantity == null ? 0 : Integer.parseInt(quantity.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid quantity: " + quantity);
+    }
+    return new SimpleBook(isbn, title, author, parsedGenre, parsedPrice, parsedQuantity);
+  }
+
+  private static String text(JsonNode node, String field) {
+    JsonNode value = node.get(field);
+    return value == null || value.isNull() ? null : value.asText();
+  }
+
+  private static String column(List<String> record, Map<String, Integer> columns, String name) {
+    int index = columns.get(name);
+    return index < record.size() ? record.get(index) : null;
+  }
+
+  /**
+   * Reads one RFC 4180 record, which spans several lines if a quoted field contains line breaks.
+   *
+   * @param reader     the reader to read from
+   * @param lineNumber a one-element array holding the number of lines read so far, updated in place
+   * @param maxLength  the maximum number of characters of the record, excluding line breaks
+   * @return the fields of the record, or null at the end of the input
+   * @throws IllegalArgumentException if the record is longer than allowed or a quoted field is unterminated
+   */
+  static List<String> readCsvRecord(BufferedReader reader, long[] lineNumber, int maxLength) throws IOException {
+    long firstLine = lineNumber[0] + 1;
+    String line = readLine(reader, maxLength, firstLine);
+    if (line == null) {
+      return null;
+    }
+    lineNumber[0]++;
+    int length = line.length();
+    List<String> fields = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    while (true) {
+      if (i == line.length()) {
+        if (!quoted) {
+          break;
+        }
+        String next = readLine(reader, maxLength - length, firstLine);
+        if (next == null) {
+          throw new IllegalArgumentException("Unterminated quoted field at line " + lineNumber[0]);
+        }
+        lineNumber[0]++;
+        length += next.length();
+        field.append('\n');
+        line = next;
+        i = 0;
+        continue;
+      }
+      char c = line.charAt(i++);
+      if (quoted) {
+        if (c == '"' && i < line.length() && line.charAt(i) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    fields.add(field.toString());
+    return fields;
+  }
+
+  /**
+   * Reads a line like {@link BufferedReader#readLine}, but stops as soon as it exceeds the limit.
+   *
+   * @param reader    the reader to read from
+   * @param maxLength the maximum number of characters of the line
+   * @param record    the line number of the record the line belongs to, for the error message
+   * @return the line without its terminator, or null at the end of the input
+   * @throws IllegalArgumentException if the line is longer than allowed
+   */
+  private static String readLine(BufferedReader reader, int maxLength, long record) throws IOException {
+    StringBuilder line = new StringBuilder();
+    int c = reader.read();
+    if (c == -1) {
+      return null;
+    }
+    while (c != -1 && c != '\n') {
+      if (c == '\r') {
+        reader.mark(1);
+        if (reader.read() != '\n') {
+          reader.reset();
+        }
+        break;
+      }
+      if (line.length() >= maxLength) {
+        throw new IllegalArgumentException("Record at line " + record + " exceeds the maximum record length");
+      }
+      line.append((char) c);
+      c = reader.read();
+    }
+    return line.toString();
+  }
+}
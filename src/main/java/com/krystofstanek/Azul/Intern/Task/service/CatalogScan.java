@@ -0,0 +1,45 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.config.ReplicaRoutingDataSource;
+import java.util.List;
+import java.util.function.Consumer;
+import org.springframework.data.domain.Limit;
+
+/**
+ * Reads the whole catalog for the in-memory indexes, in ISBN order and in chunks, so that
+ * a rebuild never holds more than one chunk of entities at a time.
+ */
+final class CatalogScan {
+
+  static final int CHUNK_SIZE = 1000;
+
+  private CatalogScan() {
+  }
+
+  /**
+   * Passes every book to the action, in ISBN order.
+   * The scan reads from the primary, since a replica may lag behind changes whose events
+   * were already delivered.
+   *
+   * @param bookRepository the repository to read from
+   * @param action         the action to apply to each book
+   */
+  static void forEachBook(BookRepository bookRepository, Consumer<AbstractBook> action) {
+    ReplicaRoutingDataSource.setPrimaryRequired(true);
+    try {
+      String lastIsbn = "";
+      List<AbstractBook> chunk;
+      do {
+        chunk = bookRepository.findByIsbnGreaterThanOrderByIsbnAsc(lastIsbn, Limit.of(CHUNK_SIZE));
+        chunk.forEach(action);
+        if (!chunk.isEmpty()) {
+          lastIsbn = chunk.get(chunk.size() - 1).getIsbn();
+        }
+      } while (chunk.size() == CHUNK_SIZE);
+    } finally {
+      ReplicaRoutingDataSource.setPrimaryRequired(false);
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.ImportJobStatus;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Mutable progress of a running catalog import, updated by the parsing and writing threads
+ * and read by status requests.
+ */
+class ImportJob {
+
+  private final String id;
+  private final String format;
+  private final int maxErrors;
+  private final Instant startedAt = Instant.now();
+  private final AtomicLong rowsRead = new AtomicLong();
+  private final AtomicLong rowsImported = new AtomicLong();
+  private final AtomicLong rowsRejected = new AtomicLong();
+  private final List<ImportJobStatus.RowError> errors = new ArrayList<>();
+  private final ReentrantLock errorsLock = new ReentrantLock();
+  private volatile ImportJobStatus.State state = ImportJobStatus.State.RUNNING;
+  private volatile String failure;
+  private volatile Instant finishedAt;
+
+  ImportJob(String id, String format, int maxErrors) {
+    this.id = id;
+    this.format = format;
+    this.maxErrors = maxErrors;
+  }
+
+  String getId() {
+    return id;
+  }
+
+  void rowRead() {
+    rowsRead.incrementAndGet();
+  }
+
+  void rowsImported(int count) {
+    rowsImported.addAndGet(count);
+  }
+
+  void rowRejected(long line, String message) {
+    rowsRejected.incrementAndGet();
+    errorsLock.lock();
+    try {
+      if (errors.size() < maxErrors) {
+        errors.add(new ImportJobStatus.RowError(line, message));
+      }
+    } finally {
+      errorsLock.unlock();
+    }
+  }
+
+  void complete() {
+    finishedAt = Instant.now();
+    state = ImportJobStatus.State.COMPLETED;
+  }
+
+  void fail(String reason) {
+    failure = reason;
+    finishedAt = Instant.now();
+    state = ImportJobStatus.State.FAILED;
+  }
+
+  boolean isRunning() {
+    return state == ImportJobStatus.State.RUNNING;
+  }
+
+  ImportJobStatus status() {
+    Instant end = finishedAt != null ? finishedAt : Instant.now();
+    double seconds = Math.max(Duration.between(startedAt, end).toMillis(), 1) / 1000.0;
+    List<ImportJobStatus.RowError> errorsSnapshot;
+    errorsLock.lock();
+    try {
+      errorsSnapshot = List.copyOf(errors);
+    } finally {
+      errorsLock.unlock();
+    }
+    return new ImportJobStatus(id, state, format, rowsRead.get(), rowsImported.get(), rowsRejected.get(),
+            rowsImported.get() / seconds, errorsSnapshot, failure, startedAt, finishedAt);
+  }
+}
@@ -0,0 +1,209 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.GenreAggregate;
+import com.krystofstanek.Azul.Intern.Task.api.model.InventoryAggregates;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.api.repository.GenrePriceTotals;
+import com.krystofstanek.Azul.Intern.Task.config.ReplicaRoutingDataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Maintains inventory totals per genre: the number of titles, the units in stock, the stock value
+ * and a histogram of prices.
+ * The totals are kept in memory and updated incrementally from the before and after views of every
+ * {@link BookChangedEvent}, so reading them costs O(genres &times; buckets) no matter how large the
+ * catalog is.
+ *
+ * <p>Changes that bypass {@link BookService} are not seen by the event stream, so the totals are
+ * periodically rebuilt from a single GROUP BY query on the primary. A transaction that changes books
+ * holds a read lock from just before its commit until its events have been applied, and the rebuild
+ * holds the write lock while it queries and swaps the totals. Every change is therefore either
+ * applied before the query and contained in its result, or committed and applied after the swap,
+ * and none is lost or counted twice. Commits of book changes wait while the query runs.
+ */
+@Component
+public class InventoryAggregator {
+
+  private static final Logger log = LoggerFactory.getLogger(InventoryAggregator.class);
+
+  private static final int TITLES = 0;
+  private static final int UNITS = 1;
+  private static final int VALUE_CENTS = 2;
+  private static final int FIRST_BUCKET = 3;
+
+  private final BookRepository bookRepository;
+  private final List<BigDecimal> bucketBounds;
+  private final long[] bucketBoundsCents;
+  private final int stride;
+
+  // Commits and events hold the read lock, as the counters themselves are atomic;
+  // the write lock is held by a reconciliation.
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private volatile Totals current;
+  private volatile Instant reconciledAt;
+
+  /**
+   * Creates a new {@code InventoryAggregator}.
+   *
+   * @param bookRepository the repository used to reconcile the totals
+   * @param bucketBounds   the exclusive upper bounds of the price histogram buckets, in ascending order
+   */
+  public InventoryAggregator(BookRepository bookRepository,
+                             @Value("${bookstore.aggregates.price-buckets:5,10,20,50,100}")
+                             List<BigDecimal> bucketBounds) {
+    this.bookRepository = bookRepository;
+    this.bucketBounds = List.copyOf(bucketBounds);
+    this.bucketBoundsCents = bucketBounds.stream().mapToLong(InventoryAggregator::toCents).toArray();
+    for (int i = 1; i < bucketBoundsCents.length; i++) {
+      if (bucketBoundsCents[i] <= bucketBoundsCents[i - 1]) {
+        throw new IllegalArgumentException("Price bucket bounds must be strictly ascending.");
+      }
+    }
+    this.stride = FIRST_BUCKET + bucketBoundsCents.length + 1;
+    this.current = new Totals();
+  }
+
+  /**
+   * Holds the read lock of a transaction that changes books until it has completed,
+   * so that a reconciliation cannot query the database between its commit and its events.
+   *
+   * @param event the change about to be committed
+   */
+  @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+  public void onBookChanging(BookChangedEvent event) {
+    lock.readLock().lock();
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+      @Override
+      public void afterCompletion(int status) {
+        lock.readLock().unlock();
+      }
+    });
+  }
+
+  /**
+   * Applies a committed change to the totals.
+   *
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookChanged(BookChangedEvent event) {
+    lock.readLock().lock();
+    try {
+      current.apply(event);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Rebuilds the totals from the primary database, once the application is ready and then periodically.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  @Scheduled(initialDelayString = "${bookstore.aggregates.reconcile-interval-ms:300000}",
+          fixedDelayString = "${bookstore.aggregates.reconcile-interval-ms:300000}")
+  public void reconcile() {
+    lock.writeLock().lock();
+    // A replica may lag behind the commits that were already applied to the totals.
+    ReplicaRoutingDataSource.setPrimaryRequired(true);
+    try {
+      Totals scanned = new Totals();
+      for (GenrePriceTotals row : bookRepository.findGenrePriceTotals()) {
+        if (row.genre() != null && row.price() != null) {
+          scanned.add(row.genre(), toCents(row.price()), row.titles(), row.units());
+        }
+      }
+      current = scanned;
+      reconciledAt = Instant.now();
+    } catch (RuntimeException e) {
+      log.warn("Failed to reconcile inventory aggregates", e);
+    } finally {
+      ReplicaRoutingDataSource.setPrimaryRequired(false);
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the current totals of every genre.
+   *
+   * @return the inventory aggregates
+   */
+  public InventoryAggregates snapshot() {
+    Totals totals = current;
+    Genre[] genres = Genre.values();
+    List<GenreAggregate> aggregates = new ArrayList<>(genres.length);
+    for (Genre genre : genres) {
+      int base = genre.ordinal() * stride;
+      List<Long> histogram = new ArrayList<>(stride - FIRST_BUCKET);
+      for (int i = FIRST_BUCKET; i < stride; i++) {
+        histogram.add(totals.values.get(base + i));
+      }
+      aggregates.add(new GenreAggregate(genre,
+              totals.values.get(base + TITLES),
+              totals.values.get(base + UNITS),
+              BigDecimal.valueOf(totals.values.get(base + VALUE_CENTS), 2),
+              histogram));
+    }
+    return new InventoryAggregates(bucketBounds, aggregates, reconciledAt);
+  }
+
+  private int bucket(long cents) {
+    int index = Arrays.binarySearch(bucketBoundsCents, cents);
+    // An exact match belongs to the bucket above, as the bounds are exclusive.
+    return index >= 0 ? index + 1 : -index - 1;
+  }
+
+  private static long toCents(BigDecimal price) {
+    return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+  }
+
+  /**
+   * Counters of all genres, laid out as one row of {@code stride} values per genre.
+   */
+  private final class Totals {
+
+    private final AtomicLongArray values = new AtomicLongArray(Genre.values().length * stride);
+
+    void apply(BookChangedEvent event) {
+      if (event.before() != null) {
+        add(event.before(), -1);
+      }
+      if (event.after() != null) {
+        add(event.after(), 1);
+      }
+    }
+
+    void add(BookView view, long sign) {
+      if (view.genre() != null && view.price() != null) {
+        add(view.genre(), toCents(view.price()), sign, sign * view.quantity());
+      }
+    }
+
+    void add(Genre genre, long cents, long titles, long units) {
+      int base = genre.ordinal() * stride;
+      values.addAndGet(base + TITLES, titles);
+      values.addAndGet(base + UNITS, units);
+      values.addAndGet(base + VALUE_CENTS, cents * units);
+      values.addAndGet(base + FIRST_BUCKET + bucket(cents), titles);
+    }
+  }
+}
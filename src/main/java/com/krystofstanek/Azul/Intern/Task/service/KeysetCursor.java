@@ -0,0 +1,59 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last item of a keyset-paginated slice, made of the value of the sort key
+ * and the ISBN that breaks ties between equal sort keys.
+ * It is exchanged with clients as an opaque URL-safe token.
+ *
+ * @param sortKey the sort key of the last item, empty at the start of the results
+ * @param isbn    the ISBN of the last item, empty at the start of the results
+ */
+record KeysetCursor(String sortKey, String isbn) {
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  /**
+   * Decodes a token returned by {@link #encode()}.
+   * A null or blank token denotes the start of the results.
+   *
+   * @param token the token to decode
+   * @return the decoded cursor
+   * @throws IllegalArgumentException if the token is malformed
+   */
+  static KeysetCursor decode(String token) {
+    if (token == null || token.isBlank()) {
+      return new KeysetCursor("", "");
+    }
+    int separator = token.indexOf('.');
+    if (separator < 0 || token.indexOf('.', separator + 1) >= 0) {
+      throw new IllegalArgumentException("Invalid cursor: " + token);
+    }
+    try {
+      return new KeysetCursor(decodePart(token.substring(0, separator)),
+              decodePart(token.substring(separator + 1)));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + token);
+    }
+  }
+
+  /**
+   * Encodes this cursor as an opaque token.
+   *
+   * @return the token
+   */
+  String encode() {
+    return encodePart(sortKey) + "." + encodePart(isbn);
+  }
+
+  private static String encodePart(String part) {
+    return ENCODER.encodeToString(part.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String decodePart(String part) {
+    return new String(DECODER.decode(part), StandardCharsets.UTF_8);
+  }
+}
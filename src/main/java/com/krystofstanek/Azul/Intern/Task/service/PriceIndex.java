@@ -0,0 +1,266 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Optional in-memory index of book prices, used to answer price-range queries without
+ * a database scan.
+ * Prices are stored as {@code long} minor units (cents) in a concurrent skip list ordered by
+ * price and ISBN, so a range lookup is a logarithmic seek followed by a sequential scan.
+ * Slices are requested with a cursor rather than an offset, so every slice starts with a seek.
+ * The index is built once the application is ready and is then kept in sync by the
+ * {@link BookChangedEvent}s published by {@link BookService}.
+ * Like {@link BookSearchIndex}, a rebuild fills new price sets from the database while the
+ * current ones keep serving lookups, then replays the changes made in the meantime onto them
+ * and swaps them in, so a row read before a later change can neither restore an old price
+ * nor bring back a deleted book.
+ *
+ * <p>Memory footprint per indexed book on a 64-bit JVM with compressed oops is roughly
+ * 24 bytes for the entry, 24 bytes for the skip list node plus on average 8 bytes of index
+ * nodes, and 32 bytes for the ISBN-to-price map node plus 16 bytes for its boxed price,
+ * i.e. about 100 bytes, not counting the ISBN strings which are shared with the rest of the heap.
+ * A rebuild holds a second copy until it is swapped in.
+ */
+@Component
+public class PriceIndex {
+
+  private static final Comparator<Entry> ORDER =
+          Comparator.comparingLong(Entry::cents).thenComparing(Entry::isbn);
+
+  private final BookRepository bookRepository;
+  private final boolean enabled;
+  /**
+   * Serializes changes, so that they are recorded for a running rebuild in the order applied.
+   */
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ReentrantLock rebuildLock = new ReentrantLock();
+  private volatile Prices prices = new Prices();
+  /**
+   * The changes applied to the current prices while a rebuild is running, or null otherwise.
+   */
+  private List<Consumer<Prices>> pendingChanges;
+  private volatile boolean ready;
+
+  /**
+   * Creates a new {@code PriceIndex}.
+   *
+   * @param bookRepository the repository used to build the index at startup
+   * @param enabled        whether the index is built and used at all
+   */
+  public PriceIndex(BookRepository bookRepository,
+                    @Value("${bookstore.price-index.enabled:false}") boolean enabled) {
+    this.bookRepository = bookRepository;
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns whether the index is enabled and fully built.
+   *
+   * @return true if price-range queries can be served from the index
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  /**
+   * Loads the prices of all books into new price sets and swaps them in.
+   * Changes that arrive while the database is read are applied to the current prices and
+   * recorded, then replayed in order onto the new ones before they replace the current ones.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void rebuild() {
+    if (!enabled) {
+      return;
+    }
+    rebuildLock.lock();
+    try {
+      lock.lock();
+      try {
+        pendingChanges = new ArrayList<>();
+      } finally {
+        lock.unlock();
+      }
+      Prices rebuilt = new Prices();
+      boolean scanned = false;
+      try {
+        CatalogScan.forEachBook(bookRepository, book -> rebuilt.put(book.getIsbn(), toCents(book.getPrice())));
+        scanned = true;
+      } finally {
+        lock.lock();
+        try {
+          if (scanned) {
+            pendingChanges.forEach(change -> change.accept(rebuilt));
+            prices = rebuilt;
+            ready = true;
+          }
+          pendingChanges = null;
+        } finally {
+          lock.unlock();
+        }
+      }
+    } finally {
+      rebuildLock.unlock();
+    }
+  }
+
+  /**
+   * Applies a committed change to the index.
+   *
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookChanged(BookChangedEvent event) {
+    if (!enabled) {
+      return;
+    }
+    if (event.removed()) {
+      remove(event.isbn());
+    } else {
+      put(event.isbn(), event.after().price());
+    }
+  }
+
+  /**
+   * Adds a book to the index or moves it to its new price.
+   *
+   * @param isbn  the ISBN of the book
+   * @param price the price of the book
+   * @throws IllegalArgumentException if the price has more than two decimal places
+   */
+  public void put(String isbn, BigDecimal price) {
+    long cents = toCents(price);
+    apply(target -> target.put(isbn, cents));
+  }
+
+  /**
+   * Removes a book from the index.
+   *
+   * @param isbn the ISBN of the book
+   */
+  public void remove(String isbn) {
+    apply(target -> target.remove(isbn));
+  }
+
+  private void apply(Consumer<Prices> change) {
+    lock.lock();
+    try {
+      change.accept(prices);
+      if (pendingChanges != null) {
+        pendingChanges.add(change);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the books priced within the range that follow the given position in price and ISBN
+   * order. The position is found with a logarithmic seek, so the cost of a slice does not grow
+   * with the number of slices before it.
+   *
+   * @param minPrice   the minimum price (inclusive)
+   * @param maxPrice   the maximum price (inclusive)
+   * @param afterPrice the price of the last book of the previous slice, or null for the first slice
+   * @param afterIsbn  the ISBN of the last book of the previous slice; ignored for the first slice
+   * @param limit      the maximum number of entries to return
+   * @return the matching entries, ordered by price and ISBN
+   * @throws IllegalArgumentException if afterPrice has more than two decimal places
+   */
+  public List<Entry> find(BigDecimal minPrice, BigDecimal maxPrice,
+                          BigDecimal afterPrice, String afterIsbn, int limit) {
+    long minCents = minPrice.movePointRight(2).setScale(0, RoundingMode.CEILING).longValueExact();
+    long maxCents = maxPrice.movePointRight(2).setScale(0, RoundingMode.FLOOR).longValueExact();
+    Entry from = new Entry(minCents, "");
+    boolean fromInclusive = true;
+    if (afterPrice != null) {
+      Entry after = new Entry(toCents(afterPrice), afterIsbn);
+      if (ORDER.compare(after, from) >= 0) {
+        from = after;
+        fromInclusive = false;
+      }
+    }
+    Entry to = new Entry(maxCents, "\uffff");
+    List<Entry> page = new ArrayList<>(limit);
+    if (ORDER.compare(from, to) > 0) {
+      return page;
+    }
+    for (Entry entry : prices.entries.subSet(from, fromInclusive, to, true)) {
+      if (page.size() == limit) {
+        break;
+      }
+      page.add(entry);
+    }
+    return page;
+  }
+
+  /**
+   * Converts a price to cents. Prices are stored with two decimal places, so a price with
+   * more is rejected rather than rounded, which could place it differently than the database.
+   */
+  private static long toCents(BigDecimal price) {
+    try {
+      return price.movePointRight(2).setScale(0, RoundingMode.UNNECESSARY).longValueExact();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Price cannot have more than two decimal places: " + price);
+    }
+  }
+
+  /**
+   * The indexed prices, ordered for range lookups and by ISBN for changes.
+   * Lookups read {@link #entries} concurrently; changes are made under the index lock, or by the
+   * rebuild before the prices are published.
+   */
+  private static final class Prices {
+
+    private final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<String, Long> centsByIsbn = new HashMap<>();
+
+    void put(String isbn, long cents) {
+      Long previous = centsByIsbn.put(isbn, cents);
+      if (previous != null && previous != cents) {
+        entries.remove(new Entry(previous, isbn));
+      }
+      entries.add(new Entry(cents, isbn));
+    }
+
+    void remove(String isbn) {
+      Long previous = centsByIsbn.remove(isbn);
+      if (previous != null) {
+        entries.remove(new Entry(previous, isbn));
+      }
+    }
+  }
+
+  /**
+   * A book in the index.
+   *
+   * @param cents the price of the book in cents
+   * @param isbn  the ISBN of the book
+   */
+  public record Entry(long cents, String isbn) {
+
+    /**
+     * Returns the price of the book.
+     *
+     * @return the price with two decimal places
+     */
+    public BigDecimal price() {
+      return BigDecimal.valueOf(cents, 2);
+    }
+  }
+}
@@ -0,0 +1,405 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Optional write-behind buffer for stock changes of existing books.
+ * Instead of one transaction per {@code addBook}/{@code removeBook}, each contending on the same row,
+ * quantity changes are accumulated per ISBN in memory and the net deltas are written periodically
+ * with one JDBC batch per chunk of books.
+ *
+ * <p>Every buffered book has a single {@link AtomicLong} packing its available quantity (stock in
+ * the database plus pending deltas) in the upper and its pending delta in the lower 32 bits,
+ * so stock checks and updates are one compare-and-set and never overdraw.
+ * A book is loaded when it is first changed and dropped again once its delta has been written,
+ * so the buffer only holds books that changed since the last flush.
+ *
+ * <p>Flushes run on a thread of their own, so that their short interval is not held up by the
+ * other scheduled tasks of the application, nor holds them up.
+ * Writers never wait for a flush: they are called inside the transactions of {@link BookService},
+ * and waiting there while holding a pooled connection could leave the flush without one.
+ *
+ * <p>Pending deltas are lost if the process dies before they are written; a clean shutdown
+ * writes them all. Changes made to the same books outside this buffer while it holds them, such as
+ * batch ingests, are not reflected in the available quantity until the book is reloaded.
+ */
+@Component
+public class StockDeltaBuffer {
+
+  /**
+   * Returned by {@link #remove} for a book that is being deleted.
+   */
+  public static final int NOT_BUFFERED = -1;
+
+  private static final Logger log = LoggerFactory.getLogger(StockDeltaBuffer.class);
+
+  // Marks an entry that was dropped from the buffer; writers seeing it retry with a fresh entry.
+  private static final long DROPPED = Long.MIN_VALUE;
+  // Marks an entry whose stock dropped to zero while its delta, and the deletion, are being written;
+  // writers seeing it leave their change to the database, which serializes it with the deletion.
+  private static final long RETIRED = Long.MIN_VALUE + 1;
+  private static final int LOAD_STRIPES = 64;
+
+  private final BookRepository bookRepository;
+  private final TransactionTemplate transactionTemplate;
+  private final ApplicationEventPublisher eventPublisher;
+  private final boolean enabled;
+  private final int batchSize;
+  private final long flushIntervalMillis;
+  private final ThreadPoolTaskScheduler flushScheduler;
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final ReentrantLock flushLock = new ReentrantLock();
+  // Counts the drops per stripe of ISBNs, so that a load that raced with a drop is discarded.
+  private final AtomicLongArray drops = new AtomicLongArray(LOAD_STRIPES);
+
+  /**
+   * Creates a new {@code StockDeltaBuffer}.
+   *
+   * @param bookRepository     the repository the deltas are written to
+   * @param transactionManager the transaction manager used for the writes
+   * @param eventPublisher     the publisher of the {@link BookChangedEvent}s of written deltas
+   * @param enabled            whether stock changes are buffered at all
+   * @param batchSize          the maximum number of books written per transaction
+   * @param flushIntervalMillis the delay between the end of a flush and the start of the next one
+   */
+  public StockDeltaBuffer(BookRepository bookRepository,
+                          PlatformTransactionManager transactionManager,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${bookstore.write-behind.enabled:false}") boolean enabled,
+                          @Value("${bookstore.write-behind.batch-size:500}") int batchSize,
+                          @Value("${bookstore.write-behind.flush-interval-ms:50}") long flushIntervalMillis) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Write-behind batch size must be greater than zero.");
+    }
+    if (flushIntervalMillis <= 0) {
+      throw new IllegalArgumentException("Write-behind flush interval must be greater than zero.");
+    }
+    this.bookRepository = bookRepository;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.eventPublisher = eventPublisher;
+    this.enabled = enabled;
+    this.batchSize = batchSize;
+    this.flushIntervalMillis = flushIntervalMillis;
+    if (enabled) {
+      flushScheduler = new ThreadPoolTaskScheduler();
+      flushScheduler.setPoolSize(1);
+      flushScheduler.setThreadNamePrefix("write-behind-");
+      flushScheduler.initialize();
+    } else {
+      flushScheduler = null;
+    }
+  }
+
+  /**
+   * Returns whether stock changes are buffered.
+   *
+   * @return true if the buffer is enabled
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Adds units to the stock of an existing book.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the number of units to add; must be greater than zero
+   * @return the book with its quantity after the change, or null if the book does not exist or is
+   *         being deleted, in which case the caller writes the addition to the database itself
+   * @throws IllegalArgumentException if the quantity would overflow
+   */
+  public BookView add(String isbn, int amount) {
+    while (true) {
+      Entry entry = entry(isbn);
+      if (entry == null) {
+        return null;
+      }
+      long state = entry.state.get();
+      if (state == DROPPED) {
+        Thread.onSpinWait();
+        continue;
+      }
+      if (state == RETIRED) {
+        return null;
+      }
+      long available = (long) available(state) + amount;
+      long delta = (long) delta(state) + amount;
+      if (available > Integer.MAX_VALUE || delta > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Quantity is too large.");
+      }
+      if (entry.state.compareAndSet(state, pack((int) available, (int) delta))) {
+        return entry.view.withQuantity((int) available);
+      }
+    }
+  }
+
+  /**
+   * Removes units from the stock of a book.
+   * A book whose stock drops to zero is deleted when the delta is written.
+   *
+   * @param isbn   the ISBN of the book
+   * @param amount the number of units to remove; must be greater than zero
+   * @return the quantity left after the change, or {@link #NOT_BUFFERED} if the book is being
+   *         deleted, in which case the caller writes the removal to the database itself
+   * @throws BookNotFoundException    if the book does not exist or is about to be deleted
+   * @throws IllegalArgumentException if there is not enough stock available
+   */
+  public int remove(String isbn, int amount) {
+    while (true) {
+      Entry entry = entry(isbn);
+      if (entry == null) {
+        throw new BookNotFoundException("Book with ISBN " + isbn + " not found.");
+      }
+      long state = entry.state.get();
+      if (state == DROPPED) {
+        Thread.onSpinWait();
+        continue;
+      }
+      if (state == RETIRED) {
+        return NOT_BUFFERED;
+      }
+      int available = available(state);
+      if (available == 0) {
+        throw new BookNotFoundException("Book with ISBN " + isbn + " not found.");
+      }
+      if (available < amount) {
+        throw new IllegalArgumentException("Not enough stock available.");
+      }
+      if (entry.state.compareAndSet(state, pack(available - amount, delta(state) - amount))) {
+        return available - amount;
+      }
+    }
+  }
+
+  /**
+   * Applies the pending delta of a book to a view read from the database or the cache.
+   *
+   * @param view the book as last written
+   * @return the book with its current quantity, which is 0 if it is about to be deleted
+   */
+  public BookView withPending(BookView view) {
+    int quantity = withPending(view.isbn(), view.quantity());
+    return quantity == view.quantity() ? view : view.withQuantity(quantity);
+  }
+
+  /**
+   * Applies the pending delta of a book to its quantity as last written.
+   *
+   * @param isbn     the ISBN of the book
+   * @param quantity the quantity as last written
+   * @return the current quantity, which is 0 if the book is about to be deleted
+   */
+  public int withPending(String isbn, int quantity) {
+    if (!enabled) {
+      return quantity;
+    }
+    Entry entry = entries.get(isbn);
+    if (entry == null) {
+      return quantity;
+    }
+    long state = entry.state.get();
+    if (state == RETIRED) {
+      return 0;
+    }
+    return state == DROPPED ? quantity : available(state);
+  }
+
+  /**
+   * Keeps the details of buffered books, which are returned by {@link #add}, up to date.
+   *
+   * @param event the change
+   */
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onBookChanged(BookChangedEvent event) {
+    Entry entry = event.removed() ? null : entries.get(event.isbn());
+    if (entry != null) {
+      entry.view = event.after();
+    }
+  }
+
+  /**
+   * Writes the net deltas of all buffered books, in one transaction per batch.
+   * Books whose stock dropped to zero are retired when their delta is taken and deleted.
+   * A batch that fails keeps its deltas, so they are retried by the next flush.
+   */
+  public void flush() {
+    if (!enabled || entries.isEmpty()) {
+      return;
+    }
+    flushLock.lock();
+    try {
+      List<Map.Entry<String, Entry>> buffered = new ArrayList<>(entries.entrySet());
+      for (int from = 0; from < buffered.size(); from += batchSize) {
+        List<Map.Entry<String, Entry>> batch = buffered.subList(from, Math.min(from + batchSize, buffered.size()));
+        Map<String, Integer> deltas = new LinkedHashMap<>();
+        try {
+          transactionTemplate.executeWithoutResult(status -> {
+            // Taken once the transaction holds its connection, so that books stay retired
+            // only for as long as the write itself takes.
+            for (Map.Entry<String, Entry> entry : batch) {
+              int delta = entry.getValue().takeDelta();
+              if (delta != 0) {
+                deltas.put(entry.getKey(), delta);
+              }
+            }
+            write(deltas);
+          });
+        } catch (RuntimeException e) {
+          for (Map.Entry<String, Entry> entry : batch) {
+            Integer delta = deltas.get(entry.getKey());
+            if (delta != null) {
+              entry.getValue().restoreDelta(delta);
+            }
+          }
+          log.warn("Failed to write {} buffered stock changes, retrying with the next flush", deltas.size(), e);
+          continue;
+        }
+        for (Map.Entry<String, Entry> entry : batch) {
+          if (entry.getValue().dropIfWritten()) {
+            // Counted before the removal, so that a load that started before the write is discarded.
+            drops.incrementAndGet(stripe(entry.getKey()));
+            entries.remove(entry.getKey(), entry.getValue());
+          }
+        }
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  /**
+   * Starts flushing periodically once the application is ready.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void start() {
+    if (flushScheduler != null) {
+      Duration interval = Duration.ofMillis(flushIntervalMillis);
+      flushScheduler.scheduleWithFixedDelay(this::flush, Instant.now().plus(interval), interval);
+    }
+  }
+
+  /**
+   * Stops the periodic flushes and writes all pending deltas before the application shuts down.
+   */
+  @PreDestroy
+  public void close() {
+    if (flushScheduler != null) {
+      flushScheduler.shutdown();
+    }
+    flush();
+  }
+
+  private void write(Map<String, Integer> deltas) {
+    if (deltas.isEmpty()) {
+      return;
+    }
+    bookRepository.applyQuantityDeltas(deltas);
+    for (BookView after : bookRepository.findViewsByIsbnIn(deltas.keySet())) {
+      BookView before = after.withQuantity(after.quantity() - deltas.get(after.isbn()));
+      if (after.quantity() == 0) {
+        bookRepository.deleteByIsbnIfQuantityEquals(after.isbn(), 0);
+        eventPublisher.publishEvent(BookChangedEvent.removed(before));
+      } else {
+        eventPublisher.publishEvent(BookChangedEvent.changed(before, after));
+      }
+    }
+  }
+
+  private Entry entry(String isbn) {
+    while (true) {
+      Entry entry = entries.get(isbn);
+      if (entry != null) {
+        return entry;
+      }
+      // Loaded outside the map, so that no query runs while holding the map's lock for this key.
+      // A load that overlapped with the drop of an entry may miss that entry's delta, so it is
+      // discarded and repeated.
+      int stripe = stripe(isbn);
+      long dropCount = drops.get(stripe);
+      Entry loaded = bookRepository.findViewByIsbn(isbn).map(Entry::new).orElse(null);
+      if (loaded == null) {
+        return null;
+      }
+      Entry current = entries.compute(isbn, (key, existing) ->
+              existing != null || drops.get(stripe) != dropCount ? existing : loaded);
+      if (current != null) {
+        return current;
+      }
+    }
+  }
+
+  private static int stripe(String isbn) {
+    return (isbn.hashCode() & Integer.MAX_VALUE) % LOAD_STRIPES;
+  }
+
+  private static long pack(int available, int delta) {
+    return ((long) available << 32) | (delta & 0xFFFFFFFFL);
+  }
+
+  private static int available(long state) {
+    return (int) (state >> 32);
+  }
+
+  private static int delta(long state) {
+    return (int) state;
+  }
+
+  private static final class Entry {
+
+    private final AtomicLong state;
+    private volatile BookView view;
+
+    private Entry(BookView view) {
+      this.view = view;
+      this.state = new AtomicLong(pack(view.quantity(), 0));
+    }
+
+    private int takeDelta() {
+      while (true) {
+        long current = state.get();
+        if (current == DROPPED || current == RETIRED) {
+          return 0;
+        }
+        long taken = available(current) == 0 ? RETIRED : pack(available(current), 0);
+        if (state.compareAndSet(current, taken)) {
+          return delta(current);
+        }
+      }
+    }
+
+    private void restoreDelta(int delta) {
+      state.getAndUpdate(current -> current == RETIRED
+              ? pack(0, delta)
+              : pack(available(current), delta(current) + delta));
+    }
+
+    private boolean dropIfWritten() {
+      long current = state.get();
+      return (current == RETIRED || delta(current) == 0) && state.compareAndSet(current, DROPPED);
+    }
+  }
+}
@@ -0,0 +1,199 @@
+package com.krystofstanek.Azul.Intern.Task.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe, size-bounded cache whose entries expire after a fixed time to live.
+ * When the cache is full, the least recently used entry is evicted.
+ * A {@link ReentrantLock} is used rather than {@code synchronized} so that callers running on
+ * virtual threads are never pinned to their carrier.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+public class BoundedTtlCache<K, V> {
+
+  private final int maxSize;
+  private final long ttlNanos;
+  private final LongSupplier ticker;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<K, Entry<V>> entries;
+  private final AtomicLong invalidations = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a new cache that uses {@link System#nanoTime()} as its clock.
+   *
+   * @param maxSize  the maximum number of entries; must be greater than zero
+   * @param ttlNanos the time to live of an entry in nanoseconds; must be greater than zero
+   */
+  public BoundedTtlCache(int maxSize, long ttlNanos) {
+    this(maxSize, ttlNanos, System::nanoTime);
+  }
+
+  /**
+   * Creates a new cache with the given clock.
+   *
+   * @param maxSize  the maximum number of entries; must be greater than zero
+   * @param ttlNanos the time to live of an entry in nanoseconds; must be greater than zero
+   * @param ticker   the source of the current time in nanoseconds
+   * @throws IllegalArgumentException if maxSize or ttlNanos is not positive
+   */
+  public BoundedTtlCache(int maxSize, long ttlNanos, LongSupplier ticker) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("Cache size must be greater than zero.");
+    }
+    if (ttlNanos <= 0) {
+      throw new IllegalArgumentException("Cache time to live must be greater than zero.");
+    }
+    this.maxSize = maxSize;
+    this.ttlNanos = ttlNanos;
+    this.ticker = ticker;
+    this.entries = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Returns the cached value for the given key.
+   *
+   * @param key the key to look up
+   * @return the cached value, or null if absent or expired
+   */
+  public V get(K key) {
+    lock.lock();
+    try {
+      Entry<V> entry = entries.get(key);
+      if (entry != null && entry.expiresAt - ticker.getAsLong() <= 0) {
+        entries.remove(key);
+        evictions.increment();
+        entry = null;
+      }
+      if (entry == null) {
+        misses.increment();
+        return null;
+      }
+      hits.increment();
+      return entry.value;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a stamp that changes whenever an entry is invalidated.
+   * Readers that load a value from the source of truth should take a stamp before loading
+   * and store the value with {@link #putIfNotInvalidated}, so that a concurrent invalidation
+   * is never overwritten with a stale value.
+   *
+   * @return the current invalidation stamp
+   */
+  public long stamp() {
+    return invalidations.get();
+  }
+
+  /**
+   * Stores a value, evicting the least recently used entry if the cache is full.
+   *
+   * @param key   the key
+   * @param value the value to cache
+   */
+  public void put(K key, V value) {
+    lock.lock();
+    try {
+      store(key, value);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stores a value only if no entry was invalidated since the given stamp was taken.
+   *
+   * @param key   the key
+   * @param value the value to cache
+   * @param stamp the stamp returned by {@link #stamp()} before the value was loaded
+   */
+  public void putIfNotInvalidated(K key, V value, long stamp) {
+    lock.lock();
+    try {
+      if (invalidations.get() == stamp) {
+        store(key, value);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes the entry for the given key, if present.
+   *
+   * @param key the key to invalidate
+   */
+  public void invalidate(K key) {
+    lock.lock();
+    try {
+      invalidations.incrementAndGet();
+      entries.remove(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all entries.
+   */
+  public void invalidateAll() {
+    lock.lock();
+    try {
+      invalidations.incrementAndGet();
+      entries.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns a snapshot of the cache counters.
+   *
+   * @return the current statistics
+   */
+  public Stats stats() {
+    lock.lock();
+    try {
+      return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void store(K key, V value) {
+    entries.put(key, new Entry<>(value, ticker.getAsLong() + ttlNanos));
+    if (entries.size() > maxSize) {
+      Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+      eldest.next();
+      eldest.remove();
+      evictions.increment();
+    }
+  }
+
+  private record Entry<V>(V value, long expiresAt) {
+  }
+
+  /**
+   * Cache counters.
+   *
+   * @param hits      the number of lookups that found a live entry
+   * @param misses    the number of lookups that found no live entry
+   * @param evictions the number of entries removed because the cache was full or they expired
+   * @param size      the current number of entries
+   */
+  public record Stats(long hits, long misses, long evictions, int size) {
+  }
+}
@@ -0,0 +1,12 @@
+-- Matches the schema Hibernate created with ddl-auto=update, so existing databases are
+-- picked up through the baseline and new ones start from the same shape.
+CREATE TABLE IF NOT EXISTS abstract_book (
+    isbn      VARCHAR(255)   NOT NULL,
+    book_type VARCHAR(31)    NOT NULL,
+    title     VARCHAR(255),
+    author    VARCHAR(255),
+    genre     VARCHAR(255),
+    price     NUMERIC(38, 2),
+    quantity  INTEGER        NOT NULL,
+    CONSTRAINT abstract_book_pkey PRIMARY KEY (isbn)
+);
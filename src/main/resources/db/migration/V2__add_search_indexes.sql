@@ -0,0 +1,17 @@
+-- Every index ends with isbn, so that keyset pagination and the isbn tiebreaker of sorted
+-- searches are served from the index without a separate sort step.
+
+-- /books/genre, keyset and paged, ordered by title
+CREATE INDEX IF NOT EXISTS idx_book_genre_title ON abstract_book (genre, title, isbn);
+
+-- /books/author, keyset and paged, ordered by title
+CREATE INDEX IF NOT EXISTS idx_book_author_title ON abstract_book (author, title, isbn);
+
+-- /books/title
+CREATE INDEX IF NOT EXISTS idx_book_title ON abstract_book (title, isbn);
+
+-- /books/price, keyset and paged, ordered by price
+CREATE INDEX IF NOT EXISTS idx_book_price ON abstract_book (price, isbn);
+
+-- /books/search combining a genre with a price range or a price sort
+CREATE INDEX IF NOT EXISTS idx_book_genre_price ON abstract_book (genre, price, isbn);
@@ -0,0 +1,3 @@
+-- Incremented on every write to a book, by Hibernate for entity updates and explicitly by the
+-- bulk quantity updates, and used for optimistic locking and HTTP ETags.
+ALTER TABLE abstract_book ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
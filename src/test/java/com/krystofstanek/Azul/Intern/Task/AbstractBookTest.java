@@ -62,6 +62,17 @@ public class AbstractBookTest {
     assertEquals("Price cannot be null or negative.", exception.getMessage());
   }
 
+  @Test
+  public void testPriceWithMoreThanTwoDecimalPlaces() {
+    Exception exception = assertThrows(IllegalArgumentException.class, () -> {
+      new SimpleBook("1234567890", "Test Title", "Test Author", Genre.FICTION, new BigDecimal("19.995"), 10);
+    });
+    assertEquals("Price cannot have more than two decimal places.", exception.getMessage());
+    assertEquals(new BigDecimal("19.9900"),
+            new SimpleBook("1234567890", "Test Title", "Test Author", Genre.FICTION, new BigDecimal("19.9900"), 10)
+                    .getPrice());
+  }
+
   @Test
   public void testInvalidQuantity() {
     Exception exception = assertThrows(IllegalArgumentException.class, () -> {
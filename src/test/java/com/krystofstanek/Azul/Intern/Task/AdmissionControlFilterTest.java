@@ -0,0 +1,180 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.krystofstanek.Azul.Intern.Task.config.AdmissionControlFilter.RequestClass;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.ForwardedHeaderFilter;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlFilterTest {
+
+  private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+  private static MockHttpServletRequest get(String path, String client) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+    request.setRemoteAddr(client);
+    return request;
+  }
+
+  private static MockHttpServletResponse filter(AdmissionControlFilter filter, MockHttpServletRequest request,
+                                                FilterChain chain) throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, chain);
+    return response;
+  }
+
+  @Test
+  public void testClassify() {
+    assertEquals(RequestClass.LOOKUP, AdmissionControlFilter.classify(get("/books/978-0", "a")));
+    assertEquals(RequestClass.SEARCH, AdmissionControlFilter.classify(get("/books/search", "a")));
+    assertEquals(RequestClass.SEARCH, AdmissionControlFilter.classify(get("/books/genre", "a")));
+    MockHttpServletRequest multiGet = get("/books", "a");
+    multiGet.setParameter("isbn", "1", "2");
+    assertEquals(RequestClass.SEARCH, AdmissionControlFilter.classify(multiGet));
+    assertEquals(RequestClass.SEARCH, AdmissionControlFilter.classify(new MockHttpServletRequest("POST", "/books/lookup")));
+    assertEquals(RequestClass.EXPORT, AdmissionControlFilter.classify(get("/books/export", "a")));
+    assertEquals(RequestClass.OTHER, AdmissionControlFilter.classify(get("/books/changes", "a")));
+    assertEquals(RequestClass.OTHER, AdmissionControlFilter.classify(get("/books/978-0/version", "a")));
+    assertEquals(RequestClass.OTHER, AdmissionControlFilter.classify(new MockHttpServletRequest("POST", "/books")));
+  }
+
+  @Test
+  public void testRateLimitPerClient() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 2, 100, 10, 10, 10, 0, Duration.ZERO, now::get);
+
+    assertEquals(200, filter(filter, get("/books/1", "a"), new MockFilterChain()).getStatus());
+    assertEquals(200, filter(filter, get("/books/1", "a"), new MockFilterChain()).getStatus());
+    MockHttpServletResponse rejected = filter(filter, get("/books/1", "a"), new MockFilterChain());
+    assertEquals(429, rejected.getStatus());
+    assertEquals("1", rejected.getHeader("Retry-After"));
+    assertEquals(1, filter.rateLimitedCount());
+
+    // Other clients have their own bucket
+    assertEquals(200, filter(filter, get("/books/1", "b"), new MockFilterChain()).getStatus());
+
+    // One token is back after a second
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    assertEquals(200, filter(filter, get("/books/1", "a"), new MockFilterChain()).getStatus());
+    assertEquals(429, filter(filter, get("/books/1", "a"), new MockFilterChain()).getStatus());
+  }
+
+  @Test
+  public void testIdleClientsAreEvicted() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 2, 100, 10, 10, 10, 0, Duration.ZERO, now::get);
+    filter(filter, get("/books/1", "a"), new MockFilterChain());
+    filter(filter, get("/books/1", "b"), new MockFilterChain());
+    filter(filter, get("/books/1", "b"), new MockFilterChain());
+    assertEquals(2, filter.clientCount());
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    filter.evictIdleClients();
+    assertEquals(1, filter.clientCount());
+
+    now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    filter.evictIdleClients();
+    assertEquals(0, filter.clientCount());
+  }
+
+  @Test
+  public void testRequestsOutsideBooksAreIgnored() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 100, 10, 10, 10, 0, Duration.ZERO, now::get);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(200, filter(filter, get("/actuator/health", "a"), new MockFilterChain()).getStatus());
+    }
+    assertEquals(0, filter.clientCount());
+  }
+
+  @Test
+  public void testSearchConcurrencyDoesNotLimitLookups() throws Exception {
+    AdmissionControlFilter filter =
+            new AdmissionControlFilter(1000, 1000, 100, 10, 1, 1, 0, Duration.ZERO, now::get);
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FilterChain blocking = (request, response) -> {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    CompletableFuture<MockHttpServletResponse> slowSearch = CompletableFuture.supplyAsync(() -> {
+      try {
+        return filter(filter, get("/books/search", "a"), blocking);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    assertEquals(1, filter.inFlight(RequestClass.SEARCH));
+
+    MockHttpServletResponse rejected = filter(filter, get("/books/search", "b"), new MockFilterChain());
+    assertEquals(503, rejected.getStatus());
+    assertEquals("1", rejected.getHeader("Retry-After"));
+    assertEquals(1, filter.overloadedCount(RequestClass.SEARCH));
+    assertEquals(200, filter(filter, get("/books/1", "b"), new MockFilterChain()).getStatus());
+
+    release.countDown();
+    assertEquals(200, slowSearch.get(5, TimeUnit.SECONDS).getStatus());
+    assertEquals(0, filter.inFlight(RequestClass.SEARCH));
+    assertEquals(200, filter(filter, get("/books/search", "b"), new MockFilterChain()).getStatus());
+  }
+
+  @Test
+  public void testExportDoesNotHoldSearchPermits() throws Exception {
+    AdmissionControlFilter filter =
+            new AdmissionControlFilter(1000, 1000, 100, 10, 1, 1, 0, Duration.ZERO, now::get);
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    FilterChain blocking = (request, response) -> {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    CompletableFuture<MockHttpServletResponse> slowExport = CompletableFuture.supplyAsync(() -> {
+      try {
+        return filter(filter, get("/books/export", "a"), blocking);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    assertEquals(1, filter.inFlight(RequestClass.EXPORT));
+    assertEquals(0, filter.inFlight(RequestClass.SEARCH));
+
+    assertEquals(200, filter(filter, get("/books/search", "b"), new MockFilterChain()).getStatus());
+    assertEquals(503, filter(filter, get("/books/export", "b"), new MockFilterChain()).getStatus());
+    assertEquals(1, filter.overloadedCount(RequestClass.EXPORT));
+
+    release.countDown();
+    assertEquals(200, slowExport.get(5, TimeUnit.SECONDS).getStatus());
+  }
+
+  @Test
+  public void testClientsBehindAProxyAreKeyedOnTheirForwardedAddress() throws Exception {
+    AdmissionControlFilter filter = new AdmissionControlFilter(1, 1, 100, 10, 10, 10, 0, Duration.ZERO, now::get);
+    ForwardedHeaderFilter forwardedHeaderFilter = new ForwardedHeaderFilter();
+    for (String client : new String[] {"203.0.113.1", "203.0.113.2"}) {
+      MockHttpServletRequest request = get("/books/1", "10.0.0.1");
+      request.addHeader("X-Forwarded-For", client);
+      MockHttpServletResponse response = new MockHttpServletResponse();
+      forwardedHeaderFilter.doFilter(request, response,
+              (forwarded, forwardedResponse) -> filter.doFilter(forwarded, forwardedResponse, new MockFilterChain()));
+      assertEquals(200, response.getStatus());
+    }
+    assertEquals(2, filter.clientCount());
+  }
+}
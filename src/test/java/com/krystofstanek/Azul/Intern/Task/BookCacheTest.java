@@ -0,0 +1,77 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+public class BookCacheTest {
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private BookCache bookCache;
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  private SimpleBook book(String isbn, String title, int quantity) {
+    return new SimpleBook(isbn, title, "Cache Author", Genre.FICTION, new BigDecimal("12.50"), quantity);
+  }
+
+  @Test
+  public void testRepeatedLookupIsServedFromCache() {
+    bookService.addBook(book("CACHE1", "Cached Title", 3));
+
+    bookService.getBookByIsbn("CACHE1");
+    long hits = bookCache.stats().hits();
+    BookView second = bookService.getBookByIsbn("CACHE1");
+
+    assertEquals(hits + 1, bookCache.stats().hits());
+    assertEquals("Cached Title", second.title());
+  }
+
+  @Test
+  public void testUpdateInvalidatesCachedBook() {
+    bookService.addBook(book("CACHE2", "Old Title", 3));
+    bookService.getBookByIsbn("CACHE2");
+
+    bookService.updateBook(book("CACHE2", "New Title", 3), "CACHE2");
+
+    assertNull(bookCache.get("CACHE2"));
+    assertEquals("New Title", bookService.getBookByIsbn("CACHE2").title());
+    assertEquals("New Title", bookCache.get("CACHE2").title());
+  }
+
+  @Test
+  public void testOutOfOrderEventsDoNotCacheOlderState() {
+    BookCache cache = new BookCache(true, 100, 300);
+    BookView v1 = new BookView("CACHE4", "First", "Cache Author", Genre.FICTION, new BigDecimal("12.50"), 1, 1);
+    BookView v2 = new BookView("CACHE4", "Second", "Cache Author", Genre.FICTION, new BigDecimal("12.50"), 1, 2);
+    BookView v3 = new BookView("CACHE4", "Third", "Cache Author", Genre.FICTION, new BigDecimal("12.50"), 1, 3);
+    cache.putIfNotInvalidated(v3, cache.stamp());
+
+    // The listener of the older change runs after the one of the newer change.
+    cache.onBookChanged(BookChangedEvent.changed(v2, v3));
+    cache.onBookChanged(BookChangedEvent.changed(v1, v2));
+
+    assertNull(cache.get("CACHE4"));
+  }
+}
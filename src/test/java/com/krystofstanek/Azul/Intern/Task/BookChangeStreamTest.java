@@ -0,0 +1,115 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "bookstore.stream.coalesce-ms=500")
+@AutoConfigureTestDatabase
+public class BookChangeStreamTest {
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookChangeStream bookChangeStream;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private static SimpleBook book(String isbn, Genre genre, int quantity) {
+    return new SimpleBook(isbn, "Title", "Author", genre, new BigDecimal("12.50"), quantity);
+  }
+
+  /**
+   * Subscribes to the stream and collects the data lines of its events in the background.
+   */
+  private BlockingQueue<String> subscribe(String query) throws Exception {
+    int subscribers = bookChangeStream.subscriberCount();
+    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/books/changes" + query))
+            .header("Accept", "text/event-stream")
+            .build();
+    HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+    assertEquals(200, response.statusCode());
+    BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+    Thread reader = new Thread(() -> response.body()
+            .filter(line -> line.startsWith("data:"))
+            .forEach(line -> lines.add(line.substring("data:".length()))));
+    reader.setDaemon(true);
+    reader.start();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (bookChangeStream.subscriberCount() == subscribers && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    return lines;
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  @Test
+  public void testChangesToTheSameBookAreCoalesced() throws Exception {
+    BlockingQueue<String> events = subscribe("?isbn=STREAM1");
+
+    bookService.addBook(book("STREAM1", Genre.FANTASY, 1));
+    bookService.addBook(book("STREAM1", Genre.FANTASY, 2));
+    bookService.removeBook("STREAM1", 1);
+    bookService.addBook(book("STREAM2", Genre.FANTASY, 1));
+
+    String event = events.poll(5, TimeUnit.SECONDS);
+    assertNotNull(event);
+    assertTrue(event.contains("\"isbn\":\"STREAM1\""), event);
+    assertTrue(event.contains("\"quantity\":2"), event);
+    assertNull(events.poll(1, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testGenreFilterSeesBooksMovingOutOfTheGenre() throws Exception {
+    BlockingQueue<String> events = subscribe("?genre=HORROR");
+
+    bookService.addBook(book("STREAM3", Genre.POETRY, 1));
+    bookService.addBook(book("STREAM4", Genre.HORROR, 3));
+    String created = events.poll(5, TimeUnit.SECONDS);
+    assertNotNull(created);
+    assertTrue(created.contains("\"isbn\":\"STREAM4\""), created);
+
+    bookService.updateBook(book("STREAM4", Genre.POETRY, 3), "STREAM4");
+    String moved = events.poll(5, TimeUnit.SECONDS);
+    assertNotNull(moved);
+    assertTrue(moved.contains("\"genre\":\"POETRY\""), moved);
+
+    bookService.addBook(book("STREAM5", Genre.HORROR, 1));
+    assertNotNull(events.poll(5, TimeUnit.SECONDS));
+    bookService.removeBook("STREAM5", 1);
+    String removed = events.poll(5, TimeUnit.SECONDS);
+    assertNotNull(removed);
+    assertTrue(removed.contains("\"removed\":true"), removed);
+    assertNull(events.poll(1, TimeUnit.SECONDS));
+  }
+}
@@ -0,0 +1,195 @@
+package com.krystofstanek.Azul.Intern.Task.api.controller;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class BookEtagTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private static SimpleBook book(String isbn, int quantity) {
+    return new SimpleBook(isbn, "Title", "Author", Genre.MYSTERY, new BigDecimal("15.00"), quantity);
+  }
+
+  private String etag(String url) throws Exception {
+    String etag = mockMvc.perform(get(url))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+    assertNotNull(etag);
+    return etag;
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  @Test
+  public void testWritesIncrementTheVersion() {
+    bookService.addBook(book("ETAG0", 2));
+    long created = bookService.getBookByIsbn("ETAG0").version();
+
+    bookService.addBook(book("ETAG0", 1));
+    bookService.removeBook("ETAG0", 1);
+    bookService.updateBook(new SimpleBook("ETAG0", "New Title", "Author", Genre.MYSTERY,
+            new BigDecimal("15.00"), 2), "ETAG0");
+
+    assertEquals(created + 3, bookService.getBookByIsbn("ETAG0").version());
+    assertEquals(created + 3, bookRepository.findVersionByIsbn("ETAG0").orElseThrow().version());
+  }
+
+  @Test
+  public void testBookIsNotModifiedUntilWritten() throws Exception {
+    bookService.addBook(book("ETAG1", 5));
+    String etag = etag("/books/ETAG1");
+
+    mockMvc.perform(get("/books/ETAG1").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified())
+            .andExpect(content().string(""));
+
+    bookService.removeBook("ETAG1", 1);
+
+    mockMvc.perform(get("/books/ETAG1").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
+    assertNotEquals(etag, etag("/books/ETAG1"));
+  }
+
+  @Test
+  public void testSearchPageIsNotModifiedUntilAnyBookChanges() throws Exception {
+    bookService.addBook(book("ETAG2", 1));
+    bookService.addBook(book("ETAG3", 1));
+    String url = "/books/genre?genre=MYSTERY&size=10";
+    String etag = etag(url);
+    assertEquals(etag, etag(url));
+    assertNotEquals(etag, etag("/books/genre?genre=MYSTERY&size=1"));
+
+    mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+
+    bookService.updateBook(new SimpleBook("ETAG3", "Other Title", "Author", Genre.MYSTERY,
+            new BigDecimal("15.00"), 1), "ETAG3");
+
+    mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk());
+  }
+
+  @Test
+  public void testCursorSelectsKeysetSlice() throws Exception {
+    bookService.addBook(book("ETAG6", 1));
+    bookService.addBook(book("ETAG7", 1));
+    String first = "/books/genre?genre=MYSTERY&size=1&cursor=";
+    String body = mockMvc.perform(get(first))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].isbn").value("ETAG6"))
+            .andReturn().getResponse().getContentAsString();
+    String nextCursor = JsonPath.read(body, "$.nextCursor");
+    assertNotEquals(etag("/books/genre?genre=MYSTERY&size=1"), etag(first));
+
+    String second = "/books/genre?genre=MYSTERY&size=1&cursor=" + nextCursor;
+    mockMvc.perform(get(second))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.content[0].isbn").value("ETAG7"));
+    mockMvc.perform(get(second).header(HttpHeaders.IF_NONE_MATCH, etag(second)))
+            .andExpect(status().isNotModified());
+    mockMvc.perform(get("/books/genre?genre=MYSTERY&size=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.page.totalElements").value(2));
+  }
+
+  @Test
+  public void testEachFormatHasItsOwnEtag() throws Exception {
+    bookService.addBook(book("ETAG5", 1));
+
+    for (String url : new String[] {"/books/ETAG5", "/books/genre?genre=MYSTERY&size=10"}) {
+      String json = mockMvc.perform(get(url).header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE))
+              .andExpect(status().isOk())
+              .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+              .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+      String cbor = mockMvc.perform(get(url).header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE))
+              .andExpect(status().isOk())
+              .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)))
+              .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+      assertNotNull(json);
+      assertNotEquals(json, cbor);
+
+      // A JSON tag does not validate a cached CBOR body.
+      mockMvc.perform(get(url)
+                      .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE)
+                      .header(HttpHeaders.IF_NONE_MATCH, json))
+              .andExpect(status().isOk());
+      mockMvc.perform(get(url)
+                      .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_CBOR_VALUE)
+                      .header(HttpHeaders.IF_NONE_MATCH, cbor))
+              .andExpect(status().isNotModified())
+              .andExpect(header().string(HttpHeaders.VARY, containsString(HttpHeaders.ACCEPT)));
+    }
+  }
+
+  @Test
+  public void testConcurrentlyModifiedUpdateIsAConflict() throws Exception {
+    bookService.addBook(book("ETAG4", 2));
+    String admin = "Basic " + Base64.getEncoder().encodeToString("admin:password".getBytes(StandardCharsets.UTF_8));
+
+    new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+      try {
+        // The update joins this transaction and finds the book it already loaded, with the old version.
+        bookRepository.findById("ETAG4").orElseThrow();
+        CompletableFuture.runAsync(() -> bookService.addBook(book("ETAG4", 1))).join();
+
+        mockMvc.perform(patch("/books/ETAG4")
+                        .header(HttpHeaders.AUTHORIZATION, admin)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"isbn\":\"ETAG4\",\"title\":\"New Title\",\"author\":\"Author\","
+                                + "\"genre\":\"MYSTERY\",\"price\":15.00,\"quantity\":3}"))
+                .andExpect(status().isConflict());
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+      status.setRollbackOnly();
+    });
+
+    assertEquals("Title", bookService.getBookByIsbn("ETAG4").title());
+    assertEquals(3, bookService.getBookByIsbn("ETAG4").quantity());
+  }
+}
@@ -0,0 +1,135 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class BookExportServiceTest {
+
+  @Autowired
+  private BookExportService bookExportService;
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  private static SimpleBook book(String isbn, String title, Genre genre) {
+    return new SimpleBook(isbn, title, "Author", genre, new BigDecimal("12.50"), 2);
+  }
+
+  private String export(BookExportService.Format format, Genre genre) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    bookExportService.export(format, genre, out);
+    return out.toString(StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testCsvFieldQuotesOnlyWhenNeeded() {
+    assertEquals("Plain title", BookExportService.csvField("Plain title"));
+    assertEquals("\"Red, White\"", BookExportService.csvField("Red, White"));
+    assertEquals("\"The \"\"Quoted\"\" One\"", BookExportService.csvField("The \"Quoted\" One"));
+    assertEquals("\"Two\nLines\"", BookExportService.csvField("Two\nLines"));
+    assertEquals("\"Carriage\rReturn\"", BookExportService.csvField("Carriage\rReturn"));
+  }
+
+  @Test
+  public void testExportStreamsAllBooksInIsbnOrderAcrossFetchChunks() throws IOException {
+    // More books than the fetch size of 500, so the cursor is advanced across several chunks.
+    List<AbstractBook> books = new ArrayList<>();
+    for (int i = 1203; i > 0; i--) {
+      books.add(book(String.format("EXP%05d", i), "Title " + i, i % 2 == 0 ? Genre.HISTORY : Genre.POETRY));
+    }
+    bookService.addBooks(books);
+
+    List<String> lines = export(BookExportService.Format.NDJSON, null).lines().toList();
+
+    assertEquals(1203, lines.size());
+    for (int i = 0; i < lines.size(); i++) {
+      JsonNode node = objectMapper.readTree(lines.get(i));
+      assertEquals(String.format("EXP%05d", i + 1), node.get("isbn").asText());
+    }
+
+    List<String> history = export(BookExportService.Format.CSV, Genre.HISTORY).lines().toList();
+    assertEquals("isbn,title,author,genre,price,quantity", history.get(0));
+    assertEquals(602, history.size());
+    assertEquals("EXP00002,Title 2,Author,HISTORY,12.50,2", history.get(1));
+    assertTrue(history.stream().skip(1).allMatch(line -> line.contains(",HISTORY,")));
+  }
+
+  @Test
+  public void testCsvExportRoundTripsSpecialCharacters() throws IOException {
+    bookService.addBook(book("EXP1", "Red, \"White\"\nand Blue", Genre.FICTION));
+
+    String csv = export(BookExportService.Format.CSV, null);
+
+    assertEquals("isbn,title,author,genre,price,quantity\n"
+            + "EXP1,\"Red, \"\"White\"\"\nand Blue\",Author,FICTION,12.50,2\n", csv);
+    BufferedReader reader = new BufferedReader(new StringReader(csv));
+    long[] lineNumber = {0};
+    CatalogImportService.readCsvRecord(reader, lineNumber, 1000);
+    assertEquals(List.of("EXP1", "Red, \"White\"\nand Blue", "Author", "FICTION", "12.50", "2"),
+            CatalogImportService.readCsvRecord(reader, lineNumber, 1000));
+  }
+
+  @Test
+  public void testExportEndpointSetsContentType() throws Exception {
+    bookService.addBook(book("EXP2", "Title", Genre.FICTION));
+
+    MockHttpServletResponse csv = mockMvc.perform(get("/books/export").param("format", "csv"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse();
+    assertTrue(MediaType.parseMediaType("text/csv")
+            .isCompatibleWith(MediaType.parseMediaType(csv.getContentType())));
+    assertEquals("UTF-8", csv.getCharacterEncoding());
+    assertEquals("isbn,title,author,genre,price,quantity\nEXP2,Title,Author,FICTION,12.50,2\n",
+            csv.getContentAsString());
+
+    MockHttpServletResponse ndjson = mockMvc.perform(get("/books/export").param("genre", "FICTION"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse();
+    assertTrue(MediaType.parseMediaType("application/x-ndjson")
+            .isCompatibleWith(MediaType.parseMediaType(ndjson.getContentType())));
+    assertEquals("EXP2", objectMapper.readTree(ndjson.getContentAsString().trim()).get("isbn").asText());
+  }
+}
@@ -1,15 +1,18 @@
 package com.krystofstanek.Azul.Intern.Task.api.repository;
 
 import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
 import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
 import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,7 +33,7 @@ public class BookRepositoryTest {
     AbstractBook book = createTestBook("ISBN002");
     bookRepository.save(book);
 
-    Page<AbstractBook> page = bookRepository.findByTitle("Test Title", PageRequest.of(0, 10));
+    Page<BookView> page = bookRepository.findByTitle("Test Title", PageRequest.of(0, 10));
     assertEquals(1, page.getTotalElements());
   }
 
@@ -39,7 +42,7 @@ public class BookRepositoryTest {
     AbstractBook book = createTestBook("ISBN003");
     bookRepository.save(book);
 
-    Page<AbstractBook> page = bookRepository.findByAuthor("Test Author", PageRequest.of(0, 10));
+    Page<BookView> page = bookRepository.findByAuthor("Test Author", PageRequest.of(0, 10));
     assertEquals(1, page.getTotalElements());
   }
 
@@ -48,7 +51,7 @@ public class BookRepositoryTest {
     AbstractBook book = createTestBook("ISBN004");
     bookRepository.save(book);
 
-    Page<AbstractBook> page = bookRepository.findByGenre(Genre.FICTION, PageRequest.of(0, 10));
+    Page<BookView> page = bookRepository.findByGenre(Genre.FICTION, PageRequest.of(0, 10));
     assertEquals(1, page.getTotalElements());
   }
 
@@ -57,7 +60,7 @@ public class BookRepositoryTest {
     AbstractBook book = createTestBook("ISBN005");
     bookRepository.save(book);
 
-    Page<AbstractBook> page = bookRepository.findByPriceRange(
+    Page<BookView> page = bookRepository.findByPriceRange(
             BigDecimal.valueOf(10), BigDecimal.valueOf(30), PageRequest.of(0, 10));
     assertEquals(1, page.getTotalElements());
   }
@@ -80,7 +83,7 @@ public class BookRepositoryTest {
 
   @Test
   public void testFindByTitleNoMatch() {
-    Page<AbstractBook> page = bookRepository.findByTitle("No Title", PageRequest.of(0, 10));
+    Page<BookView> page = bookRepository.findByTitle("No Title", PageRequest.of(0, 10));
     assertTrue(page.isEmpty());
   }
 
@@ -94,7 +97,7 @@ public class BookRepositoryTest {
     upper.setPrice(BigDecimal.valueOf(30.00));
     bookRepository.save(upper);
 
-    Page<AbstractBook> page = bookRepository.findByPriceRange(
+    Page<BookView> page = bookRepository.findByPriceRange(
             BigDecimal.valueOf(10), BigDecimal.valueOf(30), PageRequest.of(0, 10)
     );
     assertEquals(2, page.getTotalElements());
@@ -102,9 +105,100 @@ public class BookRepositoryTest {
 
   @Test
   public void testFindByPriceRangeNoMatch() {
-    Page<AbstractBook> page = bookRepository.findByPriceRange(
+    Page<BookView> page = bookRepository.findByPriceRange(
             BigDecimal.valueOf(100), BigDecimal.valueOf(200), PageRequest.of(0, 10)
     );
     assertTrue(page.isEmpty());
   }
+
+  @Test
+  public void testDecrementQuantityIfAvailable() {
+    bookRepository.save(createTestBook("ISBN008"));
+
+    assertEquals(1, bookRepository.decrementQuantityIfAvailable("ISBN008", 4));
+    assertEquals(6, bookRepository.findQuantityByIsbn("ISBN008").orElseThrow());
+    assertEquals(0, bookRepository.decrementQuantityIfAvailable("ISBN008", 6));
+    assertEquals(6, bookRepository.findQuantityByIsbn("ISBN008").orElseThrow());
+  }
+
+  @Test
+  public void testDeleteByIsbnIfQuantityEquals() {
+    bookRepository.save(createTestBook("ISBN009"));
+
+    assertEquals(0, bookRepository.deleteByIsbnIfQuantityEquals("ISBN009", 9));
+    assertEquals(1, bookRepository.deleteByIsbnIfQuantityEquals("ISBN009", 10));
+    assertFalse(bookRepository.existsById("ISBN009"));
+  }
+
+  @Test
+  public void testDeleteIfQuantityEqualsReturnsTheDeletedRow() {
+    bookRepository.saveAndFlush(createTestBook("ISBN019"));
+    bookRepository.incrementQuantity("ISBN019", 2);
+
+    assertEquals(Optional.empty(), bookRepository.deleteIfQuantityEquals("ISBN019", 10));
+    BookView deleted = bookRepository.deleteIfQuantityEquals("ISBN019", 12).orElseThrow();
+    assertEquals("ISBN019", deleted.isbn());
+    assertEquals("Test Title", deleted.title());
+    assertEquals(Genre.FICTION, deleted.genre());
+    assertEquals(0, BigDecimal.valueOf(19.99).compareTo(deleted.price()));
+    assertEquals(12, deleted.quantity());
+    assertEquals(1, deleted.version());
+    assertFalse(bookRepository.existsById("ISBN019"));
+    assertEquals(Optional.empty(), bookRepository.deleteIfQuantityEquals("ISBN019", 12));
+  }
+
+  @Test
+  public void testIncrementQuantity() {
+    bookRepository.save(createTestBook("ISBN010"));
+
+    assertEquals(1, bookRepository.incrementQuantity("ISBN010", 5));
+    assertEquals(15, bookRepository.findQuantityByIsbn("ISBN010").orElseThrow());
+    assertEquals(0, bookRepository.incrementQuantity("NON_EXISTENT", 5));
+  }
+
+  @Test
+  public void testFindByGenreAfterSeeksPastCursor() {
+    AbstractBook first = createTestBook("ISBN012");
+    first.setTitle("A Title");
+    bookRepository.save(first);
+    bookRepository.save(createTestBook("ISBN011"));
+    bookRepository.save(createTestBook("ISBN013"));
+
+    List<BookView> firstSlice = bookRepository.findByGenreAfter(Genre.FICTION, "", "", Limit.of(2));
+    assertEquals(List.of("ISBN012", "ISBN011"), firstSlice.stream().map(BookView::isbn).toList());
+
+    List<BookView> secondSlice = bookRepository.findByGenreAfter(Genre.FICTION, "Test Title", "ISBN011", Limit.of(2));
+    assertEquals(List.of("ISBN013"), secondSlice.stream().map(BookView::isbn).toList());
+  }
+
+  @Test
+  public void testFindByPriceRangeAfterSeeksPastCursor() {
+    AbstractBook cheap = createTestBook("ISBN014");
+    cheap.setPrice(BigDecimal.valueOf(10.00));
+    bookRepository.save(cheap);
+    bookRepository.save(createTestBook("ISBN015"));
+
+    List<BookView> slice = bookRepository.findByPriceRangeAfter(BigDecimal.valueOf(5), BigDecimal.valueOf(30),
+            BigDecimal.valueOf(10.00), "ISBN014", Limit.of(10));
+    assertEquals(List.of("ISBN015"), slice.stream().map(BookView::isbn).toList());
+  }
+
+  @Test
+  public void testFindViewByIsbnReturnsUnmanagedView() {
+    bookRepository.save(createTestBook("ISBN016"));
+
+    Optional<BookView> view = bookRepository.findViewByIsbn("ISBN016");
+    assertEquals(Optional.of(new BookView("ISBN016", "Test Title", "Test Author", Genre.FICTION,
+            BigDecimal.valueOf(19.99), 10, 0)), view);
+    assertTrue(bookRepository.findViewByIsbn("NON_EXISTENT").isEmpty());
+  }
+
+  @Test
+  public void testFindViewsByIsbnIn() {
+    bookRepository.save(createTestBook("ISBN017"));
+    bookRepository.save(createTestBook("ISBN018"));
+
+    List<BookView> views = bookRepository.findViewsByIsbnIn(List.of("ISBN017", "ISBN018", "NON_EXISTENT"));
+    assertEquals(2, views.size());
+  }
 }
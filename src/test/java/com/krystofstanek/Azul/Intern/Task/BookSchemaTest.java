@@ -0,0 +1,136 @@
+package com.krystofstanek.Azul.Intern.Task.api.repository;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Verifies that the Flyway schema serves the queries of the search endpoints from indexes.
+ * The plans are taken for the SQL Hibernate generates from the repository queries and
+ * {@link BookSpecifications}, as recorded by {@link RecordingInspector}.
+ * {@code ANALYZE} commits in H2, so the test runs without the test-managed transaction and
+ * deletes its rows afterwards instead of relying on a rollback.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.krystofstanek.Azul.Intern.Task.api.repository.BookSchemaTest$RecordingInspector")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class BookSchemaTest {
+
+  /**
+   * Records every statement Hibernate prepares.
+   */
+  public static class RecordingInspector implements StatementInspector {
+
+    static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+      STATEMENTS.add(sql);
+      return sql;
+    }
+  }
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private DataSource dataSource;
+
+  private JdbcTemplate jdbcTemplate;
+
+  @BeforeEach
+  public void setUp() {
+    jdbcTemplate = new JdbcTemplate(dataSource);
+    Genre[] genres = Genre.values();
+    List<AbstractBook> books = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      books.add(new SimpleBook(String.format("ISBN%05d", i), "Title " + i % 50, "Author " + i % 40,
+              genres[i % genres.length], BigDecimal.valueOf(i % 100), 1));
+    }
+    bookRepository.saveAllAndFlush(books);
+    jdbcTemplate.execute("ANALYZE");
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAllInBatch();
+  }
+
+  /**
+   * Runs a repository query and returns the plan of the first select it sent, which for
+   * paged queries is the one reading the page rather than counting.
+   */
+  private String planOf(Runnable query) {
+    RecordingInspector.STATEMENTS.clear();
+    query.run();
+    String sql = RecordingInspector.STATEMENTS.stream()
+            .filter(statement -> statement.startsWith("select"))
+            .findFirst()
+            .orElseThrow();
+    return jdbcTemplate.query(connection -> connection.prepareStatement("EXPLAIN " + sql),
+            resultSet -> resultSet.next() ? resultSet.getString(1) : "").toUpperCase();
+  }
+
+  @Test
+  public void testGenreQueriesUseGenreIndex() {
+    String plan = planOf(() -> bookRepository.findByGenreAfter(Genre.FICTION, "Title 1", "ISBN00001", Limit.of(20)));
+    assertTrue(plan.contains("IDX_BOOK_GENRE_TITLE"), plan);
+  }
+
+  @Test
+  public void testAuthorQueriesUseAuthorIndex() {
+    String plan = planOf(() -> bookRepository.findByAuthorAfter("Author 1", "", "", Limit.of(20)));
+    assertTrue(plan.contains("IDX_BOOK_AUTHOR_TITLE"), plan);
+    plan = planOf(() -> bookRepository.findByAuthor("Author 1", PageRequest.of(0, 20)));
+    assertTrue(plan.contains("IDX_BOOK_AUTHOR_TITLE"), plan);
+  }
+
+  @Test
+  public void testTitleQueriesUseTitleIndex() {
+    String plan = planOf(() -> bookRepository.findByTitleAfter("Title 1", "", Limit.of(20)));
+    assertTrue(plan.contains("IDX_BOOK_TITLE"), plan);
+    plan = planOf(() -> bookRepository.findByTitle("Title 1", PageRequest.of(0, 20)));
+    assertTrue(plan.contains("IDX_BOOK_TITLE"), plan);
+  }
+
+  @Test
+  public void testPriceRangeQueriesUsePriceIndex() {
+    String plan = planOf(() -> bookRepository.findByPriceRangeAfter(BigDecimal.TEN, BigDecimal.valueOf(20),
+            BigDecimal.TEN, "", Limit.of(20)));
+    assertTrue(plan.contains("IDX_BOOK_PRICE"), plan);
+    plan = planOf(() -> bookRepository.findByPriceRange(BigDecimal.TEN, BigDecimal.valueOf(20), PageRequest.of(0, 20)));
+    assertTrue(plan.contains("IDX_BOOK_PRICE"), plan);
+  }
+
+  @Test
+  public void testCombinedGenreAndPriceQueriesUseCompositeIndex() {
+    Specification<AbstractBook> specification = Specification
+            .where(BookSpecifications.hasGenre(Genre.FICTION))
+            .and(BookSpecifications.priceAtLeast(BigDecimal.TEN))
+            .and(BookSpecifications.priceAtMost(BigDecimal.valueOf(20)));
+    String plan = planOf(() -> bookRepository.findViews(specification,
+            PageRequest.of(0, 20, Sort.by("price").and(Sort.by("isbn")))));
+    assertTrue(plan.contains("IDX_BOOK_GENRE_PRICE"), plan);
+  }
+}
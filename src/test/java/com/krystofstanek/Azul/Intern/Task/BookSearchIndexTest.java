@@ -0,0 +1,114 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookSearchIndexTest {
+
+  private BookSearchIndex index;
+
+  private void addBook(String isbn, String title, String author) {
+    index.index(new SimpleBook(isbn, title, author, Genre.FICTION, BigDecimal.TEN, 1));
+  }
+
+  private List<String> search(String query, BookSearchIndex.Field field) {
+    return index.search(query, field, 10).isbns();
+  }
+
+  @BeforeEach
+  public void setUp() {
+    index = new BookSearchIndex(null, true, 0.6);
+    addBook("ISBN001", "Harry Potter and the Philosopher's Stone", "J. K. Rowling");
+    addBook("ISBN002", "The Hobbit", "J. R. R. Tolkien");
+    addBook("ISBN003", "Effective Java", "Joshua Bloch");
+  }
+
+  @Test
+  public void testSubstringMatchIsCaseInsensitive() {
+    assertEquals(List.of("ISBN001"), search("POTTER and", BookSearchIndex.Field.TITLE));
+  }
+
+  @Test
+  public void testPrefixRanksAboveSubstring() {
+    addBook("ISBN004", "Java Concurrency in Practice", "Brian Goetz");
+
+    assertEquals(List.of("ISBN004", "ISBN003"), search("java", BookSearchIndex.Field.TITLE));
+  }
+
+  @Test
+  public void testTypoTolerantMatch() {
+    assertEquals(List.of("ISBN001"), search("hary poter", BookSearchIndex.Field.ANY));
+  }
+
+  @Test
+  public void testFieldRestriction() {
+    assertTrue(search("tolkien", BookSearchIndex.Field.TITLE).isEmpty());
+    assertEquals(List.of("ISBN002"), search("tolkien", BookSearchIndex.Field.AUTHOR));
+  }
+
+  @Test
+  public void testUpdateAndRemove() {
+    addBook("ISBN002", "The Silmarillion", "J. R. R. Tolkien");
+    assertTrue(search("hobbit", BookSearchIndex.Field.TITLE).isEmpty());
+    assertEquals(List.of("ISBN002"), search("silmarillion", BookSearchIndex.Field.TITLE));
+
+    index.remove("ISBN002");
+    assertTrue(search("tolkien", BookSearchIndex.Field.ANY).isEmpty());
+  }
+
+  @Test
+  public void testSearchReturnsOnlyTheBestMatchesAndCountsAll() {
+    for (int i = 10; i < 40; i++) {
+      addBook("J0" + i, "Java " + i, "Author");
+    }
+
+    BookSearchIndex.Hits hits = index.search("java", BookSearchIndex.Field.TITLE, 3);
+    assertEquals(List.of("J010", "J011", "J012"), hits.isbns());
+    assertEquals(31, hits.total());
+
+    List<String> all = index.search("java", BookSearchIndex.Field.TITLE, 100).isbns();
+    assertEquals(31, all.size());
+    assertEquals("ISBN003", all.get(30));
+  }
+
+  @Test
+  public void testRebuildReplaysChangesMadeDuringTheScan() {
+    List<AbstractBook> catalog = List.of(
+            new SimpleBook("ISBN001", "Old Title", "Author", Genre.FICTION, BigDecimal.TEN, 1),
+            new SimpleBook("ISBN002", "Gone Title", "Author", Genre.FICTION, BigDecimal.TEN, 1));
+    List<String> duringScan = new ArrayList<>();
+    BookRepository repository = (BookRepository) Proxy.newProxyInstance(
+            BookRepository.class.getClassLoader(), new Class<?>[] {BookRepository.class},
+            (proxy, method, args) -> {
+              assertEquals("findByIsbnGreaterThanOrderByIsbnAsc", method.getName());
+              // Changes committed after the scan read these rows, and searches served meanwhile.
+              index.index("ISBN001", "New Title", "Author");
+              index.remove("ISBN002");
+              index.index("ISBN005", "Added Title", "Author");
+              duringScan.addAll(search("title", BookSearchIndex.Field.TITLE));
+              return catalog;
+            });
+    index = new BookSearchIndex(repository, true, 0.6);
+    addBook("ISBN009", "Previous Title", "Author");
+
+    index.rebuild();
+
+    assertEquals(List.of("ISBN001", "ISBN005", "ISBN009"), duringScan);
+    assertEquals(List.of("ISBN001"), search("new", BookSearchIndex.Field.TITLE));
+    assertEquals(List.of("ISBN005"), search("added", BookSearchIndex.Field.TITLE));
+    assertTrue(search("old", BookSearchIndex.Field.TITLE).isEmpty());
+    assertTrue(search("gone", BookSearchIndex.Field.TITLE).isEmpty());
+    assertTrue(search("previous", BookSearchIndex.Field.TITLE).isEmpty());
+  }
+}
@@ -0,0 +1,245 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BatchItemResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookLookupResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookSearchCriteria;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+public class BookServiceTest {
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  private AbstractBook createTestBook(String isbn, int quantity) {
+    return new SimpleBook(isbn, "Test Title", "Test Author", Genre.FICTION, BigDecimal.valueOf(19.99), quantity);
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  @Test
+  public void testAddBooksMergesDuplicatesAndIncrementsExisting() {
+    bookRepository.save(createTestBook("ISBN100", 5));
+
+    List<BatchItemResult> results = bookService.addBooks(List.of(
+            createTestBook("ISBN100", 2),
+            createTestBook("ISBN101", 3),
+            createTestBook("ISBN101", 4)));
+
+    assertEquals(3, results.size());
+    assertEquals(BatchItemResult.Status.INCREMENTED, results.get(0).status());
+    assertEquals(7, results.get(0).quantity());
+    assertEquals(BatchItemResult.Status.CREATED, results.get(1).status());
+    assertEquals(7, results.get(1).quantity());
+    assertEquals(results.get(1), new BatchItemResult(1, "ISBN101", BatchItemResult.Status.CREATED, 7, null));
+    assertEquals(2, results.get(2).index());
+
+    assertEquals(7, bookRepository.findById("ISBN100").orElseThrow().getQuantity());
+    assertEquals(7, bookRepository.findById("ISBN101").orElseThrow().getQuantity());
+  }
+
+  @Test
+  public void testAddBooksRejectsInvalidItems() {
+    AbstractBook invalid = createTestBook("ISBN102", 1);
+    invalid.setTitle(" ");
+
+    List<BatchItemResult> results = bookService.addBooks(List.of(invalid, createTestBook("ISBN103", 1)));
+
+    assertEquals(BatchItemResult.Status.REJECTED, results.get(0).status());
+    assertEquals("Title cannot be null or empty.", results.get(0).message());
+    assertEquals(BatchItemResult.Status.CREATED, results.get(1).status());
+    assertFalse(bookRepository.existsById("ISBN102"));
+    assertTrue(bookRepository.existsById("ISBN103"));
+  }
+
+  @Test
+  public void testAddBooksRejectsOverflowingMergeWithoutModifyingInput() {
+    AbstractBook first = createTestBook("ISBN106", Integer.MAX_VALUE - 1);
+    AbstractBook second = createTestBook("ISBN106", 1);
+    AbstractBook overflowing = createTestBook("ISBN106", 1);
+
+    List<BatchItemResult> results = bookService.addBooks(List.of(first, second, overflowing));
+
+    assertEquals(BatchItemResult.Status.CREATED, results.get(0).status());
+    assertEquals(Integer.MAX_VALUE, results.get(1).quantity());
+    assertEquals(BatchItemResult.Status.REJECTED, results.get(2).status());
+    assertEquals(Integer.MAX_VALUE - 1, first.getQuantity());
+    assertEquals(Integer.MAX_VALUE, bookRepository.findById("ISBN106").orElseThrow().getQuantity());
+  }
+
+  @Test
+  public void testRemoveBookDecrementsAndDeletesAtZero() {
+    bookRepository.save(createTestBook("ISBN104", 5));
+
+    assertEquals(OptionalInt.of(3), bookService.removeBook("ISBN104", 2));
+    Exception exception = assertThrows(IllegalArgumentException.class, () -> bookService.removeBook("ISBN104", 4));
+    assertEquals("Not enough stock available.", exception.getMessage());
+    assertEquals(OptionalInt.empty(), bookService.removeBook("ISBN104", 3));
+    assertFalse(bookRepository.existsById("ISBN104"));
+  }
+
+  @Test
+  public void testAddBookIncrementsExistingQuantity() {
+    bookRepository.save(createTestBook("ISBN105", 5));
+
+    AbstractBook saved = bookService.addBook(createTestBook("ISBN105", 3));
+
+    assertEquals(8, saved.getQuantity());
+    assertEquals(8, bookRepository.findQuantityByIsbn("ISBN105").orElseThrow());
+  }
+
+  @Test
+  public void testAddAndUpdateRejectPricesWithMoreThanTwoDecimals() {
+    // Request bodies are bound through setters, bypassing the validating constructor.
+    AbstractBook added = createTestBook("ISBN106", 1);
+    added.setPrice(new BigDecimal("1.999"));
+    Exception exception = assertThrows(IllegalArgumentException.class, () -> bookService.addBook(added));
+    assertEquals("Price cannot have more than two decimal places.", exception.getMessage());
+    assertFalse(bookRepository.existsById("ISBN106"));
+
+    bookRepository.save(createTestBook("ISBN107", 1));
+    AbstractBook updated = createTestBook("ISBN107", 1);
+    updated.setPrice(new BigDecimal("1.999"));
+    assertThrows(IllegalArgumentException.class, () -> bookService.updateBook(updated, "ISBN107"));
+    assertEquals(0, BigDecimal.valueOf(19.99).compareTo(bookService.getBookByIsbn("ISBN107").price()));
+  }
+
+  @Test
+  public void testUpdateBookKeepsAbsentDetails() {
+    bookRepository.save(createTestBook("ISBN108", 4));
+    AbstractBook patch = createTestBook("ISBN108", 1);
+    patch.setTitle(null);
+    patch.setAuthor(null);
+    patch.setGenre(null);
+    patch.setPrice(new BigDecimal("12.50"));
+
+    bookService.updateBook(patch, "ISBN108");
+
+    BookView updated = bookService.getBookByIsbn("ISBN108");
+    assertEquals("Test Title", updated.title());
+    assertEquals("Test Author", updated.author());
+    assertEquals(Genre.FICTION, updated.genre());
+    assertEquals(0, new BigDecimal("12.50").compareTo(updated.price()));
+    assertEquals(4, updated.quantity());
+
+    patch.setTitle(" ");
+    assertThrows(IllegalArgumentException.class, () -> bookService.updateBook(patch, "ISBN108"));
+  }
+
+  @Test
+  public void testConcurrentRemovalsNeverOversell() throws Exception {
+    int stock = 100;
+    int threads = 16;
+    int attemptsPerThread = 10;
+    bookRepository.save(createTestBook("ISBN106", stock));
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger sold = new AtomicInteger();
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < attemptsPerThread; i++) {
+          try {
+            bookService.removeBook("ISBN106", 1);
+            sold.incrementAndGet();
+          } catch (IllegalArgumentException | BookNotFoundException e) {
+            // Out of stock or already deleted; any other failure fails the test.
+          }
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    int remaining = bookRepository.findQuantityByIsbn("ISBN106").orElse(0);
+    assertTrue(sold.get() <= stock);
+    assertEquals(stock, sold.get() + remaining);
+  }
+
+  @Test
+  public void testSearchBooksByCriteriaCombinesFiltersAndSorts() {
+    bookRepository.save(new SimpleBook("ISBN200", "Dune", "Herbert", Genre.SCIENCE_FICTION, BigDecimal.valueOf(15), 1));
+    bookRepository.save(new SimpleBook("ISBN201", "Dune Messiah", "Herbert", Genre.SCIENCE_FICTION, BigDecimal.valueOf(12), 1));
+    bookRepository.save(new SimpleBook("ISBN202", "Hyperion", "Simmons", Genre.SCIENCE_FICTION, BigDecimal.valueOf(14), 1));
+    bookRepository.save(new SimpleBook("ISBN203", "Whipping Star", "Herbert", Genre.FICTION, BigDecimal.valueOf(13), 1));
+
+    Page<BookView> page = bookService.searchBooksByCriteria(new BookSearchCriteria(Genre.SCIENCE_FICTION,
+            "Herbert", null, BigDecimal.valueOf(10), BigDecimal.valueOf(20)), "price,desc", 0, 10);
+
+    assertEquals(2, page.getTotalElements());
+    assertEquals(List.of("ISBN200", "ISBN201"), page.getContent().stream().map(BookView::isbn).toList());
+  }
+
+  @Test
+  public void testSearchBooksByCriteriaRejectsInvalidInput() {
+    BookSearchCriteria any = new BookSearchCriteria(null, null, null, null, null);
+    assertThrows(IllegalArgumentException.class, () -> bookService.searchBooksByCriteria(any, "quantity", 0, 10));
+    assertThrows(IllegalArgumentException.class, () -> bookService.searchBooksByCriteria(any, "price,up", 0, 10));
+    assertThrows(IllegalArgumentException.class, () -> bookService.searchBooksByCriteria(
+            new BookSearchCriteria(null, null, null, BigDecimal.TEN, BigDecimal.ONE), null, 0, 10));
+  }
+
+  @Test
+  public void testGetBooksByIsbnsKeepsRequestOrder() {
+    bookRepository.save(createTestBook("ISBN300", 1));
+    bookRepository.save(createTestBook("ISBN301", 2));
+    bookRepository.save(createTestBook("ISBN302", 3));
+    // Served from the cache, the others from the database
+    bookService.getBookByIsbn("ISBN301");
+
+    BookLookupResult result = bookService.getBooksByIsbns(
+            List.of("ISBN302", "MISSING1", "ISBN300", "ISBN301", "ISBN302", "MISSING0"));
+
+    assertEquals(List.of("ISBN302", "ISBN300", "ISBN301"), result.books().stream().map(BookView::isbn).toList());
+    assertEquals(3, result.books().get(0).quantity());
+    assertEquals(List.of("MISSING1", "MISSING0"), result.missing());
+  }
+
+  @Test
+  public void testGetBooksByIsbnsRejectsInvalidInput() {
+    assertThrows(IllegalArgumentException.class, () -> bookService.getBooksByIsbns(null));
+    assertThrows(IllegalArgumentException.class, () -> bookService.getBooksByIsbns(List.of("ISBN300", " ")));
+    List<String> tooMany = new ArrayList<>();
+    for (int i = 0; i <= 1000; i++) {
+      tooMany.add("ISBN" + i);
+    }
+    assertThrows(IllegalArgumentException.class, () -> bookService.getBooksByIsbns(tooMany));
+  }
+}
@@ -0,0 +1,48 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.krystofstanek.Azul.Intern.Task.api.controller.BookstoreController;
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import com.krystofstanek.Azul.Intern.Task.api.model.CursorPage;
+import com.krystofstanek.Azul.Intern.Task.api.model.InventoryChange;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.annotation.ReflectiveRuntimeHintsRegistrar;
+import org.springframework.aot.hint.predicate.ReflectionHintsPredicates;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.data.web.PagedModel;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BookstoreRuntimeHintsTest {
+
+  private final RuntimeHints hints = new RuntimeHints();
+  private final ReflectionHintsPredicates reflection = RuntimeHintsPredicates.reflection();
+
+  @Test
+  public void testEntitiesCanBeBoundReflectively() throws Exception {
+    new BookstoreRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+    assertTrue(reflection.onMethod(AbstractBook.class, "getTitle").test(hints));
+    assertTrue(reflection.onMethod(AbstractBook.class, "setPrice").test(hints));
+    assertTrue(reflection.onConstructor(SimpleBook.class.getDeclaredConstructor()).invoke().test(hints));
+  }
+
+  @Test
+  public void testResponseTypesAreRegistered() {
+    new BookstoreRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+    assertTrue(reflection.onType(PagedModel.PageMetadata.class).test(hints));
+    assertTrue(reflection.onType(InventoryChange.class).test(hints));
+  }
+
+  @Test
+  public void testSlicesAndBooksAreInferredFromHandlers() {
+    new ReflectiveRuntimeHintsRegistrar().registerRuntimeHints(hints, BookstoreController.class);
+
+    assertTrue(reflection.onType(CursorPage.class).test(hints));
+    assertTrue(reflection.onMethod(CursorPage.class, "nextCursor").test(hints));
+    assertTrue(reflection.onMethod(BookView.class, "isbn").test(hints));
+  }
+}
@@ -0,0 +1,64 @@
+package com.krystofstanek.Azul.Intern.Task.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedTtlCacheTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private BoundedTtlCache<String, String> createCache(int maxSize) {
+    return new BoundedTtlCache<>(maxSize, 100, now::get);
+  }
+
+  @Test
+  public void testHitAndMiss() {
+    BoundedTtlCache<String, String> cache = createCache(10);
+    cache.put("a", "1");
+
+    assertEquals("1", cache.get("a"));
+    assertNull(cache.get("b"));
+    assertEquals(new BoundedTtlCache.Stats(1, 1, 0, 1), cache.stats());
+  }
+
+  @Test
+  public void testEvictsLeastRecentlyUsedWhenFull() {
+    BoundedTtlCache<String, String> cache = createCache(2);
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a");
+    cache.put("c", "3");
+
+    assertNull(cache.get("b"));
+    assertEquals("1", cache.get("a"));
+    assertEquals("3", cache.get("c"));
+    assertEquals(1, cache.stats().evictions());
+  }
+
+  @Test
+  public void testExpiresAfterTtl() {
+    BoundedTtlCache<String, String> cache = createCache(10);
+    cache.put("a", "1");
+    now.addAndGet(100);
+
+    assertNull(cache.get("a"));
+    assertEquals(1, cache.stats().evictions());
+    assertEquals(0, cache.stats().size());
+  }
+
+  @Test
+  public void testPutIfNotInvalidatedSkipsStaleValues() {
+    BoundedTtlCache<String, String> cache = createCache(10);
+    long stamp = cache.stamp();
+    cache.invalidate("a");
+    cache.putIfNotInvalidated("a", "stale", stamp);
+
+    assertNull(cache.get("a"));
+
+    cache.putIfNotInvalidated("a", "fresh", cache.stamp());
+    assertEquals("fresh", cache.get("a"));
+  }
+}
@@ -0,0 +1,83 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingAuthenticationProviderTest {
+
+  private final AtomicInteger verifications = new AtomicInteger();
+  private ObservableUserDetailsManager users;
+  private CachingAuthenticationProvider provider;
+
+  /**
+   * Counts how often a password is actually checked, which is where the hash would run.
+   */
+  private final PasswordEncoder countingEncoder = new PasswordEncoder() {
+    @Override
+    public String encode(CharSequence rawPassword) {
+      return rawPassword.toString();
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+      verifications.incrementAndGet();
+      return rawPassword.toString().equals(encodedPassword);
+    }
+  };
+
+  private static UsernamePasswordAuthenticationToken login(String password) {
+    return UsernamePasswordAuthenticationToken.unauthenticated("admin", password);
+  }
+
+  @BeforeEach
+  public void setUp() {
+    users = new ObservableUserDetailsManager(new InMemoryUserDetailsManager(
+            User.withUsername("admin").password("secret").roles("ADMIN").build()));
+    DaoAuthenticationProvider dao = new DaoAuthenticationProvider(countingEncoder);
+    dao.setUserDetailsService(users);
+    provider = new CachingAuthenticationProvider(dao, 10, Duration.ofMinutes(1));
+    users.addChangeListener(provider::invalidateAll);
+  }
+
+  @Test
+  public void testSuccessfulVerificationIsCached() {
+    Authentication first = provider.authenticate(login("secret"));
+    Authentication second = provider.authenticate(login("secret"));
+
+    assertTrue(second.isAuthenticated());
+    assertEquals(first.getAuthorities(), second.getAuthorities());
+    assertEquals(1, verifications.get());
+  }
+
+  @Test
+  public void testFailedVerificationIsNeverCached() {
+    provider.authenticate(login("secret"));
+
+    assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("wrong")));
+    assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("wrong")));
+    assertEquals(3, verifications.get());
+  }
+
+  @Test
+  public void testUserChangeInvalidatesCachedVerifications() {
+    provider.authenticate(login("secret"));
+
+    users.updateUser(User.withUsername("admin").password("changed").roles("ADMIN").build());
+
+    assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("secret")));
+    assertTrue(provider.authenticate(login("changed")).isAuthenticated());
+    assertEquals(3, verifications.get());
+  }
+}
@@ -0,0 +1,229 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.BatchItemResult;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.ImportJobStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogImportServiceTest {
+
+  private static final String CSV_HEADER = "isbn,title,author,genre,price,quantity\n";
+
+  /**
+   * Stands in for the database: accepts every book, optionally after a latch is released,
+   * and fails the configured call.
+   */
+  private static final class StubBookService extends BookService {
+
+    private final CountDownLatch release;
+    private final int failingCall;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    StubBookService(CountDownLatch release, int failingCall) {
+      super(null, null, null, null, null, null, 500, 1000);
+      this.release = release;
+      this.failingCall = failingCall;
+    }
+
+    @Override
+    public List<BatchItemResult> addBooks(List<? extends AbstractBook> books) {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      if (calls.incrementAndGet() == failingCall) {
+        throw new IllegalStateException("Database unavailable");
+      }
+      List<BatchItemResult> results = new ArrayList<>();
+      for (int i = 0; i < books.size(); i++) {
+        results.add(BatchItemResult.accepted(i, books.get(i).getIsbn(), BatchItemResult.Status.CREATED, 1));
+      }
+      return results;
+    }
+  }
+
+  private static CatalogImportService service(BookService bookService, int chunkSize, int queueCapacity,
+                                              int maxRecordLength) {
+    return new CatalogImportService(bookService, new ObjectMapper(), new SimpleAsyncTaskExecutor(),
+            chunkSize, queueCapacity, maxRecordLength);
+  }
+
+  private static InputStream ndjson(int rows) {
+    StringBuilder content = new StringBuilder();
+    for (int i = 0; i < rows; i++) {
+      content.append("{\"isbn\":\"IMP").append(i).append("\",\"title\":\"Title\",\"author\":\"Author\",")
+              .append("\"genre\":\"FICTION\",\"price\":9.99,\"quantity\":1}\n");
+    }
+    return new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns the given prefix followed by an endless stream of letters without a line break.
+   */
+  private static InputStream endless(String prefix) {
+    InputStream letters = new InputStream() {
+      @Override
+      public int read() {
+        return 'a';
+      }
+    };
+    return new SequenceInputStream(new ByteArrayInputStream(prefix.getBytes(StandardCharsets.UTF_8)), letters);
+  }
+
+  @Test
+  public void testImportBlocksParserWhileWriterIsBehind() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CatalogImportService service = service(new StubBookService(release, 0), 2, 1, 1000);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<ImportJobStatus> result = executor.submit(() -> service.importCatalog(ndjson(100),
+              CatalogImportService.Format.NDJSON));
+
+      // One chunk held by the writer, one in the queue and one waiting to be enqueued.
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (service.getStatuses().isEmpty() || service.getStatuses().get(0).rowsRead() < 6) {
+        assertTrue(System.nanoTime() < deadline, "Parser did not start");
+        Thread.sleep(10);
+      }
+      Thread.sleep(200);
+      ImportJobStatus running = service.getStatuses().get(0);
+      assertEquals(ImportJobStatus.State.RUNNING, running.state());
+      assertEquals(6, running.rowsRead());
+      assertEquals(0, running.rowsImported());
+      assertEquals(running, service.getStatus(running.id()).orElseThrow());
+
+      release.countDown();
+      ImportJobStatus finished = result.get(5, TimeUnit.SECONDS);
+      assertEquals(ImportJobStatus.State.COMPLETED, finished.state());
+      assertEquals(100, finished.rowsRead());
+      assertEquals(100, finished.rowsImported());
+      assertNotNull(finished.finishedAt());
+    } finally {
+      release.countDown();
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testImportRejectsInvalidRowsAndContinues() {
+    CatalogImportService service = service(new StubBookService(new CountDownLatch(0), 0), 2, 1, 1000);
+    String csv = CSV_HEADER
+            + "IMP1,Title,Author,FICTION,9.99,1\n"
+            + "IMP2,Title,,FICTION,9.99,1\n"
+            + "IMP3,Title,Author,UNKNOWN,9.99,1\n"
+            + "IMP4,Title,Author,FICTION,9.99,1\n";
+
+    ImportJobStatus status = service.importCatalog(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), CatalogImportService.Format.CSV);
+
+    assertEquals(ImportJobStatus.State.COMPLETED, status.state());
+    assertEquals(4, status.rowsRead());
+    assertEquals(2, status.rowsImported());
+    assertEquals(2, status.rowsRejected());
+    assertEquals(3, status.errors().get(0).line());
+    assertEquals("Author cannot be null or empty.", status.errors().get(0).message());
+    assertEquals("Invalid genre: UNKNOWN", status.errors().get(1).message());
+  }
+
+  @Test
+  public void testImportFailsWhenWriterFails() {
+    CatalogImportService service = service(new StubBookService(new CountDownLatch(0), 2), 2, 1, 1000);
+
+    ImportJobStatus status = service.importCatalog(ndjson(10), CatalogImportService.Format.NDJSON);
+
+    assertEquals(ImportJobStatus.State.FAILED, status.state());
+    assertEquals("Database unavailable", status.failure());
+    assertEquals(2, status.rowsImported());
+  }
+
+  @Test
+  public void testUnterminatedQuoteFailsAtMaximumRecordLength() {
+    CatalogImportService service = service(new StubBookService(new CountDownLatch(0), 0), 2, 1, 1000);
+
+    ImportJobStatus status = service.importCatalog(endless(CSV_HEADER + "IMP1,\"Title\n"),
+            CatalogImportService.Format.CSV);
+
+    assertEquals(ImportJobStatus.State.FAILED, status.state());
+    assertEquals("Record at line 2 exceeds the maximum record length", status.failure());
+  }
+
+  @Test
+  public void testOverlongLineFailsAtMaximumRecordLength() {
+    CatalogImportService service = service(new StubBookService(new CountDownLatch(0), 0), 2, 1, 1000);
+
+    ImportJobStatus status = service.importCatalog(endless(""), CatalogImportService.Format.NDJSON);
+
+    assertEquals(ImportJobStatus.State.FAILED, status.state());
+    assertEquals("Record at line 1 exceeds the maximum record length", status.failure());
+  }
+
+  @Test
+  public void testReadCsvRecordHandlesQuotesAndLineBreaks() throws IOException {
+    BufferedReader reader = new BufferedReader(new StringReader(
+            "a,\"b, \"\"quoted\"\"\",c\n\"multi\nline\",d\n"));
+    long[] lineNumber = {0};
+
+    assertEquals(List.of("a", "b, \"quoted\"", "c"), CatalogImportService.readCsvRecord(reader, lineNumber, 1000));
+    assertEquals(List.of("multi\nline", "d"), CatalogImportService.readCsvRecord(reader, lineNumber, 1000));
+    assertEquals(3, lineNumber[0]);
+    assertNull(CatalogImportService.readCsvRecord(reader, lineNumber, 1000));
+  }
+
+  @Test
+  public void testReadCsvRecordLimitsRecordsSpanningLines() throws IOException {
+    BufferedReader reader = new BufferedReader(new StringReader("\"12345\n67890\n\",x\r\ny\n"));
+    long[] lineNumber = {0};
+
+    Exception exception = assertThrows(IllegalArgumentException.class,
+            () -> CatalogImportService.readCsvRecord(reader, lineNumber, 10));
+    assertEquals("Record at line 1 exceeds the maximum record length", exception.getMessage());
+
+    BufferedReader crlf = new BufferedReader(new StringReader("a,b\r\nc\r\n"));
+    assertEquals(List.of("a", "b"), CatalogImportService.readCsvRecord(crlf, lineNumber, 3));
+    assertEquals(List.of("c"), CatalogImportService.readCsvRecord(crlf, lineNumber, 3));
+  }
+
+  @Test
+  public void testToBookConvertsValidRow() {
+    AbstractBook book = CatalogImportService.toBook("ISBN001", "Title", "Author", "fiction", "19.99", "3");
+
+    assertEquals(Genre.FICTION, book.getGenre());
+    assertEquals(new BigDecimal("19.99"), book.getPrice());
+    assertEquals(3, book.getQuantity());
+  }
+
+  @Test
+  public void testToBookAppliesConstructorValidation() {
+    Exception exception = assertThrows(IllegalArgumentException.class,
+            () -> CatalogImportService.toBook("ISBN001", "Title", "", "FICTION", "19.99", "3"));
+    assertEquals("Author cannot be null or empty.", exception.getMessage());
+
+    exception = assertThrows(IllegalArgumentException.class,
+            () -> CatalogImportService.toBook("ISBN001", "Title", "Author", "FICTION", "abc", "3"));
+    assertEquals("Invalid price: abc", exception.getMessage());
+  }
+}
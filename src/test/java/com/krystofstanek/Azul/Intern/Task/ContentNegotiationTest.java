@@ -0,0 +1,78 @@
+package com.krystofstanek.Azul.Intern.Task.api.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+public class ContentNegotiationTest {
+
+  @Autowired
+  private MockMvc mockMvc;
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  private JsonNode fetch(String url, String mediaType, ObjectMapper decoder) throws Exception {
+    byte[] body = mockMvc.perform(get(url).header(HttpHeaders.ACCEPT, mediaType))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsByteArray();
+    return decoder.readTree(body);
+  }
+
+  @Test
+  public void testBinaryFormatsAreNegotiated() throws Exception {
+    bookService.addBook(new SimpleBook("CN1", "Title", "Author", Genre.BIOGRAPHY, new BigDecimal("21.50"), 3));
+
+    JsonNode cbor = fetch("/books/CN1", "application/cbor", new ObjectMapper(new CBORFactory()));
+    assertEquals("CN1", cbor.get("isbn").asText());
+    assertEquals(0, new BigDecimal("21.50").compareTo(cbor.get("price").decimalValue()));
+    assertEquals(3, cbor.get("quantity").asInt());
+
+    JsonNode smile = fetch("/books/genre?genre=BIOGRAPHY&size=10", "application/x-jackson-smile",
+            new ObjectMapper(new SmileFactory()));
+    assertEquals(1, smile.get("content").size());
+    assertEquals("CN1", smile.get("content").get(0).get("isbn").asText());
+    assertEquals(1, smile.get("page").get("totalElements").asInt());
+  }
+
+  @Test
+  public void testJsonStaysTheDefault() throws Exception {
+    bookService.addBook(new SimpleBook("CN2", "Title", "Author", Genre.BIOGRAPHY, new BigDecimal("21.50"), 3));
+
+    String contentType = mockMvc.perform(get("/books/CN2").header(HttpHeaders.ACCEPT, "*/*"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentType();
+    assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType)));
+  }
+}
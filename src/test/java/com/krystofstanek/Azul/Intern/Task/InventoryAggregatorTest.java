@@ -0,0 +1,114 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.GenreAggregate;
+import com.krystofstanek.Azul.Intern.Task.api.model.InventoryAggregates;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+public class InventoryAggregatorTest {
+
+  @Autowired
+  private InventoryAggregator inventoryAggregator;
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  private static SimpleBook book(String isbn, Genre genre, String price, int quantity) {
+    return new SimpleBook(isbn, "Title " + isbn, "Author", genre, new BigDecimal(price), quantity);
+  }
+
+  private GenreAggregate aggregate(Genre genre) {
+    return inventoryAggregator.snapshot().genres().stream()
+            .filter(aggregate -> aggregate.genre() == genre)
+            .findFirst()
+            .orElseThrow();
+  }
+
+  @BeforeEach
+  public void reconcile() {
+    // Other tests clean up without publishing events, so start from the database state.
+    inventoryAggregator.reconcile();
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  @Test
+  public void testChangesAreAppliedIncrementally() {
+    bookService.addBook(book("AGG1", Genre.FANTASY, "4.50", 2));
+    bookService.addBook(book("AGG2", Genre.FANTASY, "10.00", 3));
+    bookService.addBook(book("AGG2", Genre.FANTASY, "10.00", 1));
+    bookService.addBook(book("AGG3", Genre.POETRY, "120.00", 1));
+
+    GenreAggregate fantasy = aggregate(Genre.FANTASY);
+    assertEquals(2, fantasy.titles());
+    assertEquals(6, fantasy.units());
+    assertEquals(new BigDecimal("49.00"), fantasy.stockValue());
+    // Buckets: <5, <10, <20, <50, <100, >=100; the bounds are exclusive.
+    assertEquals(List.of(1L, 0L, 1L, 0L, 0L, 0L), fantasy.priceHistogram());
+    assertEquals(List.of(0L, 0L, 0L, 0L, 0L, 1L), aggregate(Genre.POETRY).priceHistogram());
+
+    bookService.removeBook("AGG2", 3);
+    bookService.removeBook("AGG1", 2);
+    // Updating the details keeps the stock, which only changes through adds and removals.
+    bookService.updateBook(book("AGG3", Genre.HISTORY, "30.00", 5), "AGG3");
+
+    fantasy = aggregate(Genre.FANTASY);
+    assertEquals(1, fantasy.titles());
+    assertEquals(1, fantasy.units());
+    assertEquals(new BigDecimal("10.00"), fantasy.stockValue());
+    assertEquals(0, aggregate(Genre.POETRY).titles());
+    GenreAggregate history = aggregate(Genre.HISTORY);
+    assertEquals(1, history.titles());
+    assertEquals(1, history.units());
+    assertEquals(new BigDecimal("30.00"), history.stockValue());
+    assertEquals(List.of(0L, 0L, 0L, 1L, 0L, 0L), history.priceHistogram());
+  }
+
+  @Test
+  public void testReconcileMatchesIncrementalTotals() {
+    bookService.addBooks(List.of(
+            book("AGG10", Genre.MYSTERY, "9.99", 4),
+            book("AGG11", Genre.MYSTERY, "19.99", 2),
+            book("AGG12", Genre.HORROR, "5.00", 7)));
+    bookService.removeBook("AGG10", 1);
+    InventoryAggregates incremental = inventoryAggregator.snapshot();
+
+    inventoryAggregator.reconcile();
+
+    assertEquals(incremental.genres(), inventoryAggregator.snapshot().genres());
+    assertNotNull(inventoryAggregator.snapshot().reconciledAt());
+  }
+
+  @Test
+  public void testReconcileRepairsChangesMadeOutsideTheService() {
+    bookRepository.save(book("AGG20", Genre.BUSINESS, "25.00", 4));
+    assertEquals(0, aggregate(Genre.BUSINESS).titles());
+
+    inventoryAggregator.reconcile();
+
+    GenreAggregate business = aggregate(Genre.BUSINESS);
+    assertEquals(1, business.titles());
+    assertEquals(4, business.units());
+    assertEquals(new BigDecimal("100.00"), business.stockValue());
+  }
+}
@@ -0,0 +1,78 @@
+package com.krystofstanek.Azul.Intern.Task.metrics;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+public class MetricsTest {
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  @Autowired
+  private MeterRegistry meterRegistry;
+
+  @AfterEach
+  public void cleanUp() {
+    bookRepository.deleteAll();
+  }
+
+  @Test
+  public void testServiceOperationsAreTimedByFilterType() {
+    bookService.addBook(new SimpleBook("ISBN900", "Title", "Author", Genre.FICTION, BigDecimal.TEN, 1));
+
+    bookService.getBooksByAttribute("genre", "FICTION", 0, 10);
+    bookService.getBooksByAttribute("Author", "Author", 0, 10);
+
+    Timer genre = meterRegistry.find("bookstore.service")
+            .tags("operation", "getBooksByAttribute", "filterType", "genre", "outcome", "success")
+            .timer();
+    Timer author = meterRegistry.find("bookstore.service")
+            .tags("operation", "getBooksByAttribute", "filterType", "author")
+            .timer();
+    assertNotNull(genre);
+    assertTrue(genre.count() >= 1);
+    assertNotNull(author);
+  }
+
+  @Test
+  public void testFailedOperationsAreTaggedWithTheException() {
+    assertThrows(BookNotFoundException.class, () -> bookService.getBookByIsbn("MISSING"));
+
+    Timer timer = meterRegistry.find("bookstore.service")
+            .tags("operation", "getBookByIsbn", "outcome", "BookNotFoundException")
+            .timer();
+    assertNotNull(timer);
+  }
+
+  @Test
+  public void testRepositoryRowsAreCounted() {
+    bookService.addBook(new SimpleBook("ISBN901", "Title", "Author", Genre.FICTION, BigDecimal.TEN, 1));
+    bookService.addBook(new SimpleBook("ISBN902", "Title", "Author", Genre.FICTION, BigDecimal.TEN, 1));
+
+    bookService.getBooksByAttribute("title", "Title", 0, 10);
+
+    DistributionSummary rows = meterRegistry.find("bookstore.repository.rows").tag("method", "findByTitle").summary();
+    assertNotNull(rows);
+    assertTrue(rows.totalAmount() >= 2);
+  }
+}
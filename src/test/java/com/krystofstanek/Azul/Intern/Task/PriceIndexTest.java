@@ -0,0 +1,108 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.AbstractBook;
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriceIndexTest {
+
+  private PriceIndex index;
+
+  @BeforeEach
+  public void setUp() {
+    index = new PriceIndex(null, true);
+    index.put("ISBN003", new BigDecimal("30.00"));
+    index.put("ISBN001", new BigDecimal("10.00"));
+    index.put("ISBN002", new BigDecimal("10.00"));
+    index.put("ISBN004", new BigDecimal("19.99"));
+  }
+
+  private List<String> find(String minPrice, String maxPrice, String afterPrice, String afterIsbn, int limit) {
+    return index.find(new BigDecimal(minPrice), new BigDecimal(maxPrice),
+                    afterPrice == null ? null : new BigDecimal(afterPrice), afterIsbn, limit)
+            .stream().map(PriceIndex.Entry::isbn).toList();
+  }
+
+  @Test
+  public void testRangeIsInclusiveAndOrderedByPriceAndIsbn() {
+    assertEquals(List.of("ISBN001", "ISBN002", "ISBN004", "ISBN003"), find("10", "30", null, null, 10));
+  }
+
+  @Test
+  public void testCursorResumesAfterLastEntry() {
+    List<PriceIndex.Entry> first = index.find(BigDecimal.TEN, BigDecimal.valueOf(30), null, null, 2);
+    assertEquals(List.of("ISBN001", "ISBN002"), first.stream().map(PriceIndex.Entry::isbn).toList());
+    assertEquals(new BigDecimal("10.00"), first.get(1).price());
+
+    assertEquals(List.of("ISBN004", "ISBN003"), find("10", "30", "10.00", "ISBN002", 2));
+    assertEquals(List.of("ISBN003"), find("10", "30", "19.99", "ISBN004", 2));
+    assertEquals(List.of(), find("10", "30", "30.00", "ISBN003", 2));
+  }
+
+  @Test
+  public void testCursorBeforeRangeStartsAtMinimum() {
+    assertEquals(List.of("ISBN004"), find("15", "20", "10.00", "ISBN002", 10));
+    assertEquals(List.of(), find("10", "20", "25.00", "ISBN003", 10));
+  }
+
+  @Test
+  public void testFractionalBoundsRoundInward() {
+    assertEquals(List.of("ISBN004"), find("10.001", "29.999", null, null, 10));
+    assertEquals(List.of(), find("10.001", "10.009", null, null, 10));
+  }
+
+  @Test
+  public void testPricesWithMoreThanTwoDecimalsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> index.put("ISBN005", new BigDecimal("9.995")));
+    assertEquals(List.of("ISBN001", "ISBN002"), find("9", "10", null, null, 10));
+    index.put("ISBN005", new BigDecimal("9.9900"));
+    assertEquals(List.of("ISBN005"), find("9.99", "9.99", null, null, 10));
+  }
+
+  @Test
+  public void testMoveAndRemove() {
+    index.put("ISBN001", new BigDecimal("50.00"));
+    index.remove("ISBN002");
+
+    assertEquals(List.of("ISBN004", "ISBN003"), find("10", "30", null, null, 10));
+    assertEquals(List.of("ISBN001"), find("40", "60", null, null, 10));
+  }
+
+  @Test
+  public void testRebuildReplaysChangesMadeDuringTheScan() {
+    List<AbstractBook> catalog = List.of(
+            new SimpleBook("ISBN001", "Title", "Author", Genre.FICTION, new BigDecimal("10.00"), 1),
+            new SimpleBook("ISBN002", "Title", "Author", Genre.FICTION, new BigDecimal("10.00"), 1));
+    List<String> duringScan = new ArrayList<>();
+    BookRepository repository = (BookRepository) Proxy.newProxyInstance(
+            BookRepository.class.getClassLoader(), new Class<?>[] {BookRepository.class},
+            (proxy, method, args) -> {
+              assertEquals("findByIsbnGreaterThanOrderByIsbnAsc", method.getName());
+              // Changes committed after the scan read these rows, and lookups served meanwhile.
+              index.put("ISBN001", new BigDecimal("50.00"));
+              index.remove("ISBN002");
+              index.put("ISBN005", new BigDecimal("20.00"));
+              duringScan.addAll(find("0", "100", null, null, 10));
+              return catalog;
+            });
+    index = new PriceIndex(repository, true);
+    index.put("ISBN009", new BigDecimal("5.00"));
+
+    index.rebuild();
+
+    assertTrue(index.isReady());
+    assertEquals(List.of("ISBN009", "ISBN005", "ISBN001"), duringScan);
+    assertEquals(List.of("ISBN005", "ISBN001"), find("0", "100", null, null, 10));
+    assertEquals(List.of("ISBN001"), find("50", "50", null, null, 10));
+  }
+}
@@ -0,0 +1,99 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.BookView;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the application with the ISBN cache against a primary and a replica that lags behind it.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaCacheTest.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "bookstore.replica.urls=" + ReplicaCacheTest.REPLICA_URL,
+        "bookstore.cache.enabled=true"
+})
+public class ReplicaCacheTest {
+
+  static final String PRIMARY_URL = "jdbc:h2:mem:cache-primary;DB_CLOSE_DELAY=-1";
+  static final String REPLICA_URL = "jdbc:h2:mem:cache-replica;DB_CLOSE_DELAY=-1";
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private BookCache bookCache;
+
+  private JdbcTemplate primary;
+  private JdbcTemplate replica;
+
+  private static JdbcDataSource h2(String url) {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL(url);
+    dataSource.setUser("sa");
+    return dataSource;
+  }
+
+  @BeforeEach
+  public void setUp() {
+    Flyway.configure().dataSource(h2(REPLICA_URL)).load().migrate();
+    primary = new JdbcTemplate(h2(PRIMARY_URL));
+    replica = new JdbcTemplate(h2(REPLICA_URL));
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    primary.update("DELETE FROM abstract_book");
+    replica.update("DELETE FROM abstract_book");
+  }
+
+  /**
+   * Stores a book that was renamed and restocked on the primary but not yet on the replica.
+   */
+  private void insertLagging(String isbn) {
+    String insert = "INSERT INTO abstract_book (isbn, book_type, title, author, genre, price, quantity, version) "
+            + "VALUES (?, 'SIMPLE', ?, 'Author', 'FICTION', 10.00, ?, ?)";
+    primary.update(insert, isbn, "Current", 5, 2);
+    replica.update(insert, isbn, "Stale", 1, 1);
+  }
+
+  @Test
+  public void testLookupCachesThePrimaryCopy() {
+    insertLagging("CACHE500");
+
+    assertEquals("Current", bookService.getBookByIsbn("CACHE500").title());
+    assertEquals("Current", bookCache.get("CACHE500").title());
+  }
+
+  @Test
+  public void testMultiGetCachesThePrimaryCopies() {
+    insertLagging("CACHE501");
+    insertLagging("CACHE502");
+
+    List<BookView> books = bookService.getBooksByIsbns(List.of("CACHE501", "CACHE502")).books();
+
+    assertEquals(List.of("Current", "Current"), books.stream().map(BookView::title).toList());
+    assertEquals("Current", bookCache.get("CACHE502").title());
+  }
+
+  @Test
+  public void testVersionAgreesWithTheCachedLookup() {
+    insertLagging("CACHE503");
+
+    assertEquals(5, bookService.getBookVersion("CACHE503").quantity());
+    assertEquals(2, bookService.getBookVersion("CACHE503").version());
+  }
+}
@@ -0,0 +1,112 @@
+package com.krystofstanek.Azul.Intern.Task.config;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
+import com.krystofstanek.Azul.Intern.Task.service.BookService;
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the application against two in-memory H2 databases standing in for a primary and a replica.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "bookstore.replica.urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "bookstore.cache.enabled=false"
+})
+public class ReplicaRoutingTest {
+
+  static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+  static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+  @Autowired
+  private BookService bookService;
+
+  private JdbcTemplate primary;
+  private JdbcTemplate replica;
+
+  private static JdbcDataSource h2(String url) {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL(url);
+    dataSource.setUser("sa");
+    return dataSource;
+  }
+
+  @BeforeEach
+  public void setUp() {
+    Flyway.configure().dataSource(h2(REPLICA_URL)).load().migrate();
+    primary = new JdbcTemplate(h2(PRIMARY_URL));
+    replica = new JdbcTemplate(h2(REPLICA_URL));
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    primary.update("DELETE FROM abstract_book");
+    replica.update("DELETE FROM abstract_book");
+  }
+
+  private static void insert(JdbcTemplate database, String isbn, String title) {
+    database.update("INSERT INTO abstract_book (isbn, book_type, title, author, genre, price, quantity) "
+            + "VALUES (?, 'SIMPLE', ?, 'Author', 'FICTION', 10.00, 1)", isbn, title);
+  }
+
+  @Test
+  public void testReadsGoToReplica() {
+    insert(primary, "ISBN300", "On primary");
+    insert(replica, "ISBN300", "On replica");
+
+    assertEquals("On replica", bookService.getBookByIsbn("ISBN300").title());
+  }
+
+  @Test
+  public void testWritesGoToPrimary() {
+    bookService.addBook(new SimpleBook("ISBN301", "Title", "Author", Genre.FICTION, BigDecimal.TEN, 1));
+
+    assertEquals(1, primary.queryForObject("SELECT count(*) FROM abstract_book WHERE isbn = 'ISBN301'", Integer.class));
+    assertEquals(0, replica.queryForObject("SELECT count(*) FROM abstract_book WHERE isbn = 'ISBN301'", Integer.class));
+  }
+
+  @Test
+  public void testReadYourWritesReadsFromPrimary() {
+    bookService.addBook(new SimpleBook("ISBN302", "Title", "Author", Genre.FICTION, BigDecimal.TEN, 1));
+
+    assertThrows(BookNotFoundException.class, () -> bookService.getBookByIsbn("ISBN302"));
+    ReplicaRoutingDataSource.setPrimaryRequired(true);
+    try {
+      assertEquals("Title", bookService.getBookByIsbn("ISBN302").title());
+    } finally {
+      ReplicaRoutingDataSource.setPrimaryRequired(false);
+    }
+  }
+
+  @Test
+  public void testFallsBackToPrimaryWhenReplicaIsDown() throws Exception {
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(h2(PRIMARY_URL),
+            List.of(h2("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE")), TimeUnit.SECONDS.toNanos(60));
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    try (Connection connection = routing.getConnection()) {
+      assertTrue(connection.getMetaData().getURL().startsWith("jdbc:h2:mem:routing-primary"));
+    } finally {
+      TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.krystofstanek.Azul.Intern.Task.service;
+
+import com.krystofstanek.Azul.Intern.Task.api.model.Genre;
+import com.krystofstanek.Azul.Intern.Task.api.model.SimpleBook;
+import com.krystofstanek.Azul.Intern.Task.api.repository.BookRepository;
+import com.krystofstanek.Azul.Intern.Task.exceptions.BookNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the service with the write-behind buffer enabled; flushes are triggered by the tests.
+ */
+@SpringBootTest(properties = {
+        "bookstore.write-behind.enabled=true",
+        "bookstore.write-behind.flush-interval-ms=3600000"
+})
+@AutoConfigureTestDatabase
+public class StockDeltaBufferTest {
+
+  @Autowired
+  private BookService bookService;
+
+  @Autowired
+  private StockDeltaBuffer stockDeltaBuffer;
+
+  @Autowired
+  private BookRepository bookRepository;
+
+  private static SimpleBook book(String isbn, int quantity) {
+    return new SimpleBook(isbn, "Title", "Author", Genre.FICTION, new BigDecimal("9.99"), quantity);
+  }
+
+  private int storedQuantity(String isbn) {
+    return bookRepository.findViewByIsbn(isbn).orElseThrow().quantity();
+  }
+
+  @AfterEach
+  public void cleanUp() {
+    stockDeltaBuffer.flush();
+    bookRepository.deleteAll();
+  }
+
+  @Test
+  public void testReadsIncludePendingDeltasUntilFlushed() {
+    bookService.addBook(book("WB1", 1));
+
+    assertEquals(6, bookService.addBook(book("WB1", 5)).getQuantity());
+    assertEquals(4, bookService.removeBook("WB1", 2).getAsInt());
+    assertEquals(4, bookService.getBookByIsbn("WB1").quantity());
+    assertEquals(4, bookService.getBooksByAttribute("genre", "FICTION", 0, 10).getContent().get(0).quantity());
+    assertEquals(1, storedQuantity("WB1"));
+
+    stockDeltaBuffer.flush();
+
+    assertEquals(4, storedQuantity("WB1"));
+    assertEquals(4, bookService.getBookByIsbn("WB1").quantity());
+  }
+
+  @Test
+  public void testOverdrawIsRejectedAgainstPendingStock() {
+    bookService.addBook(book("WB2", 3));
+
+    assertEquals(1, bookService.removeBook("WB2", 2).getAsInt());
+    assertThrows(IllegalArgumentException.class, () -> bookService.removeBook("WB2", 2));
+    assertTrue(bookService.removeBook("WB2", 1).isEmpty());
+    assertThrows(BookNotFoundException.class, () -> bookService.getBookByIsbn("WB2"));
+    assertThrows(BookNotFoundException.class, () -> bookService.removeBook("WB2", 1));
+    assertTrue(bookRepository.existsById("WB2"));
+
+    stockDeltaBuffer.flush();
+
+    assertFalse(bookRepository.existsById("WB2"));
+  }
+
+  @Test
+  public void testConcurrentRemovalsNeverOverdraw() throws Exception {
+    bookService.addBook(book("WB3", 50));
+    AtomicInteger succeeded = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        futures.add(executor.submit(() -> {
+          try {
+            bookService.removeBook("WB3", 1);
+            succeeded.incrementAndGet();
+          } catch (IllegalArgumentException | BookNotFoundException e) {
+            // Out of stock.
+          }
+        }));
+        if (i % 10 == 0) {
+          stockDeltaBuffer.flush();
+        }
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    stockDeltaBuffer.flush();
+
+    assertEquals(50, succeeded.get());
+    assertFalse(bookRepository.existsById("WB3"));
+  }
+
+  @Test
+  public void testAddAfterStockDropsToZeroIsNotLostByConcurrentFlush() throws Exception {
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> flusher = executor.submit(() -> {
+        while (!done.get()) {
+          stockDeltaBuffer.flush();
+        }
+      });
+      for (int i = 0; i < 200; i++) {
+        bookService.addBook(book("WB4", 1));
+        assertTrue(bookService.removeBook("WB4", 1).isEmpty());
+      }
+      done.set(true);
+      flusher.get();
+    } finally {
+      executor.shutdown();
+    }
+    stockDeltaBuffer.flush();
+
+    assertFalse(bookRepository.existsById("WB4"));
+    assertThrows(BookNotFoundException.class, () -> bookService.getBookByIsbn("WB4"));
+  }
+}